@@ -0,0 +1,59 @@
+package com.example.ai.bench;
+
+import com.example.ai.MessageNormalizer;
+import com.example.ai.RuleSet;
+import com.example.ai.SimpleChatbot;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Verifies that the chatbot's steady-state message path allocates nothing.
+ * Runs normalization, the farewell check and response lookup over a pool of messages,
+ * measures the bytes allocated by this thread with the {@code ThreadMXBean} and exits
+ * with status 1 if any message allocated.
+ * <p>
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.example.ai.bench.AllocationCheck
+ */
+public class AllocationCheck {
+    private static final int WARMUP_MESSAGES = 2_000_000;
+    private static final int MEASURED_MESSAGES = 1_000_000;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        RuleSet rules = BenchmarkData.rules(1000, 42);
+        SimpleChatbot chatbot = new SimpleChatbot(rules);
+        MessageNormalizer normalizer = new MessageNormalizer();
+        String[] messages = BenchmarkData.messages(rules, 1024, 256, 7);
+
+        // Let the JIT compile the path and the normalizer size its buffers
+        long sink = run(chatbot, normalizer, messages, WARMUP_MESSAGES);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        sink += run(chatbot, normalizer, messages, MEASURED_MESSAGES);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        double perMessage = allocated / (double) MEASURED_MESSAGES;
+        System.out.printf("Allocated %d bytes over %d messages (%.4f bytes/message) [%d]%n",
+            allocated, MEASURED_MESSAGES, perMessage, sink & 1);
+        // A few bytes of slack covers the measuring call itself, never a per-message allocation
+        if (allocated > 1024) {
+            System.out.println("FAILED: the message path allocates");
+            System.exit(1);
+        }
+        System.out.println("OK: the message path is allocation-free");
+    }
+
+    private static long run(SimpleChatbot chatbot, MessageNormalizer normalizer, String[] messages, int count) {
+        long sink = 0;
+        for (int i = 0; i < count; i++) {
+            CharSequence message = normalizer.normalize(messages[i & (messages.length - 1)]);
+            if (!SimpleChatbot.isFarewell(message)) {
+                sink += chatbot.findResponse(message).length();
+            }
+        }
+        return sink;
+    }
+}
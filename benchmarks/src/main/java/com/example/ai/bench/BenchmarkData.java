@@ -0,0 +1,80 @@
+package com.example.ai.bench;
+
+import com.example.ai.RuleSet;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.util.*;
+
+/**
+ * Deterministic synthetic data shared by the benchmarks.
+ */
+final class BenchmarkData {
+    private static final String PERSISTENCE_UNIT = "AIKnowledgeBasePU";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Random lower-case word of 4 to 9 letters
+     */
+    static String word(Random random) {
+        int length = 4 + random.nextInt(6);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Rule set with the given number of patterns, three keywords each
+     */
+    static RuleSet rules(int ruleCount, long seed) {
+        Random random = new Random(seed);
+        Map<String, String[]> knowledgeBase = new LinkedHashMap<>();
+        while (knowledgeBase.size() < ruleCount) {
+            String pattern = word(random) + "|" + word(random) + " " + word(random) + "|" + word(random);
+            knowledgeBase.put(pattern, new String[]{"Response " + knowledgeBase.size()});
+        }
+        knowledgeBase.put(RuleSet.DEFAULT_PATTERN, new String[]{"Default response"});
+        return RuleSet.compile(knowledgeBase);
+    }
+
+    /**
+     * Messages of roughly the given length; about a quarter of them contain a rule keyword
+     */
+    static String[] messages(RuleSet rules, int count, int length, long seed) {
+        Random random = new Random(seed);
+        String[] messages = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder(length + 16);
+            while (sb.length() < length) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                if (rules.size() > 0 && random.nextInt(4) == 0 && sb.length() == 0) {
+                    String pattern = rules.pattern(random.nextInt(rules.size()));
+                    sb.append(pattern, 0, pattern.indexOf('|'));
+                } else {
+                    sb.append(word(random));
+                }
+            }
+            messages[i] = sb.substring(0, length);
+        }
+        return messages;
+    }
+
+    /**
+     * Entity manager factory for a fresh in-memory H2 database with SQL logging off
+     */
+    static EntityManagerFactory inMemoryDatabase(String name) {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("jakarta.persistence.jdbc.url",
+            "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        overrides.put("hibernate.hbm2ddl.auto", "create-drop");
+        overrides.put("hibernate.show_sql", "false");
+        overrides.put("hibernate.format_sql", "false");
+        return Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, overrides);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.ai.bench;
+
+import com.example.ai.MessageNormalizer;
+import com.example.ai.RuleSet;
+import com.example.ai.SimpleChatbot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SimpleChatbot#findResponse(CharSequence)} across rule-set and message sizes,
+ * on its own and together with message normalization and the farewell check.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatbotBenchmark {
+    private static final int MESSAGE_POOL = 1024;
+
+    @Param({"10", "1000", "10000"})
+    private int ruleCount;
+
+    @Param({"16", "256", "4096"})
+    private int inputLength;
+
+    private SimpleChatbot chatbot;
+    private final MessageNormalizer normalizer = new MessageNormalizer();
+    private String[] messages;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RuleSet rules = BenchmarkData.rules(ruleCount, 42);
+        chatbot = new SimpleChatbot(rules);
+        messages = BenchmarkData.messages(rules, MESSAGE_POOL, inputLength, 7);
+    }
+
+    @Benchmark
+    public String findResponse() {
+        String message = messages[next];
+        next = (next + 1) & (MESSAGE_POOL - 1);
+        return chatbot.findResponse(message);
+    }
+
+    @Benchmark
+    public String normalizeAndRespond() {
+        String message = messages[next];
+        next = (next + 1) & (MESSAGE_POOL - 1);
+        CharSequence normalized = normalizer.normalize(message);
+        return SimpleChatbot.isFarewell(normalized) ? null : chatbot.findResponse(normalized);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.ai.bench;
+
+import com.example.ai.model.Conversation;
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.ConversationRepository;
+import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.repository.UnitOfWork;
+import com.example.ai.service.AIService;
+import com.example.ai.service.AnswerCache;
+import com.example.ai.service.ConfidenceUpdater;
+import com.example.ai.service.ConversationWriter;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Drives {@link AIService#processQuery(String, String)} from many threads at once and
+ * checks that no request saw or wrote another request's data.
+ * <p>
+ * Each thread asks about random knowledge entries in its own conversation session. The
+ * run is repeated with 1, 2, 4, ... up to the given number of threads and the throughput
+ * of each round is printed. Afterwards it verifies that every answer matched its
+ * question, that every session holds exactly its own conversations, and that each
+ * entry's confidence score grew by exactly its number of hits. Exits with status 1 on
+ * any mismatch.
+ * <p>
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.example.ai.bench.ConcurrencyStress
+ * [maxThreads] [queriesPerThread] [knowledgeSize]
+ */
+public class ConcurrencyStress {
+    private static final double INITIAL_CONFIDENCE = 1.0;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int queriesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int knowledgeSize = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        EntityManagerFactory emf = BenchmarkData.inMemoryDatabase("stress");
+        UnitOfWork unitOfWork = new UnitOfWork(emf);
+        KnowledgeRepository knowledgeRepository = new KnowledgeRepository(unitOfWork);
+        ConversationRepository conversationRepository = new ConversationRepository(unitOfWork);
+
+        knowledgeRepository.importEntries(IntStream.range(0, knowledgeSize).mapToObj(i -> {
+            KnowledgeEntry entry = new KnowledgeEntry("What is topic" + i + "?", answer(i), "Stress");
+            entry.setConfidenceScore(INITIAL_CONFIDENCE);
+            return entry;
+        }), 1000, progress -> { });
+        Map<String, Long> idByAnswer = new HashMap<>();
+        for (KnowledgeEntry entry : knowledgeRepository.findAll()) {
+            idByAnswer.put(entry.getAnswer(), entry.getId());
+        }
+
+        ConversationWriter writer = new ConversationWriter(conversationRepository,
+            ConversationWriter.DEFAULT_QUEUE_CAPACITY, ConversationWriter.DEFAULT_BATCH_SIZE,
+            ConversationWriter.DEFAULT_FLUSH_INTERVAL_MILLIS, ConversationWriter.OverflowPolicy.BLOCK);
+        ConfidenceUpdater updater = new ConfidenceUpdater(knowledgeRepository, ConfidenceUpdater.DEFAULT_INCREMENT, 100);
+        AIService service = new AIService(unitOfWork, knowledgeRepository, conversationRepository,
+            new AIService.Options()
+                .conversationWriter(writer)
+                .confidenceUpdater(updater)
+                .answerCacheSize(AnswerCache.DEFAULT_MAXIMUM_SIZE));
+
+        AtomicLongArray hits = new AtomicLongArray(knowledgeSize);
+        AtomicLong wrongAnswers = new AtomicLong();
+        List<String> sessions = new ArrayList<>();
+
+        System.out.printf("%-8s %12s %12s%n", "threads", "queries", "queries/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String session = "stress-" + threads + "-" + t;
+                sessions.add(session);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int q = 0; q < queriesPerThread; q++) {
+                        int topic = random.nextInt(knowledgeSize);
+                        String response = service.processQuery("what is topic" + topic, session);
+                        if (!answer(topic).equals(response)) {
+                            wrongAnswers.incrementAndGet();
+                        }
+                        hits.incrementAndGet(topic);
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            pool.shutdown();
+            long queries = (long) threads * queriesPerThread;
+            System.out.printf("%-8d %12d %,12.0f%n", threads, queries, queries / seconds);
+        }
+
+        writer.close();
+        updater.close();
+
+        List<String> failures = new ArrayList<>();
+        if (wrongAnswers.get() > 0) {
+            failures.add(wrongAnswers.get() + " answers did not match their question");
+        }
+        if (writer.getDroppedCount() + writer.getFailedCount() > 0) {
+            failures.add("conversation writer dropped or failed to write conversations");
+        }
+        for (String session : sessions) {
+            List<Conversation> conversations = service.getConversationHistory(session);
+            if (conversations.size() != queriesPerThread) {
+                failures.add(session + " has " + conversations.size() + " conversations, expected " + queriesPerThread);
+            }
+            for (Conversation conversation : conversations) {
+                int topic = Integer.parseInt(conversation.getUserQuery().substring("what is topic".length()));
+                if (!answer(topic).equals(conversation.getAiResponse()) || !session.equals(conversation.getSessionId())) {
+                    failures.add(session + " holds a corrupted conversation: " + conversation);
+                    break;
+                }
+            }
+        }
+        for (KnowledgeEntry entry : knowledgeRepository.findAll()) {
+            int topic = Integer.parseInt(entry.getAnswer().substring("Answer number ".length()));
+            double expected = INITIAL_CONFIDENCE + hits.get(topic) * ConfidenceUpdater.DEFAULT_INCREMENT;
+            if (Math.abs(entry.getConfidenceScore() - expected) > 1e-6) {
+                failures.add("entry " + idByAnswer.get(entry.getAnswer()) + " has confidence "
+                    + entry.getConfidenceScore() + ", expected " + expected);
+                break;
+            }
+        }
+        emf.close();
+
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("FAILED: " + failure));
+            System.exit(1);
+        }
+        System.out.println("OK: " + sessions.size() + " sessions, no cross-request corruption");
+    }
+
+    private static String answer(int topic) {
+        return "Answer number " + topic;
+    }
+}
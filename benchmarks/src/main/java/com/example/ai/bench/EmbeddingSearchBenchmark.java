@@ -0,0 +1,77 @@
+package com.example.ai.bench;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.search.EmbeddingStore;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.search.TextEmbedder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one brute-force similarity search of the {@link EmbeddingStore}, filled
+ * directly rather than through a database so that a million entries take seconds to set
+ * up. {@code searchVector} runs in a JVM with the incubating Vector API module and
+ * {@code searchScalar} in one without it, where the store falls back to plain loops.
+ * Each query is a stored question with one word misspelled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmbeddingSearchBenchmark {
+    private static final int QUERY_POOL = 256;
+    private static final int LIMIT = 5;
+
+    @Param({"100000", "1000000"})
+    private int knowledgeSize;
+
+    private EmbeddingStore store;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = EmbeddingStore.createTemporary(new TextEmbedder(), EmbeddingStore.DEFAULT_MIN_SIMILARITY);
+        Random random = new Random(42);
+        queries = new String[QUERY_POOL];
+        int stride = knowledgeSize / QUERY_POOL;
+        for (int i = 0; i < knowledgeSize; i++) {
+            String first = BenchmarkData.word(random);
+            String second = BenchmarkData.word(random);
+            if (i % stride == 0 && i / stride < QUERY_POOL) {
+                // Drop one letter of the second word
+                queries[i / stride] = "what is " + first + " " + second.substring(1);
+            }
+            KnowledgeEntry entry = new KnowledgeEntry("What is " + first + " " + second + "?", "Answer " + i, null);
+            entry.setId(i + 1L);
+            store.onSaved(entry);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public List<KnowledgeIndex.SearchHit> searchVector() {
+        return search();
+    }
+
+    @Benchmark
+    public List<KnowledgeIndex.SearchHit> searchScalar() {
+        return search();
+    }
+
+    private List<KnowledgeIndex.SearchHit> search() {
+        String query = queries[next];
+        next = (next + 1) % QUERY_POOL;
+        return store.search(query, LIMIT);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.ai.bench;
+
+import com.example.ai.metrics.LatencyHistogram;
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.search.EmbeddingStore;
+import com.example.ai.search.HnswIndex;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.search.TextEmbedder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Trades recall against latency for the {@link HnswIndex}: the same queries are run
+ * against the exact scan of an {@link EmbeddingStore} and against the graph with
+ * increasing {@code efSearch}, and each row reports the share of the exact top 10 the
+ * graph found and the latency percentiles of one search.
+ * <p>
+ * Questions combine three words from a vocabulary of 20,000, so many questions share
+ * words and the nearest neighbours are meaningful; each query is a stored question with
+ * one word misspelled. The build, save and load times of the index are printed first.
+ * <p>
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.example.ai.bench.HnswRecallBenchmark
+ * [knowledgeSize] [queries] [M]
+ */
+public class HnswRecallBenchmark {
+    private static final int VOCABULARY = 20_000;
+    private static final int K = 10;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int[] EF_SEARCH = {10, 16, 32, 64, 128, 256, 512};
+
+    public static void main(String[] args) throws Exception {
+        int knowledgeSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int m = args.length > 2 ? Integer.parseInt(args[2]) : HnswIndex.DEFAULT_M;
+
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            vocabulary[i] = BenchmarkData.word(random);
+        }
+        List<KnowledgeEntry> entries = new ArrayList<>(knowledgeSize);
+        String[] queries = new String[queryCount];
+        for (int i = 0; i < knowledgeSize; i++) {
+            String[] words = new String[3];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = vocabulary[random.nextInt(VOCABULARY)];
+            }
+            KnowledgeEntry entry = new KnowledgeEntry("What is " + String.join(" ", words) + "?", "Answer " + i, null);
+            entry.setId(i + 1L);
+            entries.add(entry);
+        }
+        for (int q = 0; q < queryCount; q++) {
+            String[] words = entries.get(random.nextInt(knowledgeSize)).getQuestion().split(" ");
+            int typo = 2 + random.nextInt(3);
+            words[typo] = words[typo].substring(1);
+            queries[q] = String.join(" ", words);
+        }
+
+        TextEmbedder embedder = new TextEmbedder();
+        // No minimum similarity, so both return a full top 10 to compare
+        EmbeddingStore exact = EmbeddingStore.createTemporary(embedder, -1);
+        exact.rebuild(entries);
+        long start = System.nanoTime();
+        HnswIndex index = new HnswIndex(embedder, m, HnswIndex.DEFAULT_EF_CONSTRUCTION, HnswIndex.DEFAULT_EF_SEARCH, -1);
+        index.rebuild(entries);
+        System.out.printf("Built HNSW index of %,d entries (M=%d, efConstruction=%d) in %.1f s%n",
+            knowledgeSize, m, HnswIndex.DEFAULT_EF_CONSTRUCTION, (System.nanoTime() - start) / 1e9);
+
+        Path file = Files.createTempFile("hnsw-recall-", ".hnsw");
+        start = System.nanoTime();
+        index.save(file);
+        System.out.printf("Saved %,d bytes in %.2f s%n", Files.size(file), (System.nanoTime() - start) / 1e9);
+        start = System.nanoTime();
+        index = HnswIndex.load(file, embedder, HnswIndex.DEFAULT_EF_SEARCH, -1);
+        System.out.printf("Loaded in %.2f s%n%n", (System.nanoTime() - start) / 1e9);
+        Files.delete(file);
+
+        List<Set<Long>> truth = new ArrayList<>(queryCount);
+        LatencyHistogram exactLatency = new LatencyHistogram();
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            truth.clear();
+            for (String query : queries) {
+                long queryStart = System.nanoTime();
+                List<KnowledgeIndex.SearchHit> hits = exact.search(query, K);
+                if (round == WARMUP_ROUNDS) {
+                    exactLatency.record(System.nanoTime() - queryStart);
+                }
+                truth.add(ids(hits));
+            }
+        }
+
+        System.out.printf("%-14s %10s %10s %10s %10s%n", "search", "recall@" + K, "p50 ms", "p99 ms", "max ms");
+        print("exact scan", 1.0, exactLatency);
+        for (int efSearch : EF_SEARCH) {
+            index.setEfSearch(efSearch);
+            LatencyHistogram latency = new LatencyHistogram();
+            long found = 0;
+            for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+                found = 0;
+                for (int q = 0; q < queryCount; q++) {
+                    long queryStart = System.nanoTime();
+                    List<KnowledgeIndex.SearchHit> hits = index.search(queries[q], K);
+                    if (round == WARMUP_ROUNDS) {
+                        latency.record(System.nanoTime() - queryStart);
+                    }
+                    for (KnowledgeIndex.SearchHit hit : hits) {
+                        if (truth.get(q).contains(hit.getEntryId())) {
+                            found++;
+                        }
+                    }
+                }
+            }
+            print("efSearch=" + efSearch, (double) found / ((long) queryCount * K), latency);
+        }
+        exact.close();
+    }
+
+    private static Set<Long> ids(List<KnowledgeIndex.SearchHit> hits) {
+        Set<Long> ids = new HashSet<>();
+        for (KnowledgeIndex.SearchHit hit : hits) {
+            ids.add(hit.getEntryId());
+        }
+        return ids;
+    }
+
+    private static void print(String name, double recall, LatencyHistogram latency) {
+        long[] values = latency.getValuesAtPercentiles(50, 99);
+        System.out.printf("%-14s %10.3f %10.3f %10.3f %10.3f%n", name, recall,
+            values[0] / 1e6, values[1] / 1e6, latency.getMax() / 1e6);
+    }
+}
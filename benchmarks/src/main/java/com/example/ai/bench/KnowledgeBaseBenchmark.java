@@ -0,0 +1,115 @@
+package com.example.ai.bench;
+
+import com.example.ai.model.Conversation;
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.ConversationRepository;
+import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.repository.UnitOfWork;
+import com.example.ai.service.AIService;
+import com.example.ai.service.AnswerCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the knowledge base query path against an in-memory H2 database:
+ * {@link AIService#processQuery(String)} for queries that do and do not match, with
+ * and without the answer cache, and the two repository calls it is built from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KnowledgeBaseBenchmark {
+    private static final int QUERY_POOL = 256;
+
+    @Param({"1000", "10000"})
+    private int knowledgeSize;
+
+    private EntityManagerFactory emf;
+    private UnitOfWork unitOfWork;
+    private AIService aiService;
+    private AIService cachedAiService;
+    private KnowledgeRepository knowledgeRepository;
+    private ConversationRepository conversationRepository;
+    private String[] hitQueries;
+    private String[] missQueries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkData.inMemoryDatabase("knowledge");
+        unitOfWork = new UnitOfWork(emf);
+        knowledgeRepository = new KnowledgeRepository(unitOfWork);
+        conversationRepository = new ConversationRepository(unitOfWork);
+        aiService = new AIService(unitOfWork, knowledgeRepository, conversationRepository);
+
+        Random random = new Random(42);
+        hitQueries = new String[QUERY_POOL];
+        missQueries = new String[QUERY_POOL];
+        for (int i = 0; i < knowledgeSize; i++) {
+            String question = "What is " + BenchmarkData.word(random) + " " + BenchmarkData.word(random) + "?";
+            aiService.addKnowledge(question, "Answer number " + i, "Category " + (i % 10));
+            if (i < QUERY_POOL) {
+                hitQueries[i] = question;
+            }
+        }
+        cachedAiService = new AIService(unitOfWork, knowledgeRepository, conversationRepository,
+            new AIService.Options().answerCacheSize(AnswerCache.DEFAULT_MAXIMUM_SIZE));
+        for (int i = 0; i < QUERY_POOL; i++) {
+            // Digits never appear in generated questions, so these cannot match
+            missQueries[i] = "unknown topic " + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        emf.close();
+    }
+
+    private String nextQuery(String[] pool) {
+        String query = pool[next];
+        next = (next + 1) % QUERY_POOL;
+        return query;
+    }
+
+    @Benchmark
+    public String processQueryHit() {
+        return aiService.processQuery(nextQuery(hitQueries));
+    }
+
+    @Benchmark
+    public String processQueryMiss() {
+        return aiService.processQuery(nextQuery(missQueries));
+    }
+
+    @Benchmark
+    public String processQueryHitCached() {
+        return cachedAiService.processQuery(nextQuery(hitQueries));
+    }
+
+    @Benchmark
+    public String processQueryMissCached() {
+        return cachedAiService.processQuery(nextQuery(missQueries));
+    }
+
+    @Benchmark
+    public List<KnowledgeEntry> searchByQuestionHit() {
+        return knowledgeRepository.searchByQuestion(nextQuery(hitQueries));
+    }
+
+    @Benchmark
+    public List<KnowledgeEntry> searchByQuestionMiss() {
+        return knowledgeRepository.searchByQuestion(nextQuery(missQueries));
+    }
+
+    @Benchmark
+    public Conversation createConversation() {
+        return conversationRepository.create(new Conversation("benchmark query", "benchmark response", "bench"));
+    }
+}
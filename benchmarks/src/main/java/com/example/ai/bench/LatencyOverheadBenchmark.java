@@ -0,0 +1,85 @@
+package com.example.ai.bench;
+
+import com.example.ai.RuleSet;
+import com.example.ai.SimpleChatbot;
+import com.example.ai.metrics.LatencyHistogram;
+import com.example.ai.metrics.StageTimer;
+import com.example.ai.service.AIService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the per-stage latency timers cost on the cheapest instrumented path,
+ * {@link SimpleChatbot#findResponse(CharSequence)}, which takes three timings per call.
+ * <p>
+ * {@code respondUninstrumented} is the response lookup without any timing code.
+ * {@code findResponseTimed} runs with timing on (the default) and
+ * {@code findResponseUntimed} in a JVM started with {@code -Dai.latency.enabled=false};
+ * the flag is a constant, so it needs its own fork. The last two benchmarks time one
+ * stage and record one value into a histogram, on their own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyOverheadBenchmark {
+    private static final int MESSAGE_POOL = 1024;
+    private static final int RULE_COUNT = 1000;
+    private static final int INPUT_LENGTH = 64;
+
+    private RuleSet rules;
+    private SimpleChatbot chatbot;
+    private final Random random = new Random(42);
+    private final StringBuilder replyBuffer = new StringBuilder(256);
+    private final StageTimer<AIService.QueryStage> timer = new StageTimer<>("Query Latency", AIService.QueryStage.class);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private String[] messages;
+    private long messageCount;
+    private long value;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rules = BenchmarkData.rules(RULE_COUNT, 42);
+        chatbot = new SimpleChatbot(rules);
+        messages = BenchmarkData.messages(rules, MESSAGE_POOL, INPUT_LENGTH, 7);
+    }
+
+    private String nextMessage() {
+        String message = messages[next];
+        next = (next + 1) & (MESSAGE_POOL - 1);
+        return message;
+    }
+
+    @Benchmark
+    public String respondUninstrumented() {
+        return rules.respond(nextMessage(), random, ++messageCount, replyBuffer);
+    }
+
+    @Benchmark
+    public String findResponseTimed() {
+        return chatbot.findResponse(nextMessage());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dai.latency.enabled=false")
+    public String findResponseUntimed() {
+        return chatbot.findResponse(nextMessage());
+    }
+
+    @Benchmark
+    public void stageTimer() {
+        timer.stop(AIService.QueryStage.SEARCH, timer.start());
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        // Spread values over many buckets rather than hitting one cache line
+        value = (value * 6364136223846793005L + 1442695040888963407L);
+        histogram.record((value >>> 40) & 0xFFFFF);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.ai.bench;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.repository.UnitOfWork;
+import com.example.ai.search.FullTextSearchBackend;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.search.LikeSearchBackend;
+import com.example.ai.search.SearchBackend;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the knowledge search backends on the same in-memory H2 database: the
+ * {@code LIKE '%query%'} scan, H2's Lucene full-text index and the in-memory BM25 index.
+ * Every query is the question of a stored entry, so each search finds a match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchBackendBenchmark {
+    private static final int QUERY_POOL = 256;
+    private static final int LIMIT = 5;
+
+    @Param({"like", "fulltext", "index"})
+    private String backend;
+
+    @Param({"10000", "100000", "1000000"})
+    private int knowledgeSize;
+
+    private EntityManagerFactory emf;
+    private SearchBackend searchBackend;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkData.inMemoryDatabase("search");
+        UnitOfWork unitOfWork = new UnitOfWork(emf);
+        KnowledgeRepository knowledgeRepository = new KnowledgeRepository(unitOfWork);
+
+        // The index is filled by the import itself; the full-text index is built afterwards
+        KnowledgeIndex index = new KnowledgeIndex();
+        if (backend.equals("index")) {
+            knowledgeRepository.addChangeListener(index);
+        }
+
+        // Queries are spread evenly over the table, so they do not all hit early rows
+        Random random = new Random(42);
+        queries = new String[QUERY_POOL];
+        int stride = knowledgeSize / QUERY_POOL;
+        knowledgeRepository.importEntries(IntStream.range(0, knowledgeSize).mapToObj(i -> {
+            String topic = BenchmarkData.word(random) + " " + BenchmarkData.word(random);
+            if (i % stride == 0 && i / stride < QUERY_POOL) {
+                queries[i / stride] = "what is " + topic;
+            }
+            KnowledgeEntry entry = new KnowledgeEntry("What is " + topic + "?",
+                "Answer number " + i + " about " + BenchmarkData.word(random), "Category " + (i % 10));
+            entry.setConfidenceScore(1.0);
+            return entry;
+        }), 1000, progress -> { });
+
+        switch (backend) {
+            case "like":
+                searchBackend = new LikeSearchBackend(knowledgeRepository);
+                break;
+            case "fulltext":
+                searchBackend = FullTextSearchBackend.install(unitOfWork);
+                break;
+            case "index":
+                searchBackend = index;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        emf.close();
+    }
+
+    @Benchmark
+    public List<KnowledgeIndex.SearchHit> search() {
+        String query = queries[next];
+        next = (next + 1) % QUERY_POOL;
+        return searchBackend.search(query, LIMIT);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ai.bench;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.search.SpellingCorrector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fuzzy stage that runs when a search finds nothing: correcting a query
+ * with one misspelled word, on its own and followed by the BM25 search with the
+ * corrected query. Sampled, so JMH reports the p99 and p99.9 of single calls.
+ * <p>
+ * Questions combine three words from a vocabulary of 50,000, so the corrector indexes
+ * about as many words as a large real knowledge base would have. Each query is a stored
+ * question with one letter of one word replaced, dropped or swapped with its neighbour.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SpellingCorrectionBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERY_POOL = 1024;
+    private static final int LIMIT = 5;
+
+    @Param({"100000", "1000000"})
+    private int knowledgeSize;
+
+    private SpellingCorrector corrector;
+    private KnowledgeIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            vocabulary[i] = BenchmarkData.word(random);
+        }
+
+        corrector = new SpellingCorrector(SpellingCorrector.DEFAULT_MAX_EDITS);
+        List<KnowledgeEntry> entries = new ArrayList<>(knowledgeSize);
+        for (int i = 0; i < knowledgeSize; i++) {
+            String question = "What is " + vocabulary[random.nextInt(VOCABULARY)] + " "
+                + vocabulary[random.nextInt(VOCABULARY)] + " " + vocabulary[random.nextInt(VOCABULARY)] + "?";
+            KnowledgeEntry entry = new KnowledgeEntry(question, "Answer " + i, null);
+            entry.setId(i + 1L);
+            entries.add(entry);
+            corrector.addQuestion(entry.getId(), question);
+        }
+        index = new KnowledgeIndex();
+        index.rebuild(entries);
+
+        queries = new String[QUERY_POOL];
+        for (int q = 0; q < QUERY_POOL; q++) {
+            String[] words = entries.get(random.nextInt(knowledgeSize)).getQuestion().replace("?", "").split(" ");
+            int w = 2 + random.nextInt(3);
+            words[w] = misspell(words[w], random);
+            queries[q] = String.join(" ", words);
+        }
+    }
+
+    private static String misspell(String word, Random random) {
+        StringBuilder typo = new StringBuilder(word);
+        int at = random.nextInt(word.length() - 1);
+        switch (random.nextInt(3)) {
+            case 0:
+                typo.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                break;
+            case 1:
+                typo.deleteCharAt(at);
+                break;
+            default:
+                typo.setCharAt(at, word.charAt(at + 1));
+                typo.setCharAt(at + 1, word.charAt(at));
+                break;
+        }
+        return typo.toString();
+    }
+
+    private String nextQuery() {
+        String query = queries[next];
+        next = (next + 1) & (QUERY_POOL - 1);
+        return query;
+    }
+
+    @Benchmark
+    public String correct() {
+        return corrector.correct(nextQuery());
+    }
+
+    @Benchmark
+    public List<KnowledgeIndex.SearchHit> correctAndSearch() {
+        String query = nextQuery();
+        String corrected = corrector.correct(query);
+        return index.search(corrected != null ? corrected : query, LIMIT);
+    }
+}
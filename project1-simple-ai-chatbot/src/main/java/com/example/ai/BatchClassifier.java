@@ -0,0 +1,282 @@
+package com.example.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.*;
+
+/**
+ * Classifies a large file of user messages offline, one message per line.
+ * <p>
+ * The input is memory-mapped in chunks that end on a line boundary. Chunks are matched
+ * in parallel on a fixed pool of threads, and a single writer thread writes each chunk's
+ * output strictly in input order. Only a bounded number of chunks are in flight at once,
+ * so memory use does not depend on the size of the input.
+ * <p>
+ * Lines are normalized the way chat messages are before they are matched. Each output
+ * line is the matched pattern (or "default"), a tab and the original line.
+ * Per-pattern hit counts are reported when the run finishes.
+ */
+public class BatchClassifier {
+    private static final int CHUNK_BYTES = 4 << 20;
+    private static final int MAX_LINE_CHARS = 1 << 16;
+    private static final ThreadLocal<LineDecoder> DECODERS = ThreadLocal.withInitial(LineDecoder::new);
+
+    private final RuleSet rules;
+    private final int threads;
+    private final byte[][] patternBytes;   // output label per rule, last slot is "default"
+
+    public BatchClassifier(RuleSet rules, int threads) {
+        this.rules = rules;
+        this.threads = Math.max(1, threads);
+        this.patternBytes = new byte[rules.size() + 1][];
+        for (int i = 0; i < rules.size(); i++) {
+            patternBytes[i] = rules.pattern(i).getBytes(StandardCharsets.UTF_8);
+        }
+        patternBytes[rules.size()] = RuleSet.DEFAULT_PATTERN.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Classify every line of the input file and write the results to the output file
+     */
+    public Summary classify(Path input, Path output) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, daemon("batch-worker"));
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(daemon("batch-writer"));
+        // Futures are queued in input order; the bound caps how much work is in memory
+        BlockingQueue<Future<ChunkResult>> inFlight = new ArrayBlockingQueue<>(threads * 2);
+        long[] hits = new long[patternBytes.length];
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            Future<Long> writer = writerThread.submit(() -> writeInOrder(inFlight, out, hits));
+
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                MappedByteBuffer chunk = mapChunk(in, position, size);
+                position += chunk.limit();
+                putOrFail(inFlight, workers.submit(() -> classifyChunk(chunk)), writer);
+            }
+            putOrFail(inFlight, CompletableFuture.completedFuture(null), writer);
+
+            long lines = writer.get();
+            return new Summary(rules, hits, lines, System.nanoTime() - started);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch classification failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            writerThread.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void putOrFail(BlockingQueue<Future<ChunkResult>> queue, Future<ChunkResult> task,
+                                  Future<Long> writer) throws InterruptedException, ExecutionException {
+        while (!queue.offer(task, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                writer.get(); // surfaces the writer's failure
+                throw new IllegalStateException("Writer stopped before the input was consumed");
+            }
+        }
+    }
+
+    /**
+     * Map the next chunk of the file, extended or shortened so it ends right after a newline
+     */
+    private static MappedByteBuffer mapChunk(FileChannel in, long position, long size) throws IOException {
+        long length = Math.min(CHUNK_BYTES, size - position);
+        while (true) {
+            MappedByteBuffer chunk = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                return chunk;
+            }
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') {
+                    chunk.limit(i + 1);
+                    return chunk;
+                }
+            }
+            // A single line longer than the chunk; map a larger window
+            length = Math.min(length * 2, size - position);
+        }
+    }
+
+    private long writeInOrder(BlockingQueue<Future<ChunkResult>> inFlight, FileChannel out, long[] hits)
+            throws Exception {
+        long lines = 0;
+        while (true) {
+            ChunkResult result = inFlight.take().get();
+            if (result == null) {
+                return lines;
+            }
+            ByteBuffer bytes = result.output;
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] += result.hits[i];
+            }
+            lines += result.lines;
+        }
+    }
+
+    private ChunkResult classifyChunk(ByteBuffer chunk) {
+        LineDecoder decoder = DECODERS.get();
+        ChunkResult result = new ChunkResult(patternBytes.length, chunk.limit() + chunk.limit() / 4);
+        int defaultSlot = patternBytes.length - 1;
+
+        int lineStart = 0;
+        int limit = chunk.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && chunk.get(i) != '\n') {
+                continue;
+            }
+            if (i == limit && lineStart == limit) {
+                break; // no trailing partial line
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            int rule = rules.match(decoder.normalizer.normalize(decoder.decode(chunk, lineStart, lineEnd)));
+            int slot = rule == KeywordMatcher.NO_MATCH ? defaultSlot : rule;
+            result.hits[slot]++;
+            result.lines++;
+
+            result.append(patternBytes[slot]);
+            result.append((byte) '\t');
+            result.append(chunk, lineStart, lineEnd);
+            result.append((byte) '\n');
+            lineStart = i + 1;
+        }
+        result.output.flip();
+        return result;
+    }
+
+    /**
+     * Reusable UTF-8 decoder and message normalizer for one worker thread
+     */
+    private static final class LineDecoder {
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharBuffer chars = CharBuffer.allocate(MAX_LINE_CHARS);
+        final MessageNormalizer normalizer = new MessageNormalizer();
+
+        CharSequence decode(ByteBuffer source, int start, int end) {
+            ByteBuffer line = source.duplicate();
+            line.limit(end).position(start);
+            chars.clear();
+            decoder.reset();
+            decoder.decode(line, chars, true); // overlong lines are matched on their first 64K chars
+            chars.flip();
+            return chars;
+        }
+    }
+
+    /**
+     * Output and counters produced for one chunk
+     */
+    private static final class ChunkResult {
+        final long[] hits;
+        ByteBuffer output;
+        long lines;
+
+        ChunkResult(int slots, int expectedBytes) {
+            this.hits = new long[slots];
+            this.output = ByteBuffer.allocate(expectedBytes);
+        }
+
+        void append(byte value) {
+            ensure(1);
+            output.put(value);
+        }
+
+        void append(byte[] bytes) {
+            ensure(bytes.length);
+            output.put(bytes);
+        }
+
+        void append(ByteBuffer source, int start, int end) {
+            ensure(end - start);
+            output.put(output.position(), source, start, end - start);
+            output.position(output.position() + end - start);
+        }
+
+        private void ensure(int extra) {
+            if (output.remaining() < extra) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + extra));
+                output.flip();
+                larger.put(output);
+                output = larger;
+            }
+        }
+    }
+
+    /**
+     * Per-pattern hit counts for a finished run
+     */
+    public static final class Summary {
+        private final RuleSet rules;
+        private final long[] hits;
+        private final long lines;
+        private final long elapsedNanos;
+
+        Summary(RuleSet rules, long[] hits, long lines, long elapsedNanos) {
+            this.rules = rules;
+            this.hits = hits;
+            this.lines = lines;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * Hits for the rule at the given index
+         */
+        public long getHits(int rule) {
+            return hits[rule];
+        }
+
+        /**
+         * Lines that matched no pattern
+         */
+        public long getDefaultHits() {
+            return hits[hits.length - 1];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            double seconds = elapsedNanos / 1e9;
+            sb.append(String.format("Classified %d lines in %.2f s (%.0f lines/s)%n",
+                lines, seconds, lines / Math.max(seconds, 1e-9)));
+            for (int i = 0; i < hits.length; i++) {
+                String pattern = i < rules.size() ? rules.pattern(i) : RuleSet.DEFAULT_PATTERN;
+                sb.append(String.format("%12d  %6.2f%%  %s%n", hits[i],
+                    lines == 0 ? 0.0 : 100.0 * hits[i] / lines, pattern));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.ai;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Local load generator for {@link ChatServer}.
+ * Opens many sessions, then has a number of worker threads send messages round-robin
+ * over their share of the sessions, each waiting for the reply before the next send.
+ * Prints throughput and latency percentiles at the end.
+ * <p>
+ * Usage: ChatLoadClient [host] [port] [connections] [threads] [seconds]
+ */
+public class ChatLoadClient {
+    private static final String[] MESSAGES = {
+        "hello there", "who are you", "what is the weather like", "how are you today",
+        "tell me a joke", "can you help me", "something completely different", "what time is it"
+    };
+    private static final int MAX_SAMPLES_PER_THREAD = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 5555;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        System.out.printf("Opening %d sessions to %s with %d worker threads for %d s...%n",
+            connections, address, threads, seconds);
+
+        List<List<SocketChannel>> shares = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            shares.add(new ArrayList<>());
+        }
+        for (int c = 0; c < connections; c++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.socket().setTcpNoDelay(true);
+            shares.get(c % threads).add(channel);
+        }
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(threads);
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(shares.get(t), deadline, done);
+            new Thread(workers[t], "load-" + t).start();
+        }
+        done.await();
+
+        long total = 0;
+        int sampleCount = 0;
+        for (Worker worker : workers) {
+            total += worker.completed;
+            sampleCount += worker.sampleCount;
+        }
+        long[] samples = new long[sampleCount];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.samples, 0, samples, offset, worker.sampleCount);
+            offset += worker.sampleCount;
+        }
+        Arrays.sort(samples);
+
+        System.out.printf("Requests: %d (%.0f req/s)%n", total, total / (double) seconds);
+        System.out.printf("Latency us: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+            percentile(samples, 0.50), percentile(samples, 0.90), percentile(samples, 0.99),
+            percentile(samples, 0.999), samples.length == 0 ? 0.0 : samples[samples.length - 1] / 1000.0);
+
+        for (List<SocketChannel> share : shares) {
+            for (SocketChannel channel : share) {
+                channel.close();
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    /**
+     * Sends one message at a time over its sessions and records the round-trip time
+     */
+    private static final class Worker implements Runnable {
+        final List<SocketChannel> sessions;
+        final long deadline;
+        final CountDownLatch done;
+        final long[] samples = new long[MAX_SAMPLES_PER_THREAD];
+        final ByteBuffer in = ByteBuffer.allocate(8192);
+        int sampleCount;
+        long completed;
+
+        Worker(List<SocketChannel> sessions, long deadline, CountDownLatch done) {
+            this.sessions = sessions;
+            this.deadline = deadline;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer[] requests = new ByteBuffer[MESSAGES.length];
+            for (int i = 0; i < MESSAGES.length; i++) {
+                requests[i] = ByteBuffer.wrap((MESSAGES[i] + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            try {
+                int next = 0;
+                while (!sessions.isEmpty() && System.nanoTime() < deadline) {
+                    SocketChannel channel = sessions.get(next % sessions.size());
+                    ByteBuffer request = requests[next % requests.length].duplicate();
+                    next++;
+
+                    long start = System.nanoTime();
+                    while (request.hasRemaining()) {
+                        channel.write(request);
+                    }
+                    readLine(channel);
+                    long elapsed = System.nanoTime() - start;
+
+                    completed++;
+                    if (sampleCount < samples.length) {
+                        samples[sampleCount++] = elapsed;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println(Thread.currentThread().getName() + " failed: " + e.getMessage());
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void readLine(SocketChannel channel) throws IOException {
+            in.clear();
+            while (true) {
+                if (channel.read(in) < 0) {
+                    throw new IOException("Server closed the connection");
+                }
+                if (in.position() > 0 && in.get(in.position() - 1) == '\n') {
+                    return;
+                }
+                if (!in.hasRemaining()) {
+                    in.clear(); // discard oversized replies, only the timing matters
+                }
+            }
+        }
+    }
+}
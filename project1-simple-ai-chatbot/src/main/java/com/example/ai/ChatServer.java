@@ -0,0 +1,296 @@
+package com.example.ai;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.*;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Line-oriented TCP server that lets many users chat with the bot at once.
+ * Each non-blank line a client sends is answered with exactly one line. Sending a farewell
+ * (bye, exit, quit, goodbye) returns a farewell response and closes the connection.
+ * <p>
+ * Connections are spread over a small number of NIO event loops, each with its own
+ * selector, so thousands of idle or active sessions need only a handful of threads.
+ * All sessions share the same immutable rule snapshot, and responses are picked with
+ * {@link ThreadLocalRandom} so event loops never contend on a shared generator.
+ */
+public class ChatServer implements Closeable {
+    private static final int MAX_LINE_BYTES = 4096;
+    private static final int OUTPUT_BUFFER_BYTES = 8192;
+    private static final byte[] LINE_TOO_LONG =
+        "Sorry, that message is too long.\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Supplier<RuleSet> rules;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final Thread acceptThread;
+    private final AtomicLong openSessions = new AtomicLong();
+    private final AtomicLong totalSessions = new AtomicLong();
+    private final AtomicLong totalMessages = new AtomicLong();
+    private volatile boolean running = true;
+
+    public ChatServer(Supplier<RuleSet> rules, InetSocketAddress address, int eventLoops) throws IOException {
+        this.rules = rules;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address, 1024);
+        this.loops = new EventLoop[Math.max(1, eventLoops)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop("chat-loop-" + i);
+        }
+        this.acceptThread = new Thread(this::acceptConnections, "chat-accept");
+    }
+
+    /**
+     * Start accepting connections
+     */
+    public void start() {
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptThread.start();
+    }
+
+    /**
+     * Port the server is listening on
+     */
+    public int port() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Block until the server is closed
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptThread.join();
+        for (EventLoop loop : loops) {
+            loop.thread.join();
+        }
+    }
+
+    /**
+     * Current server counters as a single line
+     */
+    public String getStatistics() {
+        return String.format("Open sessions: %d, total sessions: %d, messages: %d",
+            openSessions.get(), totalSessions.get(), totalMessages.get());
+    }
+
+    private void acceptConnections() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Failed to accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverChannel.close();
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * Per-connection state, only ever touched by the event loop that owns it
+     */
+    private static final class Session {
+        final ByteBuffer in = ByteBuffer.allocate(MAX_LINE_BYTES);
+        ByteBuffer out = ByteBuffer.allocate(OUTPUT_BUFFER_BYTES);
+        boolean closeAfterFlush;
+        long messages;
+    }
+
+    /**
+     * Single-threaded selector loop serving a share of the connections
+     */
+    private final class EventLoop {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        // Per-loop decoding and normalization buffers, reused for every line
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharBuffer chars = CharBuffer.allocate(MAX_LINE_BYTES);
+        final MessageNormalizer normalizer = new MessageNormalizer();
+        final StringBuilder reply = new StringBuilder(256);
+
+        EventLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this::run, name);
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerPending();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush(key);
+                            }
+                        } catch (IOException e) {
+                            closeSession(key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Event loop failed: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeSession(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // shutting down anyway
+                }
+            }
+        }
+
+        private void registerPending() throws IOException {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                channel.register(selector, SelectionKey.OP_READ, new Session());
+                openSessions.incrementAndGet();
+                totalSessions.incrementAndGet();
+            }
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            Session session = (Session) key.attachment();
+            if (channel.read(session.in) < 0) {
+                closeSession(key);
+                return;
+            }
+
+            // Answer every complete line; keep a trailing partial line for the next read
+            ByteBuffer in = session.in;
+            in.flip();
+            int lineStart = in.position();
+            for (int i = lineStart; i < in.limit() && !session.closeAfterFlush; i++) {
+                if (in.get(i) == '\n') {
+                    handleLine(session, in, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            in.position(lineStart);
+            in.compact();
+
+            if (!in.hasRemaining() && !session.closeAfterFlush) {
+                append(session, LINE_TOO_LONG);
+                session.closeAfterFlush = true;
+            }
+            flush(key);
+        }
+
+        private void handleLine(Session session, ByteBuffer in, int start, int end) {
+            if (end > start && in.get(end - 1) == '\r') {
+                end--;
+            }
+            int limit = in.limit();
+            in.limit(end).position(start);
+            chars.clear();
+            decoder.reset();
+            decoder.decode(in, chars, true);
+            chars.flip();
+            in.limit(limit);
+
+            CharSequence message = normalizer.normalize(chars);
+            if (message.length() == 0) {
+                return;
+            }
+
+            totalMessages.incrementAndGet();
+            String response = rules.get().respond(message, ThreadLocalRandom.current(), ++session.messages, reply);
+            append(session, (response + "\n").getBytes(StandardCharsets.UTF_8));
+
+            if (SimpleChatbot.isFarewell(message)) {
+                session.closeAfterFlush = true;
+            }
+        }
+
+        private void append(Session session, byte[] bytes) {
+            if (session.out.remaining() < bytes.length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(session.out.capacity() * 2,
+                    session.out.position() + bytes.length));
+                session.out.flip();
+                larger.put(session.out);
+                session.out = larger;
+            }
+            session.out.put(bytes);
+        }
+
+        private void flush(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            Session session = (Session) key.attachment();
+            session.out.flip();
+            channel.write(session.out);
+            boolean drained = !session.out.hasRemaining();
+            session.out.compact();
+
+            if (drained) {
+                if (session.closeAfterFlush) {
+                    closeSession(key);
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else {
+                // Socket buffer is full; stop reading until the client catches up
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void closeSession(SelectionKey key) {
+            if (key.attachment() != null) {
+                key.attach(null);
+                openSessions.decrementAndGet();
+            }
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // nothing useful to do
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.ai;
+
+import java.util.*;
+
+/**
+ * Multi-keyword matcher built on the Aho-Corasick algorithm.
+ * All rule keywords are compiled once into a single automaton, so a message is
+ * scanned in one pass no matter how many rules or keywords exist. When several
+ * rules match, the rule with the lowest index (highest priority) wins.
+ */
+public final class KeywordMatcher {
+    /** Returned by {@link #match(CharSequence)} when no keyword occurs in the text */
+    public static final int NO_MATCH = -1;
+
+    private final char[] asciiClass;     // character class for chars below 128
+    private final char[] otherChars;     // sorted non-ASCII alphabet
+    private final int otherBase;         // class of otherChars[0]
+    private final int alphabetSize;      // number of character classes, class 0 = "not in any keyword"
+    private final int[] transitions;     // dense DFA: state * alphabetSize + class -> next state
+    private final int[] bestKeyword;     // best keyword ending at each state or along its suffix chain
+    private final String[] keywords;     // keyword text by keyword id
+    private final int[] keywordRule;     // rule index by keyword id
+
+    private KeywordMatcher(char[] asciiClass, char[] otherChars, int otherBase, int alphabetSize,
+                           int[] transitions, int[] bestKeyword, String[] keywords, int[] keywordRule) {
+        this.asciiClass = asciiClass;
+        this.otherChars = otherChars;
+        this.otherBase = otherBase;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.bestKeyword = bestKeyword;
+        this.keywords = keywords;
+        this.keywordRule = keywordRule;
+    }
+
+    /**
+     * Compile a matcher from the keywords of each rule.
+     * The position of a rule in the list is its priority: index 0 beats index 1.
+     * Keywords are trimmed and lower-cased; empty keywords are ignored.
+     * Keywords are numbered in rule order, so a lower keyword id always means an equal
+     * or higher rule priority.
+     */
+    public static KeywordMatcher compile(List<? extends Collection<String>> keywordsByRule) {
+        // Build the keyword trie
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        children.add(new HashMap<>());
+        outputs.add(NO_MATCH);
+        TreeSet<Character> alphabet = new TreeSet<>();
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordRule = new ArrayList<>();
+
+        for (int rule = 0; rule < keywordsByRule.size(); rule++) {
+            for (String raw : keywordsByRule.get(rule)) {
+                String keyword = raw.trim().toLowerCase(Locale.ROOT);
+                if (keyword.isEmpty()) {
+                    continue;
+                }
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    alphabet.add(c);
+                    Integer next = children.get(state).get(c);
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new HashMap<>());
+                        outputs.add(NO_MATCH);
+                        children.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                if (outputs.get(state) == NO_MATCH) {
+                    // Duplicate keywords keep the id from the earliest rule
+                    outputs.set(state, keywords.size());
+                    keywords.add(keyword);
+                    keywordRule.add(rule);
+                }
+            }
+        }
+
+        // Compress the alphabet into dense character classes
+        char[] asciiClass = new char[128];
+        List<Character> others = new ArrayList<>();
+        int alphabetSize = 1;
+        for (char c : alphabet) {
+            if (c < 128) {
+                asciiClass[c] = (char) alphabetSize++;
+            } else {
+                others.add(c);
+            }
+        }
+        int otherBase = alphabetSize;
+        char[] otherChars = new char[others.size()];
+        for (int i = 0; i < otherChars.length; i++) {
+            otherChars[i] = others.get(i);
+        }
+        alphabetSize += otherChars.length;
+
+        // Breadth-first construction of failure links, folded directly into a full DFA
+        int states = children.size();
+        int[] transitions = new int[states * alphabetSize];
+        int[] bestKeyword = new int[states];
+        int[] failure = new int[states];
+        for (int s = 0; s < states; s++) {
+            bestKeyword[s] = outputs.get(s);
+        }
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (Map.Entry<Character, Integer> edge : children.get(0).entrySet()) {
+            transitions[classOf(edge.getKey(), asciiClass, otherChars, otherBase)] = edge.getValue();
+            queue.add(edge.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fail = failure[state];
+            if (bestKeyword[fail] != NO_MATCH
+                    && (bestKeyword[state] == NO_MATCH || bestKeyword[fail] < bestKeyword[state])) {
+                bestKeyword[state] = bestKeyword[fail];
+            }
+            // Start from the failure state's row, then override with real trie edges
+            System.arraycopy(transitions, fail * alphabetSize, transitions, state * alphabetSize, alphabetSize);
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                int cls = classOf(edge.getKey(), asciiClass, otherChars, otherBase);
+                int child = edge.getValue();
+                failure[child] = transitions[fail * alphabetSize + cls];
+                transitions[state * alphabetSize + cls] = child;
+                queue.add(child);
+            }
+        }
+        // Class 0 (characters that appear in no keyword) always leads back to the root
+        for (int s = 0; s < states; s++) {
+            transitions[s * alphabetSize] = 0;
+        }
+
+        int[] ruleByKeyword = new int[keywordRule.size()];
+        for (int i = 0; i < ruleByKeyword.length; i++) {
+            ruleByKeyword[i] = keywordRule.get(i);
+        }
+        return new KeywordMatcher(asciiClass, otherChars, otherBase, alphabetSize, transitions,
+            bestKeyword, keywords.toArray(new String[0]), ruleByKeyword);
+    }
+
+    /**
+     * Scan the text once and return the index of the highest-priority rule
+     * with a keyword occurring in it, or {@link #NO_MATCH}.
+     * Matching is case-insensitive and does not allocate.
+     */
+    public int match(CharSequence text) {
+        int keyword = matchKeyword(text);
+        return keyword == NO_MATCH ? NO_MATCH : keywordRule[keyword];
+    }
+
+    /**
+     * Scan the text once and return the id of the best keyword occurring in it, or
+     * {@link #NO_MATCH}. The best keyword belongs to the highest-priority matching rule.
+     */
+    public int matchKeyword(CharSequence text) {
+        int state = 0;
+        int best = NO_MATCH;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            state = transitions[state * alphabetSize + classOf(c, asciiClass, otherChars, otherBase)];
+            int keyword = bestKeyword[state];
+            if (keyword != NO_MATCH && (best == NO_MATCH || keyword < best)) {
+                best = keyword;
+                if (best == 0) {
+                    break; // nothing can beat the first keyword
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Rule index a keyword id belongs to
+     */
+    public int ruleOf(int keyword) {
+        return keywordRule[keyword];
+    }
+
+    /**
+     * Normalized text of a keyword id
+     */
+    public String keyword(int keyword) {
+        return keywords[keyword];
+    }
+
+    /**
+     * Number of states in the compiled automaton
+     */
+    public int stateCount() {
+        return bestKeyword.length;
+    }
+
+    private static int classOf(char c, char[] asciiClass, char[] otherChars, int otherBase) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        int idx = Arrays.binarySearch(otherChars, c);
+        return idx < 0 ? 0 : otherBase + idx;
+    }
+}
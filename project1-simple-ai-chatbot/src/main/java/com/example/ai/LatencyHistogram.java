@@ -0,0 +1,106 @@
+package com.example.ai;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of durations in nanoseconds with a fixed relative precision,
+ * in the style of HdrHistogram.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} ns are counted exactly. Above that, every power of
+ * two is split into {@value #SUB_BUCKETS} equal buckets, so a value is known to within
+ * 1/{@value #SUB_BUCKETS} (under 1%) of itself however large it is. Recording is one
+ * atomic increment in a fixed array plus an update of the maximum; nothing is allocated
+ * and no lock is taken, so many threads can record at once. Values beyond about 18
+ * minutes are counted in the last bucket.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_TRACKABLE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Count one duration
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_TRACKABLE)));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Number of durations recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Longest duration recorded, exactly
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Durations at the given percentiles (0 to 100), each the upper edge of its bucket
+     * so it is never understated. All values come from one pass over the counts, so they
+     * are consistent with each other while other threads keep recording.
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long[] values = new long[percentiles.length];
+        if (total == 0) {
+            return values;
+        }
+        long highest = max.get();
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(percentiles[p] / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    values[p] = Math.min(highestValueIn(i), highest);
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValueIn(int index) {
+        int group = index / SUB_BUCKETS;
+        long bucket = index % SUB_BUCKETS;
+        if (group == 0) {
+            return bucket;
+        }
+        int shift = group - 1;
+        return ((bucket + SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.ai;
+
+import java.util.Arrays;
+
+/**
+ * Normalizes user messages into a reusable character buffer.
+ * Normalizing lower-cases the text, trims it and collapses runs of whitespace into a
+ * single space, while recording where each word starts and ends. The normalizer itself
+ * is the resulting {@link CharSequence}, so once its buffers have grown to fit the
+ * longest message seen, normalizing and matching a message allocates nothing.
+ * <p>
+ * An instance is not thread-safe; use one per thread or per event loop. The normalized
+ * text is only valid until the next call to {@link #normalize(CharSequence)}.
+ */
+public final class MessageNormalizer implements CharSequence {
+    private char[] chars = new char[256];
+    private int length;
+    private int[] tokenStarts = new int[32];
+    private int[] tokenEnds = new int[32];
+    private int tokenCount;
+
+    /**
+     * Normalize a raw message, replacing the previous contents of this normalizer
+     */
+    public MessageNormalizer normalize(CharSequence raw) {
+        int n = raw.length();
+        if (chars.length < n) {
+            chars = new char[Math.max(n, chars.length * 2)];
+        }
+        length = 0;
+        tokenCount = 0;
+
+        boolean inToken = false;
+        for (int i = 0; i < n; i++) {
+            char c = raw.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    endToken();
+                    inToken = false;
+                }
+                continue;
+            }
+            if (!inToken) {
+                if (length > 0) {
+                    chars[length++] = ' ';
+                }
+                startToken();
+                inToken = true;
+            }
+            chars[length++] = Character.toLowerCase(c);
+        }
+        if (inToken) {
+            endToken();
+        }
+        return this;
+    }
+
+    private void startToken() {
+        if (tokenCount == tokenStarts.length) {
+            tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+            tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+        }
+        tokenStarts[tokenCount] = length;
+    }
+
+    private void endToken() {
+        tokenEnds[tokenCount++] = length;
+    }
+
+    /**
+     * Number of words in the normalized message
+     */
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Offset of the first character of a word
+     */
+    public int tokenStart(int token) {
+        return tokenStarts[token];
+    }
+
+    /**
+     * Offset just past the last character of a word
+     */
+    public int tokenEnd(int token) {
+        return tokenEnds[token];
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ai;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one timed stage of finding a response, committed when the stage ends;
+ * its length is in {@code stageDuration}.
+ * Only recorded while a flight recording with this event enabled is running, for example
+ * {@code -XX:StartFlightRecording:filename=chatbot.jfr}; otherwise committing does nothing.
+ */
+@Name("com.example.ai.chatbot.ResponseStage")
+@Label("Response Stage")
+@Category({"Simple AI Chatbot", "Responses"})
+@Description("Time spent in one stage of finding a chatbot response")
+@StackTrace(false)
+final class ResponseStageEvent extends jdk.jfr.Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Stage Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long stageDuration;
+}
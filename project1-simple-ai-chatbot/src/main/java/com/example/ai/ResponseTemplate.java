@@ -0,0 +1,180 @@
+package com.example.ai;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A response with placeholders that are filled in when the reply is sent.
+ * Supported placeholders:
+ * <ul>
+ *   <li>{time} - the current time, e.g. 14:05:09</li>
+ *   <li>{date} - the current date, e.g. Monday, November 7, 2025</li>
+ *   <li>{keyword} - the keyword that matched the user's message</li>
+ *   <li>{count} - how many messages the user has sent in this session</li>
+ * </ul>
+ * Use {{ for a literal brace. Templates are parsed once when the rules are compiled;
+ * a template without placeholders is returned as is, and the others are rendered into
+ * a caller-supplied builder. The formatted time and date are cached per second, so
+ * replies do not create formatters or date objects.
+ */
+public final class ResponseTemplate {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss", Locale.ENGLISH);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy", Locale.ENGLISH);
+
+    private static final int TEXT = 0;
+    private static final int TIME = 1;
+    private static final int DATE = 2;
+    private static final int KEYWORD = 3;
+    private static final int COUNT = 4;
+
+    private static volatile ClockText clock = new ClockText(Long.MIN_VALUE, "", "");
+
+    private final String source;
+    private final int[] kinds;       // part kinds, in order
+    private final String[] texts;    // literal text for TEXT parts
+
+    private ResponseTemplate(String source, int[] kinds, String[] texts) {
+        this.source = source;
+        this.kinds = kinds;
+        this.texts = texts;
+    }
+
+    /**
+     * Parse a template; unknown placeholders are rejected
+     */
+    public static ResponseTemplate compile(String source) {
+        List<Integer> kinds = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c != '{') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+                continue;
+            }
+            int close = source.indexOf('}', i);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in response: " + source);
+            }
+            int kind = placeholder(source.substring(i + 1, close), source);
+            if (literal.length() > 0) {
+                kinds.add(TEXT);
+                texts.add(literal.toString());
+                literal.setLength(0);
+            }
+            kinds.add(kind);
+            texts.add(null);
+            i = close + 1;
+        }
+        if (literal.length() > 0 || kinds.isEmpty()) {
+            kinds.add(TEXT);
+            texts.add(literal.toString());
+        }
+
+        int[] kindArray = new int[kinds.size()];
+        for (int k = 0; k < kindArray.length; k++) {
+            kindArray[k] = kinds.get(k);
+        }
+        return new ResponseTemplate(source, kindArray, texts.toArray(new String[0]));
+    }
+
+    private static int placeholder(String name, String source) {
+        switch (name) {
+            case "time":
+                return TIME;
+            case "date":
+                return DATE;
+            case "keyword":
+                return KEYWORD;
+            case "count":
+                return COUNT;
+            default:
+                throw new IllegalArgumentException("Unknown placeholder {" + name + "} in response: " + source);
+        }
+    }
+
+    /**
+     * Whether the template is plain text without placeholders
+     */
+    public boolean isLiteral() {
+        return kinds.length == 1 && kinds[0] == TEXT;
+    }
+
+    /**
+     * Render the reply. Literal templates are returned without touching the builder;
+     * otherwise the builder is cleared and reused, or created when it is null.
+     */
+    public String render(StringBuilder out, String keyword, long messageCount) {
+        if (isLiteral()) {
+            return texts[0];
+        }
+        StringBuilder sb = out != null ? out : new StringBuilder(source.length() + 32);
+        sb.setLength(0);
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case TEXT:
+                    sb.append(texts[i]);
+                    break;
+                case TIME:
+                    sb.append(clockText().time);
+                    break;
+                case DATE:
+                    sb.append(clockText().date);
+                    break;
+                case KEYWORD:
+                    sb.append(keyword != null ? keyword : "");
+                    break;
+                case COUNT:
+                    sb.append(messageCount);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown template part " + kinds[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Time and date text for the current second, formatted at most once per second
+     */
+    private static ClockText clockText() {
+        long second = System.currentTimeMillis() / 1000;
+        ClockText current = clock;
+        if (current.second != second) {
+            ZonedDateTime now = ZonedDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+            current = new ClockText(second, TIME_FORMAT.format(now), DATE_FORMAT.format(now));
+            clock = current;
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static final class ClockText {
+        final long second;
+        final String time;
+        final String date;
+
+        ClockText(long second, String time, String date) {
+            this.second = second;
+            this.time = time;
+            this.date = date;
+        }
+    }
+}
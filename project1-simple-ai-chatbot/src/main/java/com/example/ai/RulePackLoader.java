@@ -0,0 +1,89 @@
+package com.example.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Loads rule packs from plain text files.
+ * A rule pack lists patterns in square brackets, each followed by one response per line:
+ * <pre>
+ * # Greetings
+ * [hello|hi|hey]
+ * Hello! How can I help you today?
+ * Hi there!
+ *
+ * [default]
+ * I'm not sure I understand.
+ * </pre>
+ * Blank lines and lines starting with # are ignored. Patterns keep the order of the file.
+ */
+public final class RulePackLoader {
+
+    private RulePackLoader() {
+    }
+
+    /**
+     * Load and compile a rule pack file
+     */
+    public static RuleSet load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return RuleSet.compile(parse(reader));
+        }
+    }
+
+    /**
+     * Parse a rule pack into an ordered map of patterns to responses
+     */
+    public static Map<String, String[]> parse(Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader
+            ? (BufferedReader) source
+            : new BufferedReader(source);
+        Map<String, String[]> knowledgeBase = new LinkedHashMap<>();
+        String pattern = null;
+        List<String> responses = new ArrayList<>();
+        int lineNumber = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                addRule(knowledgeBase, pattern, responses, lineNumber);
+                pattern = trimmed.substring(1, trimmed.length() - 1).trim();
+                if (pattern.isEmpty()) {
+                    throw new IllegalArgumentException("Empty pattern at line " + lineNumber);
+                }
+                if (knowledgeBase.containsKey(pattern)) {
+                    throw new IllegalArgumentException("Duplicate pattern [" + pattern + "] at line " + lineNumber);
+                }
+                responses = new ArrayList<>();
+            } else if (pattern == null) {
+                throw new IllegalArgumentException("Response before any pattern at line " + lineNumber);
+            } else {
+                responses.add(trimmed);
+            }
+        }
+        addRule(knowledgeBase, pattern, responses, lineNumber);
+        return knowledgeBase;
+    }
+
+    private static void addRule(Map<String, String[]> knowledgeBase, String pattern,
+                                List<String> responses, int lineNumber) {
+        if (pattern == null) {
+            return;
+        }
+        if (responses.isEmpty()) {
+            throw new IllegalArgumentException("Pattern [" + pattern + "] has no responses (before line " + lineNumber + ")");
+        }
+        knowledgeBase.put(pattern, responses.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.ai;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Watches a rule pack file and publishes a freshly compiled snapshot whenever it changes.
+ * Snapshots are rebuilt off to the side and swapped in through a single atomic reference,
+ * so lookups that are already running keep using the snapshot they started with.
+ * A file that fails to parse is reported and the current snapshot stays in place.
+ */
+public class RulePackWatcher implements Closeable {
+    // Editors often write a file in several steps; wait for them to settle
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Path file;
+    private final AtomicReference<RuleSet> target;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public RulePackWatcher(Path file, AtomicReference<RuleSet> target) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.target = target;
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "rule-pack-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start watching for changes in the background
+     */
+    public void start() {
+        thread.start();
+    }
+
+    private void watch() {
+        Path fileName = file.getFileName();
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (fileName.equals(event.context())) {
+                    changed = true;
+                }
+            }
+            key.reset();
+
+            if (changed) {
+                try {
+                    Thread.sleep(SETTLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                reload();
+            }
+        }
+    }
+
+    /**
+     * Rebuild the snapshot from the file and publish it
+     */
+    public void reload() {
+        try {
+            RuleSet rules = RulePackLoader.load(file);
+            target.set(rules);
+            System.err.println("[rules] Reloaded " + rules.size() + " patterns from " + file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[rules] Keeping previous rules, failed to load " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        watchService.close();
+        thread.interrupt();
+    }
+}
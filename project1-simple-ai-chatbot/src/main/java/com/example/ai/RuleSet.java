@@ -0,0 +1,129 @@
+package com.example.ai;
+
+import java.util.*;
+
+/**
+ * Immutable, pre-indexed snapshot of the chatbot's rules.
+ * A snapshot is never modified after it is compiled, so it can be shared freely
+ * between threads and swapped out as a whole when the rules change.
+ */
+public final class RuleSet {
+    public static final String DEFAULT_PATTERN = "default";
+
+    private static final ResponseTemplate[] FALLBACK_RESPONSES = {
+        ResponseTemplate.compile("I'm not sure I understand. Could you rephrase that?")
+    };
+
+    private final List<String> patterns;
+    private final ResponseTemplate[][] responses;
+    private final ResponseTemplate[] defaultResponses;
+    private final KeywordMatcher matcher;
+
+    private RuleSet(List<String> patterns, ResponseTemplate[][] responses, ResponseTemplate[] defaultResponses,
+                    KeywordMatcher matcher) {
+        this.patterns = patterns;
+        this.responses = responses;
+        this.defaultResponses = defaultResponses;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Compile an ordered map of patterns to responses into a snapshot.
+     * Iteration order of the map is rule priority; the "default" pattern holds the
+     * fallback responses and is not matched as a keyword. Responses are parsed as
+     * {@link ResponseTemplate}s.
+     */
+    public static RuleSet compile(Map<String, String[]> knowledgeBase) {
+        List<String> patterns = new ArrayList<>();
+        List<List<String>> keywordsByRule = new ArrayList<>();
+        List<ResponseTemplate[]> responses = new ArrayList<>();
+        ResponseTemplate[] defaultResponses = FALLBACK_RESPONSES;
+
+        for (Map.Entry<String, String[]> entry : knowledgeBase.entrySet()) {
+            String[] candidates = entry.getValue();
+            if (candidates == null || candidates.length == 0) {
+                throw new IllegalArgumentException("Pattern has no responses: " + entry.getKey());
+            }
+            if (DEFAULT_PATTERN.equals(entry.getKey())) {
+                defaultResponses = compileTemplates(candidates);
+                continue;
+            }
+            patterns.add(entry.getKey());
+            keywordsByRule.add(Arrays.asList(entry.getKey().split("\\|")));
+            responses.add(compileTemplates(candidates));
+        }
+
+        return new RuleSet(
+            Collections.unmodifiableList(patterns),
+            responses.toArray(new ResponseTemplate[0][]),
+            defaultResponses,
+            KeywordMatcher.compile(keywordsByRule)
+        );
+    }
+
+    private static ResponseTemplate[] compileTemplates(String[] sources) {
+        ResponseTemplate[] templates = new ResponseTemplate[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            templates[i] = ResponseTemplate.compile(sources[i]);
+        }
+        return templates;
+    }
+
+    /**
+     * Index of the highest-priority rule matching the input, or {@link KeywordMatcher#NO_MATCH}
+     */
+    public int match(CharSequence input) {
+        return matcher.match(input);
+    }
+
+    /**
+     * Pick a random response for the input, falling back to the default responses
+     */
+    public String respond(CharSequence input, Random random) {
+        return respond(input, random, 0, null);
+    }
+
+    /**
+     * Pick a random response for the input and render it.
+     * Templates with placeholders are rendered into the given builder, which is reused
+     * across calls by the caller; plain responses are returned without rendering.
+     */
+    public String respond(CharSequence input, Random random, long messageCount, StringBuilder out) {
+        return render(matchKeyword(input), random, messageCount, out);
+    }
+
+    /**
+     * Index of the highest-priority keyword in the input, or {@link KeywordMatcher#NO_MATCH};
+     * the first half of {@link #respond(CharSequence, Random, long, StringBuilder)}
+     */
+    public int matchKeyword(CharSequence input) {
+        return matcher.matchKeyword(input);
+    }
+
+    /**
+     * Pick a random response of the rule owning the keyword, or a default response for
+     * {@link KeywordMatcher#NO_MATCH}, and render it; the second half of
+     * {@link #respond(CharSequence, Random, long, StringBuilder)}
+     */
+    public String render(int keyword, Random random, long messageCount, StringBuilder out) {
+        if (keyword == KeywordMatcher.NO_MATCH) {
+            return defaultResponses[random.nextInt(defaultResponses.length)].render(out, null, messageCount);
+        }
+        ResponseTemplate[] candidates = responses[matcher.ruleOf(keyword)];
+        return candidates[random.nextInt(candidates.length)].render(out, matcher.keyword(keyword), messageCount);
+    }
+
+    /**
+     * Pattern of the rule at the given index
+     */
+    public String pattern(int rule) {
+        return patterns.get(rule);
+    }
+
+    /**
+     * Number of rules, not counting the default responses
+     */
+    public int size() {
+        return patterns.size();
+    }
+}
@@ -1,27 +1,72 @@
 package com.example.ai;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A simple rule-based AI chatbot demonstrating basic AI logic.
  * This chatbot uses pattern matching and predefined responses to simulate conversation.
  */
 public class SimpleChatbot {
-    private final Map<String, String[]> knowledgeBase;
+    // Farewell words end the conversation; compiled once instead of a regex per message
+    private static final KeywordMatcher FAREWELL_WORDS =
+        KeywordMatcher.compile(List.of(List.of("exit", "quit", "bye", "goodbye")));
+
+    // Current compiled rules; replaced as a whole when a rule pack is reloaded
+    private final AtomicReference<RuleSet> rules;
     private final Random random;
     private final Scanner scanner;
+    private final MessageNormalizer normalizer = new MessageNormalizer();
+    private final StringBuilder replyBuffer = new StringBuilder(256);
+    private final StageTimer<ResponseStage> responseTimer = new StageTimer<>("Response Latency", ResponseStage.class);
+    private long messageCount;
+    private RulePackWatcher watcher;
 
+    /**
+     * Timed stages of {@link #findResponse(CharSequence)}
+     */
+    public enum ResponseStage {
+        MATCH, RENDER, TOTAL
+    }
+
+    /**
+     * Create a chatbot using the built-in rules
+     */
     public SimpleChatbot() {
-        this.knowledgeBase = new HashMap<>();
+        this(RuleSet.compile(initializeKnowledgeBase()));
+    }
+
+    /**
+     * Create a chatbot using an already compiled rule set
+     */
+    public SimpleChatbot(RuleSet ruleSet) {
+        this.rules = new AtomicReference<>(ruleSet);
         this.random = new Random();
         this.scanner = new Scanner(System.in);
-        initializeKnowledgeBase();
     }
 
     /**
-     * Initialize the chatbot's knowledge base with patterns and responses
+     * Create a chatbot using the rules in a rule pack file.
+     * The file is watched and edits are picked up without a restart.
      */
-    private void initializeKnowledgeBase() {
+    public SimpleChatbot(Path rulePack) throws IOException {
+        this.rules = new AtomicReference<>(RulePackLoader.load(rulePack));
+        this.random = new Random();
+        this.scanner = new Scanner(System.in);
+        this.watcher = new RulePackWatcher(rulePack, rules);
+        this.watcher.start();
+    }
+
+    /**
+     * Initialize the chatbot's knowledge base with patterns and responses.
+     * Patterns are checked in the order they are added here.
+     */
+    private static Map<String, String[]> initializeKnowledgeBase() {
+        Map<String, String[]> knowledgeBase = new LinkedHashMap<>();
+
         // Greetings
         knowledgeBase.put("hello|hi|hey|greetings", new String[]{
             "Hello! How can I help you today?",
@@ -57,8 +102,8 @@ public class SimpleChatbot {
 
         // Time queries
         knowledgeBase.put("time|date|what time", new String[]{
-            "The current time is: " + new Date(),
-            "Right now it's: " + new Date()
+            "The current time is: {time}",
+            "Right now it's {time} on {date}."
         });
 
         // Jokes
@@ -82,32 +127,39 @@ public class SimpleChatbot {
             "Hmm, I'm still learning. Can you ask something else?",
             "I see. What else would you like to talk about?"
         });
+
+        return knowledgeBase;
     }
 
     /**
-     * Find a matching pattern in the knowledge base
+     * Check whether a message asks to end the conversation
      */
-    private String findResponse(String userInput) {
-        String input = userInput.toLowerCase().trim();
-
-        // Check each pattern in the knowledge base
-        for (Map.Entry<String, String[]> entry : knowledgeBase.entrySet()) {
-            String pattern = entry.getKey();
-            String[] responses = entry.getValue();
-
-            // Split the pattern by | to check multiple keywords
-            String[] keywords = pattern.split("\\|");
-            for (String keyword : keywords) {
-                if (input.contains(keyword.trim())) {
-                    // Return a random response from the available responses
-                    return responses[random.nextInt(responses.length)];
-                }
-            }
-        }
+    public static boolean isFarewell(CharSequence message) {
+        return FAREWELL_WORDS.match(message) != KeywordMatcher.NO_MATCH;
+    }
 
-        // Return default response if no pattern matches
-        String[] defaultResponses = knowledgeBase.get("default");
-        return defaultResponses[random.nextInt(defaultResponses.length)];
+    /**
+     * Find a matching pattern in the knowledge base and render its response.
+     * Each call counts as one message of this chatbot's session.
+     */
+    public String findResponse(CharSequence userInput) {
+        // Read the snapshot once so a concurrent reload cannot change rules mid-lookup;
+        // a single pass over the input finds the highest-priority matching pattern
+        RuleSet ruleSet = rules.get();
+        long start = responseTimer.start();
+        int keyword = ruleSet.matchKeyword(userInput);
+        long matched = responseTimer.stop(ResponseStage.MATCH, start);
+        String response = ruleSet.render(keyword, random, ++messageCount, replyBuffer);
+        long rendered = responseTimer.stop(ResponseStage.RENDER, matched);
+        responseTimer.record(ResponseStage.TOTAL, rendered - start);
+        return response;
+    }
+
+    /**
+     * Messages answered so far and the latency of each response stage
+     */
+    public String getStatistics() {
+        return "Messages: " + messageCount + "\n" + responseTimer.getStatistics();
     }
 
     /**
@@ -117,6 +169,7 @@ public class SimpleChatbot {
         System.out.println("╔════════════════════════════════════════════╗");
         System.out.println("║   Welcome to Simple AI Chatbot!           ║");
         System.out.println("║   Type 'exit' or 'quit' to end chat       ║");
+        System.out.println("║   Type 'stats' to see response times      ║");
         System.out.println("╚════════════════════════════════════════════╝");
         System.out.println();
 
@@ -124,30 +177,104 @@ public class SimpleChatbot {
             System.out.print("You: ");
             String userInput = scanner.nextLine();
 
-            if (userInput == null || userInput.trim().isEmpty()) {
+            if (userInput.trim().equalsIgnoreCase("stats")) {
+                System.out.println(getStatistics());
+                System.out.println();
+                continue;
+            }
+
+            // Normalize into a reused buffer; blank messages normalize to nothing
+            CharSequence message = normalizer.normalize(userInput);
+            if (message.length() == 0) {
                 continue;
             }
 
             // Check for exit commands
-            if (userInput.toLowerCase().matches(".*(exit|quit|bye|goodbye).*")) {
-                System.out.println("Bot: " + findResponse(userInput));
+            if (isFarewell(message)) {
+                System.out.println("Bot: " + findResponse(message));
                 break;
             }
 
             // Get and display response
-            String response = findResponse(userInput);
+            String response = findResponse(message);
             System.out.println("Bot: " + response);
             System.out.println();
         }
 
         scanner.close();
+        stopWatching();
+    }
+
+    /**
+     * Serve the chatbot over TCP until the process is stopped.
+     * All sessions share this chatbot's rules, including reloads of a rule pack.
+     */
+    public void startServer(int port) throws IOException, InterruptedException {
+        int eventLoops = Runtime.getRuntime().availableProcessors();
+        ChatServer server = new ChatServer(rules::get, new InetSocketAddress(port), eventLoops);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                System.out.println(server.getStatistics());
+            } catch (IOException e) {
+                System.err.println("Failed to stop server: " + e.getMessage());
+            }
+        }));
+
+        server.start();
+        System.out.println("Chat server listening on port " + server.port() + " (" + eventLoops + " event loops)");
+        server.awaitTermination();
+        stopWatching();
     }
 
     /**
-     * Main method to run the chatbot
+     * Classify every line of a file offline and print per-pattern hit counts.
+     * The whole run uses the rules as they were when it started.
      */
-    public static void main(String[] args) {
-        SimpleChatbot chatbot = new SimpleChatbot();
-        chatbot.startChat();
+    public void classifyFile(Path input, Path output) throws IOException, InterruptedException {
+        BatchClassifier classifier = new BatchClassifier(rules.get(), Runtime.getRuntime().availableProcessors());
+        BatchClassifier.Summary summary = classifier.classify(input, output);
+        System.out.print(summary);
+        stopWatching();
+    }
+
+    private void stopWatching() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                System.err.println("Failed to stop rule pack watcher: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Main method to run the chatbot.
+     * Usage: SimpleChatbot [--rules FILE] [--server PORT | --batch INPUT OUTPUT]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path rulePack = null;
+        Integer serverPort = null;
+        Path batchInput = null;
+        Path batchOutput = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--rules".equals(args[i]) && i + 1 < args.length) {
+                rulePack = Path.of(args[++i]);
+            } else if ("--server".equals(args[i]) && i + 1 < args.length) {
+                serverPort = Integer.parseInt(args[++i]);
+            } else if ("--batch".equals(args[i]) && i + 2 < args.length) {
+                batchInput = Path.of(args[++i]);
+                batchOutput = Path.of(args[++i]);
+            }
+        }
+
+        SimpleChatbot chatbot = rulePack != null ? new SimpleChatbot(rulePack) : new SimpleChatbot();
+        if (batchInput != null) {
+            chatbot.classifyFile(batchInput, batchOutput);
+        } else if (serverPort != null) {
+            chatbot.startServer(serverPort);
+        } else {
+            chatbot.startChat();
+        }
     }
 }
@@ -0,0 +1,115 @@
+package com.example.ai;
+
+import jdk.jfr.FlightRecorder;
+
+import java.util.Locale;
+
+/**
+ * Per-stage latency histograms for a request path, one {@link LatencyHistogram} per
+ * constant of an enum of stages.
+ * <p>
+ * A stage is timed with {@link #start()} and {@link #stop(Enum, long)}; each stop also
+ * emits a {@link ResponseStageEvent} when Java Flight Recorder is recording it. Timing is
+ * turned off with {@code -Dai.latency.enabled=false}. The flag is read once into a
+ * constant, so when it is off the JIT compiler removes the timing calls altogether.
+ */
+public final class StageTimer<S extends Enum<S>> {
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("ai.latency.enabled", "true"));
+
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    private final String title;
+    private final S[] stages;
+    private final LatencyHistogram[] histograms;
+
+    /**
+     * Create a timer for every constant of the stage enum; the title heads the statistics
+     */
+    public StageTimer(String title, Class<S> stageType) {
+        this.title = title;
+        this.stages = stageType.getEnumConstants();
+        this.histograms = new LatencyHistogram[stages.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Start timing a stage; pass the result to {@link #stop(Enum, long)}
+     */
+    public long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time since {@code start} for the stage. Returns the time the stage
+     * ended, which can be passed on as the start of the next stage to save a clock read.
+     */
+    public long stop(S stage, long start) {
+        if (!ENABLED) {
+            return 0;
+        }
+        long end = System.nanoTime();
+        record(stage, end - start);
+        return end;
+    }
+
+    /**
+     * Record a duration measured by the caller for the stage
+     */
+    public void record(S stage, long nanos) {
+        if (!ENABLED) {
+            return;
+        }
+        histograms[stage.ordinal()].record(nanos);
+
+        // Loading the first event class sets up JFR, which takes a few hundred
+        // milliseconds; skip that until a recording has started
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        ResponseStageEvent event = new ResponseStageEvent();
+        if (event.isEnabled()) {
+            event.stage = name(stage);
+            event.stageDuration = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Histogram of one stage
+     */
+    public LatencyHistogram getHistogram(S stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * p50, p95, p99 and maximum of every stage that has been timed, in milliseconds
+     */
+    public String getStatistics() {
+        if (!ENABLED) {
+            return title + ": not recorded (ai.latency.enabled=false)";
+        }
+        StringBuilder out = new StringBuilder(title).append(" (ms):\n");
+        out.append(String.format("- %-14s %8s %8s %8s %8s %8s", "stage", "count", "p50", "p95", "p99", "max"));
+        for (S stage : stages) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            long[] values = histogram.getValuesAtPercentiles(PERCENTILES);
+            out.append(String.format("\n- %-14s %8d %8.3f %8.3f %8.3f %8.3f", name(stage), count,
+                millis(values[0]), millis(values[1]), millis(values[2]), millis(histogram.getMax())));
+        }
+        return out.toString();
+    }
+
+    private static String name(Enum<?> stage) {
+        return stage.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The steady-state message path, normalization, the farewell check and response lookup,
+ * allocates nothing: the same check as the benchmarks module's {@code AllocationCheck},
+ * run with the build. Bytes allocated by the test thread are read from the
+ * {@code ThreadMXBean} around a measured run, after a warm-up long enough for the JIT
+ * compiler to compile the path.
+ */
+class MessagePathAllocationTest {
+    private static final int WARMUP_MESSAGES = 500_000;
+    private static final int MEASURED_MESSAGES = 250_000;
+
+    @Test
+    void messagePathDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        RuleSet rules = rules(1000, 42);
+        SimpleChatbot chatbot = new SimpleChatbot(rules);
+        MessageNormalizer normalizer = new MessageNormalizer();
+        String[] messages = messages(rules, 1024, 256, 7);
+
+        // Let the JIT compile the path and the normalizer size its buffers
+        long sink = run(chatbot, normalizer, messages, WARMUP_MESSAGES);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        sink += run(chatbot, normalizer, messages, MEASURED_MESSAGES);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // A few bytes of slack covers the measuring call itself, never a per-message allocation
+        assertTrue(allocated <= 1024, String.format("Allocated %d bytes over %d messages (%.4f bytes/message) [%d]",
+            allocated, MEASURED_MESSAGES, allocated / (double) MEASURED_MESSAGES, sink & 1));
+    }
+
+    private static long run(SimpleChatbot chatbot, MessageNormalizer normalizer, String[] messages, int count) {
+        long sink = 0;
+        for (int i = 0; i < count; i++) {
+            CharSequence message = normalizer.normalize(messages[i & (messages.length - 1)]);
+            if (!SimpleChatbot.isFarewell(message)) {
+                sink += chatbot.findResponse(message).length();
+            }
+        }
+        return sink;
+    }
+
+    /**
+     * Rule set with the given number of patterns, three keywords each
+     */
+    private static RuleSet rules(int ruleCount, long seed) {
+        Random random = new Random(seed);
+        Map<String, String[]> knowledgeBase = new LinkedHashMap<>();
+        while (knowledgeBase.size() < ruleCount) {
+            String pattern = word(random) + "|" + word(random) + " " + word(random) + "|" + word(random);
+            knowledgeBase.put(pattern, new String[]{"Response " + knowledgeBase.size()});
+        }
+        knowledgeBase.put(RuleSet.DEFAULT_PATTERN, new String[]{"Default response"});
+        return RuleSet.compile(knowledgeBase);
+    }
+
+    /**
+     * Messages of the given length; about a quarter of them start with a rule keyword
+     */
+    private static String[] messages(RuleSet rules, int count, int length, long seed) {
+        Random random = new Random(seed);
+        String[] messages = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder(length + 16);
+            if (random.nextInt(4) == 0) {
+                String pattern = rules.pattern(random.nextInt(rules.size()));
+                sb.append(pattern, 0, pattern.indexOf('|'));
+            }
+            while (sb.length() < length) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(word(random));
+            }
+            messages[i] = sb.substring(0, length);
+        }
+        return messages;
+    }
+
+    private static String word(Random random) {
+        int length = 4 + random.nextInt(6);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
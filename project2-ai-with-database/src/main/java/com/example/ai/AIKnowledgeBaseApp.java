@@ -1,14 +1,32 @@
 package com.example.ai;
 
-import com.example.ai.model.Conversation;
+import com.example.ai.archive.ConversationArchive;
+import com.example.ai.management.ManagementBeans;
+import com.example.ai.metrics.StartupPhases;
+import com.example.ai.model.ConversationSummary;
 import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.model.KnowledgeSummary;
 import com.example.ai.repository.ConversationRepository;
+import com.example.ai.repository.IdSequences;
+import com.example.ai.repository.KnowledgeChangeListener;
+import com.example.ai.repository.ImportStats;
 import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.repository.Page;
+import com.example.ai.repository.UnitOfWork;
 import com.example.ai.service.AIService;
-import jakarta.persistence.EntityManager;
+import com.example.ai.service.ConfidenceUpdater;
+import com.example.ai.service.ConversationArchiver;
+import com.example.ai.service.ConversationWriter;
+import com.example.ai.service.DeferredAIService;
+import com.example.ai.service.SnapshotAIService;
+import com.example.ai.snapshot.KnowledgeSnapshot;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
@@ -17,29 +35,63 @@ import java.util.Scanner;
  * Demonstrates database integration with JPA and AI functionality.
  */
 public class AIKnowledgeBaseApp {
+    // Rows shown at a time in the knowledge base and conversation listings
+    private static final int PAGE_SIZE = 20;
+
     private static EntityManagerFactory emf;
-    private static EntityManager em;
+    private static UnitOfWork unitOfWork;
+    private static ConversationWriter conversationWriter;
+    private static ConfidenceUpdater confidenceUpdater;
+    private static ConversationArchive conversationArchive;
+    private static ConversationArchiver conversationArchiver;
+    private static ManagementBeans managementBeans;
     private static AIService aiService;
+    private static SnapshotAIService snapshotService;
+    private static DeferredAIService deferredService;
+    private static final StartupPhases startupPhases = new StartupPhases();
+    private static volatile boolean knowledgeChanged;
     private static Scanner scanner;
 
     public static void main(String[] args) {
         try {
-            // Initialize JPA
-            initializeJPA();
-            
-            // Initialize repositories
-            KnowledgeRepository knowledgeRepo = new KnowledgeRepository(em);
-            ConversationRepository conversationRepo = new ConversationRepository(em);
-            
-            // Initialize AI Service
-            aiService = new AIService(knowledgeRepo, conversationRepo);
+            // With a snapshot file, answer from it alone without touching the database
+            snapshotService = SnapshotAIService.fromSystemProperties();
+            if (snapshotService != null) {
+                System.out.printf("Serving %,d entries read-only from %s, ready %d ms after JVM start%n%n",
+                    snapshotService.getSnapshot().size(), System.getProperty("ai.snapshot.file"),
+                    StartupPhases.sinceJvmStart());
+                scanner = new Scanner(System.in);
+                showWelcomeMessage();
+                runReadOnlyMenu();
+                return;
+            }
             
-            // Initialize sample knowledge
-            aiService.initializeSampleKnowledge();
+            // Chat is available right away, answered from the snapshot written by the last
+            // run while the database starts in the background
+            long start = startupPhases.start();
+            KnowledgeSnapshot startupView = openStartupSnapshot();
+            startupPhases.stop("knowledge snapshot", start);
+            deferredService = new DeferredAIService(startupView, AIKnowledgeBaseApp::startDatabase, startupPhases);
+            deferredService.whenReady().whenComplete((service, failure) -> {
+                if (failure != null) {
+                    System.out.println("\n✗ Database failed to start: " + failure.getMessage());
+                } else {
+                    System.out.printf("%n[Database ready %,d ms after JVM start: %s]%n",
+                        StartupPhases.sinceJvmStart(), startupPhases);
+                    if (managementBeans != null) {
+                        System.out.println("[JMX management beans registered under " + ManagementBeans.DOMAIN + "]");
+                    }
+                }
+            });
             
             // Start the application
             scanner = new Scanner(System.in);
             showWelcomeMessage();
+            System.out.printf("Chat ready %,d ms after JVM start, %s%n", StartupPhases.sinceJvmStart(),
+                startupView != null
+                    ? String.format("answering from %,d entries in %s while the database starts",
+                        startupView.size(), startupSnapshotFile())
+                    : "queries wait for the database to start");
             runMainMenu();
             
         } catch (Exception e) {
@@ -50,11 +102,134 @@ public class AIKnowledgeBaseApp {
         }
     }
 
+    /**
+     * Bootstrap JPA and build the AI service; runs on the background thread of the
+     * deferred service, timing each step
+     */
+    private static AIService startDatabase() {
+        long start = startupPhases.start();
+        initializeJPA();
+        start = startupPhases.stop("jpa bootstrap", start);
+        
+        // Initialize repositories; each call gets its own EntityManager from the unit of work
+        KnowledgeRepository knowledgeRepo = new KnowledgeRepository(unitOfWork);
+        ConversationRepository conversationRepo = new ConversationRepository(unitOfWork, conversationArchive);
+        IdSequences.alignWithTable(unitOfWork, "conversations_seq", "conversations", conversationArchive.getMaxId());
+        IdSequences.alignWithTable(unitOfWork, "knowledge_entries_seq", "knowledge_entries");
+        start = startupPhases.stop("id sequences", start);
+        
+        // Conversations are logged in the background
+        conversationWriter = ConversationWriter.fromSystemProperties(conversationRepo);
+        
+        // Confidence increments are collected in memory and written in periodic batches
+        confidenceUpdater = ConfidenceUpdater.fromSystemProperties(knowledgeRepo);
+        
+        // Conversations past the retention age move from the table to the archive
+        conversationArchiver = ConversationArchiver.fromSystemProperties(conversationRepo, conversationArchive);
+        
+        // Initialize AI Service
+        AIService service = new AIService(unitOfWork, knowledgeRepo, conversationRepo,
+            AIService.Options.fromSystemProperties()
+                .conversationWriter(conversationWriter)
+                .confidenceUpdater(confidenceUpdater)
+                .conversationArchiver(conversationArchiver));
+        start = startupPhases.stop("search index", start);
+        
+        // Opt-in JMX beans for diagnosing a running application
+        managementBeans = ManagementBeans.fromSystemProperties(emf, service, conversationWriter,
+            confidenceUpdater);
+        
+        // Initialize sample knowledge
+        service.initializeSampleKnowledge();
+        startupPhases.stop("sample knowledge", start);
+        
+        // Entries saved or deleted from here on make the startup snapshot stale
+        knowledgeRepo.addChangeListener(new KnowledgeChangeListener() {
+            @Override
+            public void onSaved(KnowledgeEntry entry) {
+                knowledgeChanged = true;
+            }
+
+            @Override
+            public void onDeleted(Long id) {
+                knowledgeChanged = true;
+            }
+        });
+        aiService = service;
+        return service;
+    }
+
     private static void initializeJPA() {
-        System.out.println("Initializing database connection...");
         emf = Persistence.createEntityManagerFactory("AIKnowledgeBasePU");
-        em = emf.createEntityManager();
-        System.out.println("Database connection established!\n");
+        unitOfWork = new UnitOfWork(emf);
+        conversationArchive = ConversationArchive.open(
+            Paths.get(System.getProperty("ai.archive.dir", "ai_conversation_archive")));
+    }
+
+    /**
+     * Snapshot file named by ai.startup.snapshot, or null if startup snapshots are off
+     */
+    private static Path startupSnapshotFile() {
+        String file = System.getProperty("ai.startup.snapshot", "ai_knowledge.snapshot");
+        return file.isBlank() ? null : Paths.get(file);
+    }
+
+    /**
+     * Map the snapshot written at the end of the last run, or null if there is none
+     */
+    private static KnowledgeSnapshot openStartupSnapshot() {
+        Path file = startupSnapshotFile();
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return KnowledgeSnapshot.open(file);
+        } catch (IOException e) {
+            System.err.println("Ignoring knowledge snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Keep the startup snapshot current for the next run: rewrite it if entries were
+     * saved or deleted during this one, or if there is none yet
+     */
+    private static void refreshStartupSnapshot() {
+        Path file = startupSnapshotFile();
+        if (file == null || !knowledgeChanged && Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int entries = aiService.exportSnapshot(file);
+            System.out.printf("Knowledge snapshot for the next start written: %,d entries in %d ms%n", entries,
+                (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to write knowledge snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait for the database before an operation that needs it; false if it failed to start
+     */
+    private static boolean awaitDatabase() {
+        if (!deferredService.whenReady().isDone()) {
+            System.out.println("\nWaiting for the database to start...");
+        }
+        try {
+            deferredService.awaitReady();
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("✗ " + describeFailure(e));
+            return false;
+        }
+    }
+
+    /**
+     * Message of a failed operation, followed by that of its cause if it has one
+     */
+    private static String describeFailure(RuntimeException e) {
+        return e.getCause() != null ? e.getMessage() + ": " + e.getCause().getMessage() : e.getMessage();
     }
 
     private static void showWelcomeMessage() {
@@ -77,21 +252,37 @@ public class AIKnowledgeBaseApp {
                     chatWithAI();
                     break;
                 case "2":
-                    viewKnowledgeBase();
+                    if (awaitDatabase()) {
+                        viewKnowledgeBase();
+                    }
                     break;
                 case "3":
                     addKnowledge();
                     break;
                 case "4":
-                    viewConversationHistory();
+                    if (awaitDatabase()) {
+                        viewConversationHistory();
+                    }
                     break;
                 case "5":
                     viewStatistics();
                     break;
                 case "6":
-                    demonstrateCRUD();
+                    if (awaitDatabase()) {
+                        demonstrateCRUD();
+                    }
                     break;
                 case "7":
+                    if (awaitDatabase()) {
+                        importKnowledge();
+                    }
+                    break;
+                case "8":
+                    if (awaitDatabase()) {
+                        exportSnapshot();
+                    }
+                    break;
+                case "9":
                     running = false;
                     System.out.println("\nThank you for using the AI Knowledge Base Application!");
                     break;
@@ -109,9 +300,41 @@ public class AIKnowledgeBaseApp {
         System.out.println("4. View Conversation History");
         System.out.println("5. View Statistics");
         System.out.println("6. Demonstrate CRUD Operations");
-        System.out.println("7. Exit");
+        System.out.println("7. Import Knowledge from File");
+        System.out.println("8. Export Knowledge Snapshot");
+        System.out.println("9. Exit");
         System.out.println("═════════════════════════════════════════");
-        System.out.print("Enter your choice (1-7): ");
+        System.out.print("Enter your choice (1-9): ");
+    }
+
+    private static void runReadOnlyMenu() {
+        boolean running = true;
+        
+        while (running) {
+            System.out.println("\n═══════════ Main Menu (read-only) ═══════════");
+            System.out.println("1. Chat with AI");
+            System.out.println("2. View Statistics");
+            System.out.println("3. Exit");
+            System.out.println("═════════════════════════════════════════════");
+            System.out.print("Enter your choice (1-3): ");
+            String choice = scanner.nextLine().trim();
+            
+            switch (choice) {
+                case "1":
+                    chatWithAI();
+                    break;
+                case "2":
+                    System.out.println("\n═══════════════ System Statistics ═══════════════");
+                    System.out.println(snapshotService.getStatistics());
+                    break;
+                case "3":
+                    running = false;
+                    System.out.println("\nThank you for using the AI Knowledge Base Application!");
+                    break;
+                default:
+                    System.out.println("Invalid choice. Please try again.\n");
+            }
+        }
     }
 
     private static void chatWithAI() {
@@ -132,19 +355,29 @@ public class AIKnowledgeBaseApp {
                 continue;
             }
             
-            String response = aiService.processQuery(query);
+            String response;
+            try {
+                response = snapshotService != null
+                    ? snapshotService.processQuery(query)
+                    : deferredService.processQuery(query);
+            } catch (RuntimeException e) {
+                // Without a snapshot, queries need the database
+                System.out.println("✗ " + describeFailure(e) + "\n");
+                break;
+            }
             System.out.println("AI: " + response + "\n");
         }
     }
 
     private static void viewKnowledgeBase() {
         System.out.println("\n═══════════════ Knowledge Base ═══════════════");
-        List<KnowledgeEntry> entries = aiService.getAllKnowledge();
+        Page<KnowledgeSummary> page = aiService.getKnowledgePage(null, PAGE_SIZE);
         
-        if (entries.isEmpty()) {
+        if (page.isEmpty()) {
             System.out.println("No knowledge entries found.");
-        } else {
-            for (KnowledgeEntry entry : entries) {
+        }
+        while (!page.isEmpty()) {
+            for (KnowledgeSummary entry : page.getItems()) {
                 System.out.println("\nID: " + entry.getId());
                 System.out.println("Category: " + entry.getCategory());
                 System.out.println("Question: " + entry.getQuestion());
@@ -152,9 +385,21 @@ public class AIKnowledgeBaseApp {
                 System.out.println("Confidence: " + String.format("%.2f", entry.getConfidenceScore()));
                 System.out.println("─────────────────────────────────────────────");
             }
+            if (!page.hasNext() || !askForNextPage()) {
+                break;
+            }
+            page = aiService.getKnowledgePage(page.getLast(), PAGE_SIZE);
         }
         
-        System.out.println("\nTotal entries: " + entries.size());
+        System.out.println("\nTotal entries: " + aiService.getKnowledgeCount());
+    }
+
+    /**
+     * Ask whether to show the next page of a listing
+     */
+    private static boolean askForNextPage() {
+        System.out.print("\nPress Enter for more, or q to return: ");
+        return !scanner.nextLine().trim().equalsIgnoreCase("q");
     }
 
     private static void addKnowledge() {
@@ -183,18 +428,84 @@ public class AIKnowledgeBaseApp {
             category = "General";
         }
         
-        KnowledgeEntry entry = aiService.addKnowledge(question, answer, category);
-        System.out.println("\n✓ Knowledge added successfully! (ID: " + entry.getId() + ")");
+        KnowledgeEntry entry;
+        try {
+            entry = deferredService.addKnowledge(question, answer, category);
+        } catch (RuntimeException e) {
+            System.out.println("\n✗ " + describeFailure(e));
+            return;
+        }
+        if (entry.getId() != null) {
+            System.out.println("\n✓ Knowledge added successfully! (ID: " + entry.getId() + ")");
+        } else {
+            System.out.println("\n✓ Knowledge accepted; it is saved as soon as the database has started");
+        }
+    }
+
+    private static void importKnowledge() {
+        System.out.println("\n═══════════════ Import Knowledge ═══════════════");
+        System.out.println("CSV files need a header row with question and answer columns");
+        System.out.println("(category and confidence are optional); .jsonl files hold one");
+        System.out.println("JSON object per line with the same keys.");
+        System.out.print("Enter file path: ");
+        String fileName = scanner.nextLine().trim();
+
+        if (fileName.isEmpty()) {
+            System.out.println("File path cannot be empty.");
+            return;
+        }
+
+        Path file = Paths.get(fileName);
+        if (!Files.isRegularFile(file)) {
+            System.out.println("File not found: " + file);
+            return;
+        }
+
+        try {
+            ImportStats stats = aiService.importKnowledge(file, progress -> {
+                if (progress.getRows() % 100_000 == 0) {
+                    System.out.println("   ... " + progress);
+                }
+            });
+            System.out.println("\n✓ Imported " + stats);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("\n✗ Import failed: " + e.getMessage());
+            if (e.getCause() != null) {
+                System.out.println("   Cause: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    private static void exportSnapshot() {
+        System.out.println("\n═══════════════ Export Knowledge Snapshot ═══════════════");
+        System.out.println("Writes all knowledge entries and the search index to one file;");
+        System.out.println("start with -Dai.snapshot.file=<file> to answer from it read-only.");
+        System.out.print("Enter file path [ai_knowledge.snapshot]: ");
+        String fileName = scanner.nextLine().trim();
+        Path file = Paths.get(fileName.isEmpty() ? "ai_knowledge.snapshot" : fileName);
+
+        try {
+            long start = System.nanoTime();
+            int entries = aiService.exportSnapshot(file);
+            System.out.printf("%n✓ Exported %,d entries to %s (%.1f KB) in %d ms%n", entries, file,
+                Files.size(file) / 1024.0, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("\n✗ Export failed: " + e.getMessage());
+            if (e.getCause() != null) {
+                System.out.println("   Cause: " + e.getCause().getMessage());
+            }
+        }
     }
 
     private static void viewConversationHistory() {
         System.out.println("\n═══════════════ All Conversations ═══════════════");
-        List<Conversation> conversations = aiService.getAllConversations();
+        Page<ConversationSummary> page = aiService.getConversationPage(null, PAGE_SIZE);
         
-        if (conversations.isEmpty()) {
+        if (page.isEmpty()) {
             System.out.println("No conversations found.");
-        } else {
-            for (Conversation conv : conversations) {
+        }
+        while (!page.isEmpty()) {
+            for (ConversationSummary conv : page.getItems()) {
                 System.out.println("\nID: " + conv.getId());
                 String sessionIdDisplay = conv.getSessionId();
                 if (sessionIdDisplay != null && sessionIdDisplay.length() > 8) {
@@ -206,14 +517,18 @@ public class AIKnowledgeBaseApp {
                 System.out.println("AI: " + conv.getAiResponse());
                 System.out.println("─────────────────────────────────────────────");
             }
+            if (!page.hasNext() || !askForNextPage()) {
+                break;
+            }
+            page = aiService.getConversationPage(page.getLast(), PAGE_SIZE);
         }
         
-        System.out.println("\nTotal conversations: " + conversations.size());
+        System.out.println("\nTotal conversations: " + aiService.getConversationCount());
     }
 
     private static void viewStatistics() {
         System.out.println("\n═══════════════ System Statistics ═══════════════");
-        System.out.println(aiService.getStatistics());
+        System.out.println(deferredService.getStatistics());
     }
 
     private static void demonstrateCRUD() {
@@ -240,8 +555,7 @@ public class AIKnowledgeBaseApp {
         System.out.println("\n3. UPDATE: Updating the entry's confidence score...");
         testEntry.setConfidenceScore(5.0);
         testEntry.setAnswer("CRUD stands for Create, Read, Update, and Delete - essential database operations for data management.");
-        KnowledgeRepository repo = new KnowledgeRepository(em);
-        repo.update(testEntry);
+        aiService.updateKnowledge(testEntry);
         System.out.println("   ✓ Updated entry successfully");
         
         // DELETE (optional - commented out to preserve demo data)
@@ -255,12 +569,39 @@ public class AIKnowledgeBaseApp {
         if (scanner != null) {
             scanner.close();
         }
-        if (em != null) {
-            em.close();
+        // Buffered writes are handed over once the database has started
+        if (deferredService != null) {
+            if (!deferredService.whenReady().isDone()) {
+                System.out.println("Waiting for the database to start to save this session...");
+            }
+            deferredService.close();
+        }
+        if (managementBeans != null) {
+            managementBeans.close();
+        }
+        // Drain queued writes while the database is still open
+        if (conversationWriter != null) {
+            conversationWriter.close();
+        }
+        if (confidenceUpdater != null) {
+            confidenceUpdater.close();
+        }
+        if (conversationArchiver != null) {
+            conversationArchiver.close();
+        }
+        if (conversationArchive != null) {
+            conversationArchive.close();
+        }
+        if (aiService != null) {
+            refreshStartupSnapshot();
+            aiService.close();
+        }
+        if (snapshotService != null) {
+            snapshotService.close();
         }
         if (emf != null) {
             emf.close();
+            System.out.println("Database connection closed.");
         }
-        System.out.println("Database connection closed.");
     }
 }
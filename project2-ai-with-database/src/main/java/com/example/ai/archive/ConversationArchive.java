@@ -0,0 +1,350 @@
+package com.example.ai.archive;
+
+import com.example.ai.model.Conversation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only store for conversations that have left the conversations table.
+ * <p>
+ * The archive is a directory of numbered segment files, one per {@link #append append}.
+ * Segments are never changed once written (see {@link Segment} for the format); the
+ * small index of every segment is kept in memory and blocks are inflated only when a
+ * query needs them, so lookups by id, by session and of the newest conversations before
+ * a point in time read a few blocks rather than the whole archive.
+ * <p>
+ * Moving conversations out of the table happens in {@link #append}: the segment is made
+ * durable first, then the caller removes the rows from the table, and only then does the
+ * segment become visible to queries. Both steps run while {@link #read readers} are
+ * held off, so a query that combines the table with the archive never sees a
+ * conversation twice or not at all.
+ */
+public class ConversationArchive implements AutoCloseable {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.seg");
+
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile List<Segment> segments;
+    private long nextNumber;
+
+    private ConversationArchive(Path directory, List<Segment> segments) {
+        this.directory = directory;
+        this.segments = List.copyOf(segments);
+        this.nextNumber = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).getNumber() + 1;
+    }
+
+    /**
+     * Open the archive in the given directory, creating the directory if needed.
+     * Unfinished segment files left by a crash are deleted.
+     */
+    public static ConversationArchive open(Path directory) {
+        List<Segment> segments = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    Matcher matcher = SEGMENT_NAME.matcher(name);
+                    if (matcher.matches()) {
+                        segments.add(Segment.open(file, Long.parseLong(matcher.group(1))));
+                    } else if (name.endsWith(".seg.tmp")) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            segments.forEach(ConversationArchive::closeQuietly);
+            throw new RuntimeException("Failed to open conversation archive " + directory, e);
+        }
+        segments.sort(Comparator.comparingLong(Segment::getNumber));
+        return new ConversationArchive(directory, segments);
+    }
+
+    /**
+     * Run a query that may combine the table with the archive, so that no
+     * {@link #append} moves conversations from one to the other while it runs
+     */
+    public <T> T read(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Archive conversations as a new segment. Once the segment is on disk,
+     * {@code removeFromTable} is called with their ids; if it throws, the segment is
+     * discarded again and the conversations stay in the table.
+     */
+    public synchronized void append(List<Conversation> conversations, Consumer<List<Long>> removeFromTable) {
+        if (conversations.isEmpty()) {
+            return;
+        }
+        long number = nextNumber++;
+        Segment segment;
+        try {
+            segment = Segment.write(directory.resolve(String.format("segment-%08d.seg", number)), number, conversations);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write archive segment " + number, e);
+        }
+
+        List<Long> ids = new ArrayList<>(conversations.size());
+        for (Conversation conversation : conversations) {
+            ids.add(conversation.getId());
+        }
+        lock.writeLock().lock();
+        try {
+            try {
+                removeFromTable.accept(ids);
+            } catch (RuntimeException e) {
+                discard(segment);
+                throw e;
+            }
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            segments = List.copyOf(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the conversations in the newest segment. If the application stopped after
+     * writing it but before the rows left the table, those rows are in both places;
+     * removing these ids from the table again repairs that.
+     */
+    public List<Long> newestSegmentIds() {
+        List<Segment> current = segments;
+        if (current.isEmpty()) {
+            return List.of();
+        }
+        Segment newest = current.get(current.size() - 1);
+        List<Long> ids = new ArrayList<>();
+        for (Segment.Block block : newest.getBlocks()) {
+            for (Conversation conversation : readBlock(newest, block)) {
+                ids.add(conversation.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Number of archived conversations
+     */
+    public long count() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.getRows();
+        }
+        return count;
+    }
+
+    /**
+     * Highest archived conversation id, or 0 if the archive is empty
+     */
+    public long getMaxId() {
+        long maxId = 0;
+        for (Segment segment : segments) {
+            for (Segment.Block block : segment.getBlocks()) {
+                maxId = Math.max(maxId, block.maxId);
+            }
+        }
+        return maxId;
+    }
+
+    /**
+     * Find an archived conversation by id
+     */
+    public Optional<Conversation> findById(long id) {
+        for (Segment segment : segments) {
+            for (Segment.Block block : segment.getBlocks()) {
+                if (id < block.minId || id > block.maxId) {
+                    continue;
+                }
+                for (Conversation conversation : readBlock(segment, block)) {
+                    if (conversation.getId() == id) {
+                        return Optional.of(conversation);
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Archived conversations of one session, oldest first
+     */
+    public List<Conversation> findBySessionId(String sessionId) {
+        List<Conversation> found = new ArrayList<>();
+        if (sessionId == null) {
+            return found;
+        }
+        for (Segment segment : segments) {
+            for (Segment.Block block : segment.getBlocks()) {
+                if (!block.mayContainSession(sessionId)) {
+                    continue;
+                }
+                for (Conversation conversation : readBlock(segment, block)) {
+                    if (sessionId.equals(conversation.getSessionId())) {
+                        found.add(conversation);
+                    }
+                }
+            }
+        }
+        found.sort(Segment.OLDEST_FIRST);
+        return found;
+    }
+
+    /**
+     * The newest {@code limit} archived conversations that come before the given
+     * timestamp and id (or the newest overall if the timestamp is null), newest first.
+     * Blocks are visited from the newest down and the search stops as soon as no
+     * remaining block can hold anything newer than what was found.
+     */
+    public List<Conversation> findNewest(LocalDateTime beforeTimestamp, Long beforeId, int limit) {
+        long beforeTime = beforeTimestamp == null ? Long.MAX_VALUE : Segment.toEpochNanos(beforeTimestamp);
+        long beforeKeyId = beforeTimestamp == null ? Long.MAX_VALUE : beforeId;
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Segment segment : segments) {
+            for (Segment.Block block : segment.getBlocks()) {
+                if (compare(block.firstTime, block.firstId, beforeTime, beforeKeyId) < 0) {
+                    candidates.add(new Candidate(segment, block));
+                }
+            }
+        }
+        candidates.sort((a, b) -> compare(b.block.lastTime, b.block.lastId, a.block.lastTime, a.block.lastId));
+
+        // Min-heap of the best rows so far, so the oldest of them is dropped first
+        PriorityQueue<Conversation> best = new PriorityQueue<>(limit + 1, Segment.OLDEST_FIRST);
+        for (Candidate candidate : candidates) {
+            if (best.size() >= limit) {
+                Conversation oldest = best.peek();
+                if (compare(candidate.block.lastTime, candidate.block.lastId,
+                        Segment.toEpochNanos(oldest.getTimestamp()), oldest.getId()) <= 0) {
+                    break;
+                }
+            }
+            for (Conversation conversation : readBlock(candidate.segment, candidate.block)) {
+                if (compare(Segment.toEpochNanos(conversation.getTimestamp()), conversation.getId(),
+                        beforeTime, beforeKeyId) >= 0) {
+                    continue;
+                }
+                best.add(conversation);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Conversation> newest = new ArrayList<>(best);
+        newest.sort(Segment.OLDEST_FIRST.reversed());
+        return newest;
+    }
+
+    /**
+     * Pass every archived conversation to the action, newest segment first and newest
+     * first within each segment. One block is in memory at a time. Returns the number of
+     * conversations visited.
+     */
+    public long forEach(Consumer<Conversation> action) {
+        List<Segment> current = segments;
+        long visited = 0;
+        for (int s = current.size() - 1; s >= 0; s--) {
+            Segment segment = current.get(s);
+            Segment.Block[] blocks = segment.getBlocks();
+            for (int b = blocks.length - 1; b >= 0; b--) {
+                List<Conversation> conversations = readBlock(segment, blocks[b]);
+                for (int i = conversations.size() - 1; i >= 0; i--) {
+                    action.accept(conversations.get(i));
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Bytes the segment files take on disk
+     */
+    public long getSizeBytes() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.getSizeBytes();
+        }
+        return size;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            segments.forEach(ConversationArchive::closeQuietly);
+            segments = List.of();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<Conversation> readBlock(Segment segment, Segment.Block block) {
+        try {
+            return segment.readBlock(block);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + segment.getFile(), e);
+        }
+    }
+
+    private static int compare(long time, long id, long otherTime, long otherId) {
+        int byTime = Long.compare(time, otherTime);
+        return byTime != 0 ? byTime : Long.compare(id, otherId);
+    }
+
+    private static void discard(Segment segment) {
+        closeQuietly(segment);
+        try {
+            Files.deleteIfExists(segment.getFile());
+        } catch (IOException e) {
+            System.err.println("Failed to delete archive segment " + segment.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            // nothing left to do with it
+        }
+    }
+
+    private static final class Candidate {
+        final Segment segment;
+        final Segment.Block block;
+
+        Candidate(Segment segment, Segment.Block block) {
+            this.segment = segment;
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.ai.archive;
+
+import com.example.ai.model.Conversation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One immutable archive segment file.
+ * <p>
+ * Conversations are sorted by timestamp and id and stored in blocks of
+ * {@value #BLOCK_ROWS}, each compressed on its own so a lookup only inflates the blocks
+ * it needs. The index at the end of the file records, for every block, its position,
+ * the first and last (timestamp, id) and the id range, plus a Bloom filter of the
+ * session ids in it. The index is read into memory when the segment is opened; blocks
+ * are read on demand.
+ * <pre>
+ * block*   deflated: int count, then per row: long id, long epoch nanos (UTC),
+ *          boolean hasSession, [UTF session], UTF query, UTF response
+ * index    int magic, int version, int blockCount, then per block: long offset,
+ *          int length, int count, long firstTime, long firstId, long lastTime,
+ *          long lastId, long minId, long maxId, long[BLOOM_WORDS] sessions
+ * trailer  long indexOffset, int magic
+ * </pre>
+ */
+final class Segment implements Closeable {
+    static final int BLOCK_ROWS = 512;
+
+    private static final int MAGIC = 0x43565347;   // "CVSG"
+    private static final int VERSION = 1;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int BLOOM_WORDS = 64;      // 4096 bits per block
+    private static final int BLOOM_HASHES = 3;
+
+    static final Comparator<Conversation> OLDEST_FIRST =
+        Comparator.comparing(Conversation::getTimestamp).thenComparing(Conversation::getId);
+
+    private final Path file;
+    private final long number;
+    private final FileChannel channel;
+    private final Block[] blocks;
+    private final long rows;
+    private final long sizeBytes;
+
+    private Segment(Path file, long number, FileChannel channel, Block[] blocks, long sizeBytes) {
+        this.file = file;
+        this.number = number;
+        this.channel = channel;
+        this.blocks = blocks;
+        this.sizeBytes = sizeBytes;
+        long count = 0;
+        for (Block block : blocks) {
+            count += block.count;
+        }
+        this.rows = count;
+    }
+
+    /**
+     * Write conversations to a new segment file and open it. The file is written under a
+     * temporary name, forced to disk and then renamed, so a segment file either exists
+     * complete or not at all.
+     */
+    static Segment write(Path file, long number, List<Conversation> conversations) throws IOException {
+        List<Conversation> sorted = new ArrayList<>(conversations);
+        sorted.sort(OLDEST_FIRST);
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            List<Block> blocks = new ArrayList<>();
+            long offset = 0;
+            for (int start = 0; start < sorted.size(); start += BLOCK_ROWS) {
+                List<Conversation> rows = sorted.subList(start, Math.min(start + BLOCK_ROWS, sorted.size()));
+                byte[] compressed = encode(rows);
+                out.write(compressed);
+                blocks.add(Block.describe(offset, compressed.length, rows));
+                offset += compressed.length;
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                block.writeTo(out);
+            }
+            out.writeLong(offset);
+            out.writeInt(MAGIC);
+            out.flush();
+            fileOut.getChannel().force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.getParent());
+        return open(file, number);
+    }
+
+    /**
+     * Open an existing segment file and read its index
+     */
+    static Segment open(Path file, long number) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < TRAILER_BYTES) {
+                throw new IOException("Archive segment is truncated: " + file);
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+            long indexOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || indexOffset < 0 || indexOffset > size - TRAILER_BYTES) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+
+            ByteBuffer index = read(channel, indexOffset, (int) (size - TRAILER_BYTES - indexOffset));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Archive segment index is corrupt: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported archive segment version " + version + ": " + file);
+            }
+            Block[] blocks = new Block[in.readInt()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = Block.readFrom(in);
+            }
+            return new Segment(file, number, channel, blocks, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long getNumber() {
+        return number;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    Block[] getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Inflate one block, oldest conversation first
+     */
+    List<Conversation> readBlock(Block block) throws IOException {
+        ByteBuffer bytes = read(channel, block.offset, block.length);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(bytes.array()))))) {
+            int count = in.readInt();
+            List<Conversation> conversations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Conversation conversation = new Conversation();
+                conversation.setId(in.readLong());
+                conversation.setTimestamp(fromEpochNanos(in.readLong()));
+                conversation.setSessionId(in.readBoolean() ? in.readUTF() : null);
+                conversation.setUserQuery(in.readUTF());
+                conversation.setAiResponse(in.readUTF());
+                conversations.add(conversation);
+            }
+            return conversations;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] encode(List<Conversation> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(rows.size());
+            for (Conversation conversation : rows) {
+                out.writeLong(conversation.getId());
+                out.writeLong(toEpochNanos(conversation.getTimestamp()));
+                out.writeBoolean(conversation.getSessionId() != null);
+                if (conversation.getSessionId() != null) {
+                    out.writeUTF(conversation.getSessionId());
+                }
+                out.writeUTF(conversation.getUserQuery());
+                out.writeUTF(conversation.getAiResponse());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void forceDirectory(Path directory) {
+        // Makes the rename durable; not every platform can open a directory for this
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+
+    static long toEpochNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+            (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * Position and summary of one compressed block
+     */
+    static final class Block {
+        final long offset;
+        final int length;
+        final int count;
+        final long firstTime;
+        final long firstId;
+        final long lastTime;
+        final long lastId;
+        final long minId;
+        final long maxId;
+        private final long[] sessions;
+
+        private Block(long offset, int length, int count, long firstTime, long firstId, long lastTime, long lastId,
+                      long minId, long maxId, long[] sessions) {
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+            this.firstTime = firstTime;
+            this.firstId = firstId;
+            this.lastTime = lastTime;
+            this.lastId = lastId;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.sessions = sessions;
+        }
+
+        static Block describe(long offset, int length, List<Conversation> rows) {
+            long minId = Long.MAX_VALUE;
+            long maxId = Long.MIN_VALUE;
+            long[] sessions = new long[BLOOM_WORDS];
+            for (Conversation conversation : rows) {
+                minId = Math.min(minId, conversation.getId());
+                maxId = Math.max(maxId, conversation.getId());
+                if (conversation.getSessionId() != null) {
+                    long hash = hash(conversation.getSessionId());
+                    for (int i = 0; i < BLOOM_HASHES; i++) {
+                        int bit = bit(hash, i);
+                        sessions[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+            Conversation first = rows.get(0);
+            Conversation last = rows.get(rows.size() - 1);
+            return new Block(offset, length, rows.size(), toEpochNanos(first.getTimestamp()), first.getId(),
+                toEpochNanos(last.getTimestamp()), last.getId(), minId, maxId, sessions);
+        }
+
+        static Block readFrom(DataInputStream in) throws IOException {
+            long offset = in.readLong();
+            int length = in.readInt();
+            int count = in.readInt();
+            long firstTime = in.readLong();
+            long firstId = in.readLong();
+            long lastTime = in.readLong();
+            long lastId = in.readLong();
+            long minId = in.readLong();
+            long maxId = in.readLong();
+            long[] sessions = new long[BLOOM_WORDS];
+            for (int i = 0; i < BLOOM_WORDS; i++) {
+                sessions[i] = in.readLong();
+            }
+            return new Block(offset, length, count, firstTime, firstId, lastTime, lastId, minId, maxId, sessions);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeInt(count);
+            out.writeLong(firstTime);
+            out.writeLong(firstId);
+            out.writeLong(lastTime);
+            out.writeLong(lastId);
+            out.writeLong(minId);
+            out.writeLong(maxId);
+            for (long word : sessions) {
+                out.writeLong(word);
+            }
+        }
+
+        /**
+         * Whether the block may hold conversations of the session; false positives are
+         * possible, false negatives are not
+         */
+        boolean mayContainSession(String sessionId) {
+            long hash = hash(sessionId);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bit(hash, i);
+                if ((sessions[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String sessionId) {
+            // Spread String.hashCode over 64 bits (the finalizer of MurmurHash3)
+            long h = sessionId.hashCode() * 0x9E3779B97F4A7C15L + sessionId.length();
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        private static int bit(long hash, int i) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            return ((h1 + i * h2) & Integer.MAX_VALUE) % (BLOOM_WORDS * 64);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.example.ai.importer;
+
+import com.example.ai.model.KnowledgeEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads knowledge entries from CSV or JSON Lines files, one entry at a time.
+ * <p>
+ * CSV files start with a header row naming the columns; {@code question} and
+ * {@code answer} are required, {@code category} and {@code confidence} are optional.
+ * Fields may be quoted with double quotes, which allows commas, line breaks and
+ * doubled quotes ({@code ""}) inside them.
+ * <pre>
+ * question,answer,category
+ * What is H2?,"H2 is a small, embedded SQL database.",Database
+ * </pre>
+ * JSON Lines files hold one flat object per line with the same keys:
+ * <pre>
+ * {"question": "What is H2?", "answer": "An embedded SQL database.", "confidence": 2.5}
+ * </pre>
+ * Entries are parsed lazily as the returned stream is consumed, so files of any size
+ * can be read in constant memory. Malformed input fails with an
+ * {@link IllegalArgumentException} naming the line.
+ */
+public final class KnowledgeFileReader {
+    public static final String DEFAULT_CATEGORY = "General";
+    public static final double DEFAULT_CONFIDENCE = 1.0;
+
+    private KnowledgeFileReader() {
+    }
+
+    /**
+     * Open a file, choosing the format by extension: .csv, or .jsonl/.ndjson.
+     * Close the stream to close the file.
+     */
+    public static Stream<KnowledgeEntry> open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            if (name.endsWith(".csv")) {
+                return csv(reader);
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return jsonLines(reader);
+            }
+        } catch (RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        reader.close();
+        throw new IllegalArgumentException("Unsupported file type (expected .csv or .jsonl): " + file);
+    }
+
+    /**
+     * Read entries from CSV text with a header row
+     */
+    public static Stream<KnowledgeEntry> csv(Reader reader) {
+        CsvParser parser = new CsvParser(reader);
+        List<String> header = parser.readRecord();
+        if (header == null) {
+            return closing(Stream.empty(), reader);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("question", "answer")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header has no '" + required + "' column: " + header);
+            }
+        }
+
+        return stream(reader, action -> {
+            List<String> record;
+            do {
+                record = parser.readRecord();
+                if (record == null) {
+                    return false;
+                }
+            } while (record.size() == 1 && record.get(0).isBlank());
+
+            int line = parser.recordLine;
+            action.accept(entry(
+                field(record, columns.get("question")),
+                field(record, columns.get("answer")),
+                field(record, columns.get("category")),
+                field(record, columns.get("confidence")),
+                line));
+            return true;
+        });
+    }
+
+    /**
+     * Read entries from JSON Lines text
+     */
+    public static Stream<KnowledgeEntry> jsonLines(Reader reader) {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int[] lineNumber = {0};
+        return stream(reader, action -> {
+            String line;
+            do {
+                line = readLine(lines);
+                lineNumber[0]++;
+                if (line == null) {
+                    return false;
+                }
+            } while (line.isBlank());
+
+            Map<String, Object> object = new JsonObjectParser(line, lineNumber[0]).parse();
+            action.accept(entry(
+                text(object.get("question")),
+                text(object.get("answer")),
+                text(object.get("category")),
+                text(object.get("confidence")),
+                lineNumber[0]));
+            return true;
+        });
+    }
+
+    private static KnowledgeEntry entry(String question, String answer, String category, String confidence,
+                                        int line) {
+        if (question == null || question.isBlank()) {
+            throw new IllegalArgumentException("Line " + line + ": question is empty");
+        }
+        if (answer == null || answer.isBlank()) {
+            throw new IllegalArgumentException("Line " + line + ": answer is empty");
+        }
+        KnowledgeEntry entry = new KnowledgeEntry(question.trim(), answer.trim(),
+            category == null || category.isBlank() ? DEFAULT_CATEGORY : category.trim());
+        try {
+            entry.setConfidenceScore(confidence == null || confidence.isBlank()
+                ? DEFAULT_CONFIDENCE : Double.parseDouble(confidence.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + line + ": confidence is not a number: " + confidence);
+        }
+        return entry;
+    }
+
+    private static String field(List<String> record, Integer column) {
+        return column != null && column < record.size() ? record.get(column) : null;
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Source of entries for one file: produces the next entry, or returns false at the end
+     */
+    private interface EntrySource {
+        boolean next(Consumer<? super KnowledgeEntry> action);
+    }
+
+    private static Stream<KnowledgeEntry> stream(Reader reader, EntrySource source) {
+        Spliterator<KnowledgeEntry> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super KnowledgeEntry> action) {
+                return source.next(action);
+            }
+        };
+        return closing(StreamSupport.stream(spliterator, false), reader);
+    }
+
+    private static Stream<KnowledgeEntry> closing(Stream<KnowledgeEntry> stream, Reader reader) {
+        return stream.onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * RFC 4180 style record reader; quoted fields may span lines
+     */
+    private static final class CsvParser {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+        // Read in blocks; Reader.read() per character is synchronized and slow
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private int lookahead = -2;   // -2 means nothing buffered
+        private int line = 1;
+        int recordLine;
+
+        CsvParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        List<String> readRecord() {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> record = new ArrayList<>();
+            field.setLength(0);
+            boolean inQuotes = false;
+            while (true) {
+                if (inQuotes) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Line " + recordLine + ": unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.length() == 0) {
+                    inQuotes = true;
+                } else if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                    line++;
+                    break;
+                } else if (c == '\n') {
+                    line++;
+                    break;
+                } else if (c == -1) {
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            record.add(field.toString());
+            return record;
+        }
+
+        private int read() {
+            if (lookahead != -2) {
+                int c = lookahead;
+                lookahead = -2;
+                return c;
+            }
+            if (position == limit) {
+                try {
+                    limit = reader.read(buffer, 0, buffer.length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        private void unread(int c) {
+            lookahead = c;
+        }
+    }
+
+    /**
+     * Parser for one flat JSON object: string, number, boolean and null values
+     */
+    private static final class JsonObjectParser {
+        private final String text;
+        private final int line;
+        private int pos;
+
+        JsonObjectParser(String text, int line) {
+            this.text = text;
+            this.line = line;
+        }
+
+        Map<String, Object> parse() {
+            Map<String, Object> object = new HashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    String key = string();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    object.put(key, value());
+                    skipWhitespace();
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw error("expected ',' or '}'");
+                    }
+                }
+            }
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw error("unexpected text after object");
+            }
+            return object;
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                int start = pos;
+                while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) {
+                    pos++;
+                }
+                return text.substring(start, pos);
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            throw error("unsupported value (only strings, numbers, booleans and null)");
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(escaped);
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("truncated \\u escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("invalid \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("unexpected end of line");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Line " + line + ", column " + (pos + 1) + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.ai.management;
+
+import com.example.ai.metrics.LatencyHistogram;
+import com.example.ai.service.AIService;
+import com.example.ai.service.ConfidenceUpdater;
+import com.example.ai.service.ConversationWriter;
+
+import java.util.Locale;
+
+/**
+ * Exposes the counters of the AI service and its background writers over JMX.
+ * The writer and updater may be null when the service writes directly.
+ */
+public class ApplicationStatistics implements ApplicationStatisticsMBean {
+    private final AIService aiService;
+    private final ConversationWriter conversationWriter;
+    private final ConfidenceUpdater confidenceUpdater;
+
+    public ApplicationStatistics(AIService aiService, ConversationWriter conversationWriter,
+                                 ConfidenceUpdater confidenceUpdater) {
+        this.aiService = aiService;
+        this.conversationWriter = conversationWriter;
+        this.confidenceUpdater = confidenceUpdater;
+    }
+
+    @Override
+    public long getQueryCount() {
+        return total().getCount();
+    }
+
+    @Override
+    public double getQueryLatencyP50Millis() {
+        return millis(total().getValuesAtPercentiles(50)[0]);
+    }
+
+    @Override
+    public double getQueryLatencyP99Millis() {
+        return millis(total().getValuesAtPercentiles(99)[0]);
+    }
+
+    @Override
+    public double getQueryLatencyMaxMillis() {
+        return millis(total().getMax());
+    }
+
+    @Override
+    public String[] getQueryStageLatencies() {
+        AIService.QueryStage[] stages = AIService.QueryStage.values();
+        String[] lines = new String[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram histogram = aiService.getQueryLatency(stages[i]);
+            long[] values = histogram.getValuesAtPercentiles(50, 95, 99);
+            lines[i] = String.format("%s: %d, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms",
+                stages[i].name().toLowerCase(Locale.ROOT), histogram.getCount(),
+                millis(values[0]), millis(values[1]), millis(values[2]), millis(histogram.getMax()));
+        }
+        return lines;
+    }
+
+    @Override
+    public long getKnowledgeEntryCount() {
+        return aiService.getKnowledgeCount();
+    }
+
+    @Override
+    public long getConversationCount() {
+        return aiService.getConversationCount();
+    }
+
+    @Override
+    public int getConversationQueueDepth() {
+        return conversationWriter != null ? conversationWriter.getQueueDepth() : 0;
+    }
+
+    @Override
+    public long getConversationsWritten() {
+        return conversationWriter != null ? conversationWriter.getWrittenCount() : 0;
+    }
+
+    @Override
+    public long getConversationsDropped() {
+        return conversationWriter != null ? conversationWriter.getDroppedCount() : 0;
+    }
+
+    @Override
+    public long getConversationWriteFailures() {
+        return conversationWriter != null ? conversationWriter.getFailedCount() : 0;
+    }
+
+    @Override
+    public long getPendingConfidenceHits() {
+        return confidenceUpdater != null ? confidenceUpdater.getPendingHits() : 0;
+    }
+
+    @Override
+    public String getStatistics() {
+        return aiService.getStatistics();
+    }
+
+    private LatencyHistogram total() {
+        return aiService.getQueryLatency(AIService.QueryStage.TOTAL);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
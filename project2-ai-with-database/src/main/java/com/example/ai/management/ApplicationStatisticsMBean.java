@@ -0,0 +1,40 @@
+package com.example.ai.management;
+
+/**
+ * The application's own counters: answered queries and their latency, the background
+ * writers' backlogs and the size of the knowledge base and conversation history
+ */
+public interface ApplicationStatisticsMBean {
+
+    long getQueryCount();
+
+    double getQueryLatencyP50Millis();
+
+    double getQueryLatencyP99Millis();
+
+    double getQueryLatencyMaxMillis();
+
+    /**
+     * Count, p50, p95, p99 and maximum of every timed stage of a query
+     */
+    String[] getQueryStageLatencies();
+
+    long getKnowledgeEntryCount();
+
+    long getConversationCount();
+
+    int getConversationQueueDepth();
+
+    long getConversationsWritten();
+
+    long getConversationsDropped();
+
+    long getConversationWriteFailures();
+
+    long getPendingConfidenceHits();
+
+    /**
+     * Everything the View Statistics menu shows
+     */
+    String getStatistics();
+}
@@ -0,0 +1,67 @@
+package com.example.ai.management;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Exposes the HikariCP pool that Hibernate gets its connections from over JMX
+ */
+public class ConnectionPool implements ConnectionPoolMBean {
+    private final HikariDataSource dataSource;
+
+    public ConnectionPool(EntityManagerFactory entityManagerFactory) {
+        ConnectionProvider connectionProvider = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(ConnectionProvider.class);
+        if (connectionProvider == null || !connectionProvider.isUnwrappableAs(HikariDataSource.class)) {
+            throw new IllegalStateException("The persistence unit does not use a HikariCP connection pool");
+        }
+        this.dataSource = connectionProvider.unwrap(HikariDataSource.class);
+    }
+
+    @Override
+    public String getPoolName() {
+        return dataSource.getPoolName();
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    @Override
+    public int getMinimumIdle() {
+        return dataSource.getMinimumIdle();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return pool().getActiveConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return pool().getIdleConnections();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return pool().getTotalConnections();
+    }
+
+    @Override
+    public int getThreadsAwaitingConnection() {
+        return pool().getThreadsAwaitingConnection();
+    }
+
+    @Override
+    public void softEvictConnections() {
+        pool().softEvictConnections();
+    }
+
+    private HikariPoolMXBean pool() {
+        return dataSource.getHikariPoolMXBean();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.ai.management;
+
+/**
+ * Usage of the JDBC connection pool behind the persistence unit
+ */
+public interface ConnectionPoolMBean {
+
+    String getPoolName();
+
+    int getMaximumPoolSize();
+
+    int getMinimumIdle();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getTotalConnections();
+
+    /**
+     * Threads waiting for a connection right now; above zero means the pool is too small
+     * for the load or connections are held too long
+     */
+    int getThreadsAwaitingConnection();
+
+    /**
+     * Close idle connections now and the others when they are returned
+     */
+    void softEvictConnections();
+}
@@ -0,0 +1,150 @@
+package com.example.ai.management;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Exposes the {@link Statistics} of a persistence unit over JMX. Counts are only
+ * collected while statistics are enabled (hibernate.generate_statistics, or the
+ * StatisticsEnabled attribute).
+ */
+public class HibernateStatistics implements HibernateStatisticsMBean {
+    private static final int SLOWEST_QUERIES = 10;
+
+    private final Statistics statistics;
+
+    public HibernateStatistics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    @Override
+    public void setStatisticsEnabled(boolean enabled) {
+        statistics.setStatisticsEnabled(enabled);
+    }
+
+    @Override
+    public long getQueryExecutionCount() {
+        return statistics.getQueryExecutionCount();
+    }
+
+    @Override
+    public long getQueryExecutionMaxTimeMillis() {
+        return statistics.getQueryExecutionMaxTime();
+    }
+
+    @Override
+    public String getSlowestQuery() {
+        return statistics.getQueryExecutionMaxTimeQueryString();
+    }
+
+    @Override
+    public String[] getSlowestQueries() {
+        return Arrays.stream(statistics.getQueries())
+            .sorted(Comparator.comparingLong(this::maxTime).reversed())
+            .limit(SLOWEST_QUERIES)
+            .map(query -> {
+                QueryStatistics stats = statistics.getQueryStatistics(query);
+                return String.format("max %d ms, avg %d ms, %d runs: %s", stats.getExecutionMaxTime(),
+                    stats.getExecutionAvgTime(), stats.getExecutionCount(), query);
+            })
+            .toArray(String[]::new);
+    }
+
+    private long maxTime(String query) {
+        return statistics.getQueryStatistics(query).getExecutionMaxTime();
+    }
+
+    @Override
+    public long getEntityLoadCount() {
+        return statistics.getEntityLoadCount();
+    }
+
+    @Override
+    public long getEntityFetchCount() {
+        return statistics.getEntityFetchCount();
+    }
+
+    @Override
+    public long getEntityInsertCount() {
+        return statistics.getEntityInsertCount();
+    }
+
+    @Override
+    public long getEntityUpdateCount() {
+        return statistics.getEntityUpdateCount();
+    }
+
+    @Override
+    public long getEntityDeleteCount() {
+        return statistics.getEntityDeleteCount();
+    }
+
+    @Override
+    public long getPrepareStatementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return statistics.getFlushCount();
+    }
+
+    @Override
+    public long getTransactionCount() {
+        return statistics.getTransactionCount();
+    }
+
+    @Override
+    public long getSessionOpenCount() {
+        return statistics.getSessionOpenCount();
+    }
+
+    @Override
+    public long getSecondLevelCacheHitCount() {
+        return statistics.getSecondLevelCacheHitCount();
+    }
+
+    @Override
+    public long getSecondLevelCacheMissCount() {
+        return statistics.getSecondLevelCacheMissCount();
+    }
+
+    @Override
+    public double getSecondLevelCacheHitRatio() {
+        return ratio(getSecondLevelCacheHitCount(), getSecondLevelCacheMissCount());
+    }
+
+    @Override
+    public long getQueryCacheHitCount() {
+        return statistics.getQueryCacheHitCount();
+    }
+
+    @Override
+    public long getQueryCacheMissCount() {
+        return statistics.getQueryCacheMissCount();
+    }
+
+    @Override
+    public double getQueryCacheHitRatio() {
+        return ratio(getQueryCacheHitCount(), getQueryCacheMissCount());
+    }
+
+    @Override
+    public void clear() {
+        statistics.clear();
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
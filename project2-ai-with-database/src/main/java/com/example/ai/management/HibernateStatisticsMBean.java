@@ -0,0 +1,59 @@
+package com.example.ai.management;
+
+/**
+ * Hibernate's statistics of the persistence unit: queries, entity operations, JDBC
+ * work and cache hit ratios since startup or the last {@link #clear()}
+ */
+public interface HibernateStatisticsMBean {
+
+    boolean isStatisticsEnabled();
+
+    void setStatisticsEnabled(boolean enabled);
+
+    long getQueryExecutionCount();
+
+    long getQueryExecutionMaxTimeMillis();
+
+    String getSlowestQuery();
+
+    /**
+     * The queries with the longest single execution, slowest first, with their
+     * execution count and average and maximum time
+     */
+    String[] getSlowestQueries();
+
+    long getEntityLoadCount();
+
+    long getEntityFetchCount();
+
+    long getEntityInsertCount();
+
+    long getEntityUpdateCount();
+
+    long getEntityDeleteCount();
+
+    long getPrepareStatementCount();
+
+    long getFlushCount();
+
+    long getTransactionCount();
+
+    long getSessionOpenCount();
+
+    long getSecondLevelCacheHitCount();
+
+    long getSecondLevelCacheMissCount();
+
+    double getSecondLevelCacheHitRatio();
+
+    long getQueryCacheHitCount();
+
+    long getQueryCacheMissCount();
+
+    double getQueryCacheHitRatio();
+
+    /**
+     * Reset all counters
+     */
+    void clear();
+}
@@ -0,0 +1,90 @@
+package com.example.ai.management;
+
+import com.example.ai.service.AIService;
+import com.example.ai.service.ConfidenceUpdater;
+import com.example.ai.service.ConversationWriter;
+import jakarta.persistence.EntityManagerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the application's MBeans with the platform MBean server under the
+ * {@value #DOMAIN} domain, so they can be read and changed with JConsole, VisualVM or any
+ * other JMX client while the application runs:
+ * <ul>
+ *   <li>{@code type=HibernateStatistics}: {@link HibernateStatisticsMBean}</li>
+ *   <li>{@code type=ConnectionPool}: {@link ConnectionPoolMBean}</li>
+ *   <li>{@code type=Application}: {@link ApplicationStatisticsMBean}</li>
+ *   <li>{@code type=SqlLogging}: {@link SqlLoggingMBean}</li>
+ * </ul>
+ * {@link #close()} unregisters them again.
+ */
+public class ManagementBeans implements AutoCloseable {
+    public static final String DOMAIN = "com.example.ai";
+
+    private final MBeanServer server;
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    private ManagementBeans(MBeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Register all beans. The writer and updater may be null.
+     */
+    public static ManagementBeans register(EntityManagerFactory entityManagerFactory, AIService aiService,
+                                           ConversationWriter conversationWriter,
+                                           ConfidenceUpdater confidenceUpdater) {
+        ManagementBeans beans = new ManagementBeans(ManagementFactory.getPlatformMBeanServer());
+        try {
+            beans.add("HibernateStatistics", new HibernateStatistics(entityManagerFactory));
+            beans.add("ConnectionPool", new ConnectionPool(entityManagerFactory));
+            beans.add("Application", new ApplicationStatistics(aiService, conversationWriter, confidenceUpdater));
+            beans.add("SqlLogging", new SqlLogging());
+        } catch (JMException | RuntimeException e) {
+            beans.close();
+            throw new RuntimeException("Failed to register management beans", e);
+        }
+        return beans;
+    }
+
+    /**
+     * Register all beans if the ai.jmx.enabled system property is true; otherwise
+     * return null
+     */
+    public static ManagementBeans fromSystemProperties(EntityManagerFactory entityManagerFactory,
+                                                       AIService aiService,
+                                                       ConversationWriter conversationWriter,
+                                                       ConfidenceUpdater confidenceUpdater) {
+        if (!Boolean.getBoolean("ai.jmx.enabled")) {
+            return null;
+        }
+        return register(entityManagerFactory, aiService, conversationWriter, confidenceUpdater);
+    }
+
+    private void add(String type, Object bean) throws JMException {
+        ObjectName name = new ObjectName(DOMAIN, "type", type);
+        server.registerMBean(bean, name);
+        registered.add(name);
+    }
+
+    /**
+     * Unregister every bean registered by this object
+     */
+    @Override
+    public void close() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                System.err.println("Failed to unregister " + name + ": " + e.getMessage());
+            }
+        }
+        registered.clear();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ai.management;
+
+import org.hibernate.engine.jdbc.internal.FormatStyle;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Prints Hibernate's SQL statements while enabled, like hibernate.show_sql does, but can
+ * be switched at runtime.
+ * <p>
+ * Hibernate reports every statement to the {@code org.hibernate.SQL} log category at
+ * debug level and checks whether that level is enabled before building the message.
+ * This class raises and lowers the level of that category in java.util.logging, which
+ * Hibernate logs through when no other logging framework is on the class path, so
+ * statements cost nothing while logging is off.
+ */
+public class SqlLogging implements SqlLoggingMBean {
+    // Held here: java.util.logging forgets the level of loggers nobody references
+    private static final Logger SQL_LOGGER = Logger.getLogger("org.hibernate.SQL");
+
+    private final PrintStream out;
+    private final AtomicLong loggedStatements = new AtomicLong();
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            if (!isLoggable(record) || record.getMessage() == null) {
+                return;
+            }
+            String sql = formatted ? FormatStyle.BASIC.getFormatter().format(record.getMessage()) : record.getMessage();
+            out.println("Hibernate: " + sql);
+            loggedStatements.incrementAndGet();
+        }
+
+        @Override
+        public void flush() {
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    };
+    private volatile boolean formatted = true;
+
+    public SqlLogging() {
+        this(System.out);
+    }
+
+    public SqlLogging(PrintStream out) {
+        this.out = out;
+        handler.setLevel(Level.ALL);
+    }
+
+    @Override
+    public synchronized boolean isEnabled() {
+        return SQL_LOGGER.isLoggable(Level.FINE);
+    }
+
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        SQL_LOGGER.removeHandler(handler);
+        if (enabled) {
+            SQL_LOGGER.setUseParentHandlers(false);
+            SQL_LOGGER.addHandler(handler);
+            SQL_LOGGER.setLevel(Level.FINE);
+        } else {
+            SQL_LOGGER.setLevel(Level.INFO);
+            SQL_LOGGER.setUseParentHandlers(true);
+        }
+    }
+
+    @Override
+    public boolean isFormatted() {
+        return formatted;
+    }
+
+    @Override
+    public void setFormatted(boolean formatted) {
+        this.formatted = formatted;
+    }
+
+    @Override
+    public long getLoggedStatementCount() {
+        return loggedStatements.get();
+    }
+}
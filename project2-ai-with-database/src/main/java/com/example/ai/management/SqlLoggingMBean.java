@@ -0,0 +1,23 @@
+package com.example.ai.management;
+
+/**
+ * Switches printing of the SQL statements Hibernate executes on and off at runtime
+ */
+public interface SqlLoggingMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Whether statements are pretty-printed over several lines
+     */
+    boolean isFormatted();
+
+    void setFormatted(boolean formatted);
+
+    /**
+     * Statements printed since startup
+     */
+    long getLoggedStatementCount();
+}
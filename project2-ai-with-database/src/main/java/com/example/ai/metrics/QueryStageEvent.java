@@ -0,0 +1,28 @@
+package com.example.ai.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one timed stage of answering a query, committed when the stage ends;
+ * its length is in {@code stageDuration}.
+ * Only recorded while a flight recording with this event enabled is running, for example
+ * {@code -XX:StartFlightRecording:filename=ai.jfr}; otherwise committing does nothing.
+ */
+@Name("com.example.ai.QueryStage")
+@Label("Query Stage")
+@Category({"AI Knowledge Base", "Queries"})
+@Description("Time spent in one stage of answering a query")
+@StackTrace(false)
+final class QueryStageEvent extends jdk.jfr.Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Stage Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long stageDuration;
+}
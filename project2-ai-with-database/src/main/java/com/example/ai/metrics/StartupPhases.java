@@ -0,0 +1,54 @@
+package com.example.ai.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Durations of the steps of starting the application, in the order they finished, for
+ * the startup log. Steps may be timed on different threads.
+ */
+public final class StartupPhases {
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+
+    /**
+     * Start timing a step; pass the result to {@link #stop(String, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time since {@code start} for the named step. Returns the time the step
+     * ended, which can be passed on as the start of the next step.
+     */
+    public long stop(String phase, long start) {
+        long end = System.nanoTime();
+        synchronized (durations) {
+            durations.merge(phase, end - start, Long::sum);
+        }
+        return end;
+    }
+
+    /**
+     * Milliseconds since the JVM started
+     */
+    public static long sinceJvmStart() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * The steps and their durations, e.g. {@code "jpa bootstrap 1,203 ms, search index 95 ms"}
+     */
+    @Override
+    public String toString() {
+        StringJoiner out = new StringJoiner(", ");
+        synchronized (durations) {
+            for (Map.Entry<String, Long> phase : durations.entrySet()) {
+                out.add(String.format("%s %,d ms", phase.getKey(), phase.getValue() / 1_000_000));
+            }
+        }
+        return out.toString();
+    }
+}
@@ -8,11 +8,14 @@ import java.time.LocalDateTime;
  * Stores user queries and AI responses.
  */
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations",
+       indexes = @Index(name = "idx_conversations_timestamp", columnList = "timestamp DESC, id DESC"))
 public class Conversation {
 
+    // Sequence ids are allocated in blocks so batched inserts can be sent as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversation_seq")
+    @SequenceGenerator(name = "conversation_seq", sequenceName = "conversations_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_query", nullable = false, length = 1000)
@@ -0,0 +1,61 @@
+package com.example.ai.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a conversation for listings: the id, time and session, and the
+ * first {@value #PREVIEW_LENGTH} characters of the query and response.
+ * Summaries are not managed by JPA, so reading many of them does not grow the
+ * persistence context.
+ */
+public class ConversationSummary {
+    public static final int PREVIEW_LENGTH = 100;
+
+    private final Long id;
+    private final LocalDateTime timestamp;
+    private final String sessionId;
+    private final String userQuery;
+    private final String aiResponse;
+
+    /**
+     * Create a summary; texts longer than {@value #PREVIEW_LENGTH} characters are cut
+     * short and marked with an ellipsis
+     */
+    public ConversationSummary(Long id, LocalDateTime timestamp, String sessionId, String userQuery, String aiResponse) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.sessionId = sessionId;
+        this.userQuery = Previews.truncate(userQuery, PREVIEW_LENGTH);
+        this.aiResponse = Previews.truncate(aiResponse, PREVIEW_LENGTH);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getUserQuery() {
+        return userQuery;
+    }
+
+    public String getAiResponse() {
+        return aiResponse;
+    }
+
+    @Override
+    public String toString() {
+        return "ConversationSummary{" +
+                "id=" + id +
+                ", timestamp=" + timestamp +
+                ", sessionId='" + sessionId + '\'' +
+                ", userQuery='" + userQuery + '\'' +
+                '}';
+    }
+}
@@ -8,11 +8,16 @@ import java.time.LocalDateTime;
  * Stores question-answer pairs and related metadata.
  */
 @Entity
-@Table(name = "knowledge_entries")
+@Table(name = "knowledge_entries",
+       indexes = @Index(name = "idx_knowledge_entries_created_at", columnList = "created_at DESC, id DESC"))
+@Cacheable
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
 public class KnowledgeEntry {
 
+    // Sequence ids are allocated in blocks so bulk imports can be sent as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "knowledge_entry_seq")
+    @SequenceGenerator(name = "knowledge_entry_seq", sequenceName = "knowledge_entries_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 500)
@@ -0,0 +1,67 @@
+package com.example.ai.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a knowledge entry for listings: the id, category, confidence and
+ * creation time, and the first {@value #PREVIEW_LENGTH} characters of the question and
+ * answer. Summaries are not managed by JPA and are never cached.
+ */
+public class KnowledgeSummary {
+    public static final int PREVIEW_LENGTH = 100;
+
+    private final Long id;
+    private final String category;
+    private final String question;
+    private final String answer;
+    private final Double confidenceScore;
+    private final LocalDateTime createdAt;
+
+    /**
+     * Create a summary; texts longer than {@value #PREVIEW_LENGTH} characters are cut
+     * short and marked with an ellipsis
+     */
+    public KnowledgeSummary(Long id, String category, String question, String answer,
+                            Double confidenceScore, LocalDateTime createdAt) {
+        this.id = id;
+        this.category = category;
+        this.question = Previews.truncate(question, PREVIEW_LENGTH);
+        this.answer = Previews.truncate(answer, PREVIEW_LENGTH);
+        this.confidenceScore = confidenceScore;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public Double getConfidenceScore() {
+        return confidenceScore;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "KnowledgeSummary{" +
+                "id=" + id +
+                ", category='" + category + '\'' +
+                ", question='" + question + '\'' +
+                ", confidenceScore=" + confidenceScore +
+                '}';
+    }
+}
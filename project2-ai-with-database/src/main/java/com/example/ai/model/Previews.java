@@ -0,0 +1,21 @@
+package com.example.ai.model;
+
+/**
+ * Shortens texts for listings.
+ */
+final class Previews {
+
+    private Previews() {
+    }
+
+    /**
+     * The text itself if it has at most {@code length} characters, otherwise its first
+     * {@code length} characters followed by "..."
+     */
+    static String truncate(String text, int length) {
+        if (text == null || text.length() <= length) {
+            return text;
+        }
+        return text.substring(0, length) + "...";
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ai.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Hit and miss counts of the second-level entity cache and the query cache.
+ * Counts are only collected when hibernate.generate_statistics is enabled.
+ */
+public class CacheStatistics {
+    private final long entityHits;
+    private final long entityMisses;
+    private final long queryHits;
+    private final long queryMisses;
+
+    private CacheStatistics(long entityHits, long entityMisses, long queryHits, long queryMisses) {
+        this.entityHits = entityHits;
+        this.entityMisses = entityMisses;
+        this.queryHits = queryHits;
+        this.queryMisses = queryMisses;
+    }
+
+    /**
+     * Current counts of the given factory
+     */
+    public static CacheStatistics of(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return new CacheStatistics(
+            statistics.getSecondLevelCacheHitCount(),
+            statistics.getSecondLevelCacheMissCount(),
+            statistics.getQueryCacheHitCount(),
+            statistics.getQueryCacheMissCount()
+        );
+    }
+
+    public long getEntityHits() {
+        return entityHits;
+    }
+
+    public long getEntityMisses() {
+        return entityMisses;
+    }
+
+    public double getEntityHitRatio() {
+        return ratio(entityHits, entityMisses);
+    }
+
+    public long getQueryHits() {
+        return queryHits;
+    }
+
+    public long getQueryMisses() {
+        return queryMisses;
+    }
+
+    public double getQueryHitRatio() {
+        return ratio(queryHits, queryMisses);
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "Knowledge Cache:\n" +
+            "- Entity Cache: %d hits, %d misses (%.1f%% hit ratio)\n" +
+            "- Query Cache: %d hits, %d misses (%.1f%% hit ratio)",
+            entityHits, entityMisses, getEntityHitRatio() * 100,
+            queryHits, queryMisses, getQueryHitRatio() * 100
+        );
+    }
+}
@@ -1,102 +1,296 @@
 package com.example.ai.repository;
 
+import com.example.ai.archive.ConversationArchive;
 import com.example.ai.model.Conversation;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
+import com.example.ai.model.ConversationSummary;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Repository for performing CRUD operations on Conversation entities.
+ * Every method runs in the calling thread's {@link UnitOfWork}, so the repository can be
+ * shared between threads.
+ * <p>
+ * Listings of the whole table should use {@link #findPage(ConversationSummary, int)} or
+ * {@link #forEachSummary(Consumer)}: they read lightweight summaries, newest first, and
+ * hold at most one page or one fetch of rows in memory however large the table is.
+ * <p>
+ * With a {@link ConversationArchive}, conversations moved out of the table by the
+ * retention archiver are still found by every query method: results from the table
+ * and the archive are merged, and {@link #count()} includes both. Archived
+ * conversations are read-only; {@link #delete(Long)} only removes rows from the table.
  */
 public class ConversationRepository {
-    private final EntityManager entityManager;
+    private static final int STREAM_FETCH_SIZE = 500;
+    // Texts are cut in the database; one extra character tells the summary to add an ellipsis
+    private static final String SUMMARY_QUERY =
+        "SELECT new com.example.ai.model.ConversationSummary(c.id, c.timestamp, c.sessionId, " +
+        "SUBSTRING(c.userQuery, 1, " + (ConversationSummary.PREVIEW_LENGTH + 1) + "), " +
+        "SUBSTRING(c.aiResponse, 1, " + (ConversationSummary.PREVIEW_LENGTH + 1) + ")) " +
+        "FROM Conversation c ";
+    private static final String NEWEST_FIRST = "ORDER BY c.timestamp DESC, c.id DESC";
+    private static final Comparator<Conversation> OLDEST_FIRST =
+        Comparator.comparing(Conversation::getTimestamp).thenComparing(Conversation::getId);
+
+    private final UnitOfWork unitOfWork;
+    private final ConversationArchive archive;
+
+    public ConversationRepository(UnitOfWork unitOfWork) {
+        this(unitOfWork, null);
+    }
 
-    public ConversationRepository(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    /**
+     * Create a repository whose queries also search the given archive (may be null).
+     * Rows of the newest archive segment that are still in the table, left there by a
+     * crash between writing the segment and deleting its rows, are deleted first, so
+     * no conversation is found twice.
+     */
+    public ConversationRepository(UnitOfWork unitOfWork, ConversationArchive archive) {
+        this.unitOfWork = unitOfWork;
+        this.archive = archive;
+        if (archive != null) {
+            deleteAll(archive.newestSegmentIds());
+        }
     }
 
     /**
      * Create a new conversation record
      */
     public Conversation create(Conversation conversation) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            entityManager.persist(conversation);
-            transaction.commit();
-            return conversation;
+            return unitOfWork.execute(entityManager -> {
+                entityManager.persist(conversation);
+                return conversation;
+            });
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             throw new RuntimeException("Failed to create conversation", e);
         }
     }
 
+    /**
+     * Create many conversation records in one transaction.
+     * Inserts are sent as JDBC batches (see hibernate.jdbc.batch_size).
+     */
+    public void createAll(List<Conversation> conversations) {
+        try {
+            unitOfWork.run(entityManager -> {
+                for (Conversation conversation : conversations) {
+                    entityManager.persist(conversation);
+                }
+                entityManager.flush();
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create conversations", e);
+        }
+    }
+
     /**
      * Find conversation by ID
      */
     public Optional<Conversation> findById(Long id) {
-        Conversation conversation = entityManager.find(Conversation.class, id);
-        return Optional.ofNullable(conversation);
+        return withArchive(() -> {
+            Optional<Conversation> conversation = unitOfWork.execute(
+                entityManager -> Optional.ofNullable(entityManager.find(Conversation.class, id)));
+            if (conversation.isEmpty() && archive != null && id != null) {
+                return archive.findById(id);
+            }
+            return conversation;
+        });
     }
 
     /**
-     * Find all conversations
+     * Find all conversations.
+     * Loads every row as a managed entity; prefer {@link #findPage(ConversationSummary, int)}
+     * for large tables.
      */
     public List<Conversation> findAll() {
-        TypedQuery<Conversation> query = entityManager.createQuery(
-            "SELECT c FROM Conversation c ORDER BY c.timestamp DESC", 
-            Conversation.class
-        );
-        return query.getResultList();
+        return withArchive(() -> {
+            List<Conversation> conversations = unitOfWork.execute(entityManager -> entityManager.createQuery(
+                "SELECT c FROM Conversation c ORDER BY c.timestamp DESC",
+                Conversation.class
+            ).getResultList());
+            if (archive == null) {
+                return conversations;
+            }
+            List<Conversation> all = new ArrayList<>(conversations);
+            archive.forEach(all::add);
+            all.sort(OLDEST_FIRST.reversed());
+            return all;
+        });
+    }
+
+    /**
+     * Find a page of conversation summaries, newest first, starting after the given
+     * summary (or at the newest conversation if it is null).
+     * Pages are found by seeking past the last row's timestamp and id with the
+     * (timestamp, id) index, so every page costs the same, however deep it is.
+     */
+    public Page<ConversationSummary> findPage(ConversationSummary after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return withArchive(() -> {
+            List<ConversationSummary> rows = unitOfWork.execute(entityManager -> {
+                TypedQuery<ConversationSummary> query;
+                if (after == null) {
+                    query = entityManager.createQuery(SUMMARY_QUERY + NEWEST_FIRST, ConversationSummary.class);
+                } else {
+                    query = entityManager.createQuery(SUMMARY_QUERY +
+                        "WHERE c.timestamp <= :timestamp AND (c.timestamp < :timestamp OR c.id < :id) " + NEWEST_FIRST,
+                        ConversationSummary.class)
+                        .setParameter("timestamp", after.getTimestamp())
+                        .setParameter("id", after.getId());
+                }
+                return query.setMaxResults(pageSize + 1).getResultList();
+            });
+            if (archive != null) {
+                // The archive continues the same keyset order where the table leaves off
+                rows = new ArrayList<>(rows);
+                for (Conversation conversation : archive.findNewest(
+                        after != null ? after.getTimestamp() : null, after != null ? after.getId() : null, pageSize + 1)) {
+                    rows.add(summarize(conversation));
+                }
+                rows.sort(Comparator.comparing(ConversationSummary::getTimestamp)
+                    .thenComparing(ConversationSummary::getId).reversed());
+            }
+            return Page.of(rows.subList(0, Math.min(rows.size(), pageSize + 1)), pageSize);
+        });
+    }
+
+    /**
+     * Pass a summary of every conversation, newest first, to the given action; archived
+     * conversations follow those in the table. Rows are streamed from a database cursor
+     * a fetch at a time, inside one unit of work, and archive blocks are read one at a
+     * time. Returns the number of conversations visited.
+     */
+    public long forEachSummary(Consumer<ConversationSummary> action) {
+        return withArchive(() -> forEachTableSummary(action)
+            + (archive != null ? archive.forEach(conversation -> action.accept(summarize(conversation))) : 0));
+    }
+
+    private long forEachTableSummary(Consumer<ConversationSummary> action) {
+        return unitOfWork.execute(entityManager -> {
+            long visited = 0;
+            try (Stream<ConversationSummary> summaries = entityManager.createQuery(
+                    SUMMARY_QUERY + NEWEST_FIRST, ConversationSummary.class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                    .getResultStream()) {
+                Iterator<ConversationSummary> iterator = summaries.iterator();
+                while (iterator.hasNext()) {
+                    action.accept(iterator.next());
+                    visited++;
+                }
+            }
+            return visited;
+        });
     }
 
     /**
      * Find conversations by session ID
      */
     public List<Conversation> findBySessionId(String sessionId) {
-        TypedQuery<Conversation> query = entityManager.createQuery(
-            "SELECT c FROM Conversation c WHERE c.sessionId = :sessionId ORDER BY c.timestamp ASC", 
-            Conversation.class
-        );
-        query.setParameter("sessionId", sessionId);
-        return query.getResultList();
+        return withArchive(() -> {
+            List<Conversation> conversations = unitOfWork.execute(entityManager -> entityManager.createQuery(
+                "SELECT c FROM Conversation c WHERE c.sessionId = :sessionId ORDER BY c.timestamp ASC",
+                Conversation.class
+            ).setParameter("sessionId", sessionId).getResultList());
+            if (archive == null) {
+                return conversations;
+            }
+            List<Conversation> all = new ArrayList<>(archive.findBySessionId(sessionId));
+            all.addAll(conversations);
+            all.sort(OLDEST_FIRST);
+            return all;
+        });
     }
 
     /**
      * Get recent conversations (last N)
      */
     public List<Conversation> findRecent(int limit) {
-        TypedQuery<Conversation> query = entityManager.createQuery(
-            "SELECT c FROM Conversation c ORDER BY c.timestamp DESC", 
+        return withArchive(() -> {
+            List<Conversation> conversations = unitOfWork.execute(entityManager -> entityManager.createQuery(
+                "SELECT c FROM Conversation c ORDER BY c.timestamp DESC",
+                Conversation.class
+            ).setMaxResults(limit).getResultList());
+            if (archive == null) {
+                return conversations;
+            }
+            List<Conversation> recent = new ArrayList<>(conversations);
+            recent.addAll(archive.findNewest(null, null, limit));
+            recent.sort(OLDEST_FIRST.reversed());
+            return recent.subList(0, Math.min(recent.size(), limit));
+        });
+    }
+
+    /**
+     * Find the oldest conversations in the table written before the given time,
+     * oldest first, for archiving
+     */
+    public List<Conversation> findOlderThan(LocalDateTime cutoff, int limit) {
+        return unitOfWork.execute(entityManager -> entityManager.createQuery(
+            "SELECT c FROM Conversation c WHERE c.timestamp < :cutoff ORDER BY c.timestamp ASC, c.id ASC",
             Conversation.class
-        );
-        query.setMaxResults(limit);
-        return query.getResultList();
+        ).setParameter("cutoff", cutoff).setMaxResults(limit).getResultList());
+    }
+
+    /**
+     * Delete many conversations from the table in one transaction, sent as one JDBC
+     * batch. Ids that are not in the table are ignored. Returns the number of rows deleted.
+     */
+    public int deleteAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            return unitOfWork.execute(entityManager -> {
+                int[] deleted = new int[1];
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "DELETE FROM conversations WHERE id = ?")) {
+                        for (Long id : ids) {
+                            statement.setLong(1, id);
+                            statement.addBatch();
+                        }
+                        for (int count : statement.executeBatch()) {
+                            deleted[0] += Math.max(count, 0);
+                        }
+                    }
+                });
+                return deleted[0];
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to delete conversations", e);
+        }
     }
 
     /**
      * Delete a conversation by ID
      */
     public boolean delete(Long id) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            Conversation conversation = entityManager.find(Conversation.class, id);
-            if (conversation != null) {
+            return unitOfWork.execute(entityManager -> {
+                Conversation conversation = entityManager.find(Conversation.class, id);
+                if (conversation == null) {
+                    return false;
+                }
                 entityManager.remove(conversation);
-                transaction.commit();
                 return true;
-            }
-            transaction.commit();
-            return false;
+            });
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             throw new RuntimeException("Failed to delete conversation", e);
         }
     }
@@ -105,10 +299,29 @@ public class ConversationRepository {
      * Count total conversations
      */
     public long count() {
-        TypedQuery<Long> query = entityManager.createQuery(
-            "SELECT COUNT(c) FROM Conversation c", 
+        return withArchive(() -> unitOfWork.execute(entityManager -> entityManager.createQuery(
+            "SELECT COUNT(c) FROM Conversation c",
             Long.class
-        );
-        return query.getSingleResult();
+        ).getSingleResult()) + (archive != null ? archive.count() : 0));
+    }
+
+    /**
+     * The archive, or null if this repository only reads the table
+     */
+    public ConversationArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Run a query that reads both the table and the archive so that archiving cannot
+     * move rows between them halfway through
+     */
+    private <T> T withArchive(Supplier<T> query) {
+        return archive != null ? archive.read(query) : query.get();
+    }
+
+    private static ConversationSummary summarize(Conversation conversation) {
+        return new ConversationSummary(conversation.getId(), conversation.getTimestamp(), conversation.getSessionId(),
+            conversation.getUserQuery(), conversation.getAiResponse());
     }
 }
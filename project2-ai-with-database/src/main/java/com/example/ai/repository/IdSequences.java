@@ -0,0 +1,44 @@
+package com.example.ai.repository;
+
+/**
+ * Keeps id sequences ahead of the ids already stored in their tables.
+ * Databases created before an entity switched from identity columns to a sequence
+ * contain rows the new sequence knows nothing about; without this the first inserts
+ * would reuse existing ids.
+ */
+public final class IdSequences {
+
+    private IdSequences() {
+    }
+
+    /**
+     * Restart the sequence after the highest id in the table if it is behind
+     */
+    public static void alignWithTable(UnitOfWork unitOfWork, String sequence, String table) {
+        alignWithTable(unitOfWork, sequence, table, 0);
+    }
+
+    /**
+     * Restart the sequence after the highest id in the table, or after {@code usedId} if
+     * that is higher, if it is behind. Ids of rows kept outside the table, such as
+     * archived conversations, must not be handed out again either.
+     */
+    public static void alignWithTable(UnitOfWork unitOfWork, String sequence, String table, long usedId) {
+        try {
+            unitOfWork.run(entityManager -> {
+                long maxId = Math.max(usedId, ((Number) entityManager.createNativeQuery(
+                    "SELECT COALESCE(MAX(id), 0) FROM " + table).getSingleResult()).longValue());
+                long nextValue = ((Number) entityManager.createNativeQuery(
+                    "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = UPPER(:name)")
+                    .setParameter("name", sequence)
+                    .getSingleResult()).longValue();
+                if (nextValue <= maxId) {
+                    entityManager.createNativeQuery("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxId + 1))
+                        .executeUpdate();
+                }
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to align sequence " + sequence, e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.ai.repository;
+
+/**
+ * Progress of a bulk import: rows committed so far and the rate they were written at.
+ */
+public class ImportStats {
+    private final long rows;
+    private final long elapsedNanos;
+
+    public ImportStats(long rows, long elapsedNanos) {
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows in %.1f s (%,.0f rows/s)", rows, elapsedNanos / 1e9, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ai.repository;
+
+import com.example.ai.model.KnowledgeEntry;
+
+import java.util.Map;
+
+/**
+ * Callback for components that mirror knowledge entries outside the database.
+ * Listeners are notified after the change has been committed.
+ */
+public interface KnowledgeChangeListener {
+
+    /**
+     * Called after an entry was created or updated
+     */
+    void onSaved(KnowledgeEntry entry);
+
+    /**
+     * Called after an entry was deleted
+     */
+    void onDeleted(Long id);
+
+    /**
+     * Called after confidence scores were raised in bulk, with the amount added per entry id
+     */
+    default void onConfidenceAdded(Map<Long, Double> deltas) {
+    }
+}
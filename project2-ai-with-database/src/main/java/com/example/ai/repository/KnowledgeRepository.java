@@ -1,120 +1,356 @@
 package com.example.ai.repository;
 
 import com.example.ai.model.KnowledgeEntry;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
+import com.example.ai.model.KnowledgeSummary;
+import jakarta.persistence.Cache;
+import jakarta.persistence.CacheStoreMode;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Repository for performing CRUD operations on KnowledgeEntry entities.
+ * Every method runs in the calling thread's {@link UnitOfWork}, so the repository can be
+ * shared between threads.
+ * <p>
+ * Entries live in the second-level cache and the results of {@link #findAll()},
+ * {@link #findByCategory(String)} and {@link #count()} in the query cache, so repeated
+ * reads do not reach the database. Writes through JPA invalidate both caches;
+ * {@link #addConfidence(Map)} bypasses JPA and evicts the entries it changed and the
+ * listings, which carry confidence scores, itself. The listings are cached in their own
+ * region, {@value #LISTINGS_REGION}, so that eviction leaves the count cached.
+ * <p>
+ * Listings of the whole table should use {@link #findPage(KnowledgeSummary, int)} or
+ * {@link #forEachSummary(Consumer)}: they read lightweight summaries, newest first, and
+ * hold at most one page or one fetch of rows in memory however large the table is.
  */
 public class KnowledgeRepository {
-    private final EntityManager entityManager;
+    private static final int STREAM_FETCH_SIZE = 500;
+    // Texts are cut in the database; one extra character tells the summary to add an ellipsis
+    private static final String SUMMARY_QUERY =
+        "SELECT new com.example.ai.model.KnowledgeSummary(k.id, k.category, " +
+        "SUBSTRING(k.question, 1, " + (KnowledgeSummary.PREVIEW_LENGTH + 1) + "), " +
+        "SUBSTRING(k.answer, 1, " + (KnowledgeSummary.PREVIEW_LENGTH + 1) + "), " +
+        "k.confidenceScore, k.createdAt) " +
+        "FROM KnowledgeEntry k ";
+    private static final String NEWEST_FIRST = "ORDER BY k.createdAt DESC, k.id DESC";
+    // Query cache regions, sized in ehcache.xml
+    static final String LISTINGS_REGION = "knowledge-listings";
+    static final String COUNT_REGION = "knowledge-count";
+
+    private final UnitOfWork unitOfWork;
+    private final List<KnowledgeChangeListener> listeners = new CopyOnWriteArrayList<>();
 
-    public KnowledgeRepository(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    public KnowledgeRepository(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    /**
+     * Register a listener to be notified after entries are saved or deleted
+     */
+    public void addChangeListener(KnowledgeChangeListener listener) {
+        listeners.add(listener);
     }
 
     /**
      * Create a new knowledge entry
      */
     public KnowledgeEntry create(KnowledgeEntry entry) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            entityManager.persist(entry);
-            transaction.commit();
-            return entry;
+            return unitOfWork.execute(entityManager -> {
+                entityManager.persist(entry);
+                unitOfWork.afterCommit(() -> listeners.forEach(listener -> listener.onSaved(entry)));
+                return entry;
+            });
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             throw new RuntimeException("Failed to create knowledge entry", e);
         }
     }
 
+    /**
+     * Import a stream of new entries in chunks, one transaction per chunk.
+     * Inserts within a chunk are sent as JDBC batches (see hibernate.jdbc.batch_size),
+     * and the persistence context is cleared after each chunk, so memory use depends on
+     * the chunk size, not on the number of entries. Progress is reported after every
+     * chunk. If a chunk fails, the chunks before it stay committed, unless the import
+     * itself runs inside a unit of work.
+     */
+    public ImportStats importEntries(Stream<KnowledgeEntry> entries, int chunkSize, Consumer<ImportStats> progress) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        long start = System.nanoTime();
+        long rows = 0;
+        List<KnowledgeEntry> chunk = new ArrayList<>(chunkSize);
+        Iterator<KnowledgeEntry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                persistChunk(new ArrayList<>(chunk), rows);
+                rows += chunk.size();
+                chunk.clear();
+                progress.accept(new ImportStats(rows, System.nanoTime() - start));
+            }
+        }
+        return new ImportStats(rows, System.nanoTime() - start);
+    }
+
+    private void persistChunk(List<KnowledgeEntry> chunk, long rowsBefore) {
+        try {
+            unitOfWork.run(entityManager -> {
+                // Bulk-loaded rows would only push frequently read entries out of the cache
+                entityManager.setProperty("jakarta.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+                for (KnowledgeEntry entry : chunk) {
+                    entityManager.persist(entry);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                unitOfWork.afterCommit(() -> {
+                    for (KnowledgeEntry entry : chunk) {
+                        listeners.forEach(listener -> listener.onSaved(entry));
+                    }
+                });
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to import knowledge entries after row " + rowsBefore, e);
+        }
+    }
+
     /**
      * Find knowledge entry by ID
      */
     public Optional<KnowledgeEntry> findById(Long id) {
-        KnowledgeEntry entry = entityManager.find(KnowledgeEntry.class, id);
-        return Optional.ofNullable(entry);
+        return unitOfWork.execute(entityManager -> Optional.ofNullable(entityManager.find(KnowledgeEntry.class, id)));
     }
 
     /**
-     * Find all knowledge entries
+     * Find all knowledge entries.
+     * Loads every row as an entity; prefer {@link #findPage(KnowledgeSummary, int)} for
+     * large tables.
      */
     public List<KnowledgeEntry> findAll() {
-        TypedQuery<KnowledgeEntry> query = entityManager.createQuery(
-            "SELECT k FROM KnowledgeEntry k ORDER BY k.createdAt DESC", 
+        return unitOfWork.execute(entityManager -> entityManager.createQuery(
+            "SELECT k FROM KnowledgeEntry k ORDER BY k.createdAt DESC",
             KnowledgeEntry.class
-        );
-        return query.getResultList();
+        ).setHint(HibernateHints.HINT_CACHEABLE, true)
+            .setHint(HibernateHints.HINT_CACHE_REGION, LISTINGS_REGION)
+            .getResultList());
+    }
+
+    /**
+     * Find a page of knowledge entry summaries, newest first, starting after the given
+     * summary (or at the newest entry if it is null).
+     * Pages are found by seeking past the last row's creation time and id with the
+     * (created_at, id) index, so every page costs the same, however deep it is.
+     */
+    public Page<KnowledgeSummary> findPage(KnowledgeSummary after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return unitOfWork.execute(entityManager -> {
+            TypedQuery<KnowledgeSummary> query;
+            if (after == null) {
+                query = entityManager.createQuery(SUMMARY_QUERY + NEWEST_FIRST, KnowledgeSummary.class);
+            } else {
+                query = entityManager.createQuery(SUMMARY_QUERY +
+                    "WHERE k.createdAt <= :createdAt AND (k.createdAt < :createdAt OR k.id < :id) " + NEWEST_FIRST,
+                    KnowledgeSummary.class)
+                    .setParameter("createdAt", after.getCreatedAt())
+                    .setParameter("id", after.getId());
+            }
+            return Page.of(query.setMaxResults(pageSize + 1).getResultList(), pageSize);
+        });
+    }
+
+    /**
+     * Pass a summary of every knowledge entry, newest first, to the given action.
+     * Rows are streamed from a database cursor a fetch at a time, inside one unit of
+     * work. Returns the number of entries visited.
+     */
+    public long forEachSummary(Consumer<KnowledgeSummary> action) {
+        return unitOfWork.execute(entityManager -> {
+            long visited = 0;
+            try (Stream<KnowledgeSummary> summaries = entityManager.createQuery(
+                    SUMMARY_QUERY + NEWEST_FIRST, KnowledgeSummary.class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                    .getResultStream()) {
+                Iterator<KnowledgeSummary> iterator = summaries.iterator();
+                while (iterator.hasNext()) {
+                    action.accept(iterator.next());
+                    visited++;
+                }
+            }
+            return visited;
+        });
+    }
+
+    /**
+     * Pass every knowledge entry to the given action in ascending id order, streamed
+     * like {@link #forEachSummary(Consumer)}. Each entry is detached once the action has
+     * seen it and bypasses the second-level cache, so a full pass holds one fetch of
+     * entries in memory. Returns the number of entries visited.
+     */
+    public long forEachEntry(Consumer<KnowledgeEntry> action) {
+        return unitOfWork.execute(entityManager -> {
+            long visited = 0;
+            try (Stream<KnowledgeEntry> entries = entityManager.createQuery(
+                    "SELECT k FROM KnowledgeEntry k ORDER BY k.id", KnowledgeEntry.class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                    .setHint("jakarta.persistence.cache.storeMode", CacheStoreMode.BYPASS)
+                    .getResultStream()) {
+                Iterator<KnowledgeEntry> iterator = entries.iterator();
+                while (iterator.hasNext()) {
+                    KnowledgeEntry entry = iterator.next();
+                    action.accept(entry);
+                    entityManager.detach(entry);
+                    visited++;
+                }
+            }
+            return visited;
+        });
+    }
+
+    /**
+     * Pass the id and full question of every knowledge entry to the given action, in no
+     * particular order, streamed like {@link #forEachSummary(Consumer)}. Returns the
+     * number of entries visited.
+     */
+    public long forEachQuestion(BiConsumer<Long, String> action) {
+        return unitOfWork.execute(entityManager -> {
+            long visited = 0;
+            try (Stream<Object[]> rows = entityManager.createQuery(
+                    "SELECT k.id, k.question FROM KnowledgeEntry k", Object[].class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                    .getResultStream()) {
+                Iterator<Object[]> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    action.accept((Long) row[0], (String) row[1]);
+                    visited++;
+                }
+            }
+            return visited;
+        });
     }
 
     /**
      * Find knowledge entries by category
      */
     public List<KnowledgeEntry> findByCategory(String category) {
-        TypedQuery<KnowledgeEntry> query = entityManager.createQuery(
-            "SELECT k FROM KnowledgeEntry k WHERE k.category = :category ORDER BY k.createdAt DESC", 
+        return unitOfWork.execute(entityManager -> entityManager.createQuery(
+            "SELECT k FROM KnowledgeEntry k WHERE k.category = :category ORDER BY k.createdAt DESC",
             KnowledgeEntry.class
-        );
-        query.setParameter("category", category);
-        return query.getResultList();
+        ).setParameter("category", category)
+            .setHint(HibernateHints.HINT_CACHEABLE, true)
+            .setHint(HibernateHints.HINT_CACHE_REGION, LISTINGS_REGION)
+            .getResultList());
     }
 
     /**
      * Search knowledge entries by question pattern
      */
     public List<KnowledgeEntry> searchByQuestion(String searchTerm) {
-        TypedQuery<KnowledgeEntry> query = entityManager.createQuery(
-            "SELECT k FROM KnowledgeEntry k WHERE LOWER(k.question) LIKE LOWER(:searchTerm) ORDER BY k.confidenceScore DESC", 
+        return searchByQuestion(searchTerm, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Search knowledge entries by question pattern, returning at most {@code limit} entries
+     */
+    public List<KnowledgeEntry> searchByQuestion(String searchTerm, int limit) {
+        return unitOfWork.execute(entityManager -> entityManager.createQuery(
+            "SELECT k FROM KnowledgeEntry k WHERE LOWER(k.question) LIKE LOWER(:searchTerm) ORDER BY k.confidenceScore DESC",
             KnowledgeEntry.class
-        );
-        query.setParameter("searchTerm", "%" + searchTerm + "%");
-        return query.getResultList();
+        ).setParameter("searchTerm", "%" + searchTerm + "%").setMaxResults(limit).getResultList());
     }
 
     /**
      * Update an existing knowledge entry
      */
     public KnowledgeEntry update(KnowledgeEntry entry) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            KnowledgeEntry updated = entityManager.merge(entry);
-            transaction.commit();
-            return updated;
+            return unitOfWork.execute(entityManager -> {
+                KnowledgeEntry updated = entityManager.merge(entry);
+                unitOfWork.afterCommit(() -> listeners.forEach(listener -> listener.onSaved(updated)));
+                return updated;
+            });
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             throw new RuntimeException("Failed to update knowledge entry", e);
         }
     }
 
+    /**
+     * Add to the confidence scores of many entries in one transaction.
+     * The additions are sent as one JDBC batch of
+     * {@code UPDATE ... SET confidence_score = confidence_score + ?} statements, so
+     * concurrent increments are never lost the way read-modify-write merges can be.
+     * Returns the number of rows updated.
+     */
+    public int addConfidence(Map<Long, Double> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        try {
+            return unitOfWork.execute(entityManager -> {
+                int[] updated = new int[1];
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "UPDATE knowledge_entries SET confidence_score = COALESCE(confidence_score, 0) + ?, " +
+                            "updated_at = ? WHERE id = ?")) {
+                        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                        for (Map.Entry<Long, Double> delta : deltas.entrySet()) {
+                            statement.setDouble(1, delta.getValue());
+                            statement.setTimestamp(2, now);
+                            statement.setLong(3, delta.getKey());
+                            statement.addBatch();
+                        }
+                        for (int count : statement.executeBatch()) {
+                            updated[0] += Math.max(count, 0);
+                        }
+                    }
+                });
+                // The statements bypassed Hibernate, so drop the cached copies of the changed rows;
+                // cached listings hold row data too. The count does not depend on scores.
+                Cache cache = entityManager.getEntityManagerFactory().getCache();
+                unitOfWork.afterCommit(() -> {
+                    deltas.keySet().forEach(id -> cache.evict(KnowledgeEntry.class, id));
+                    cache.unwrap(org.hibernate.Cache.class).evictQueryRegion(LISTINGS_REGION);
+                    listeners.forEach(listener -> listener.onConfidenceAdded(deltas));
+                });
+                return updated[0];
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to update confidence scores", e);
+        }
+    }
+
     /**
      * Delete a knowledge entry by ID
      */
     public boolean delete(Long id) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            KnowledgeEntry entry = entityManager.find(KnowledgeEntry.class, id);
-            if (entry != null) {
+            return unitOfWork.execute(entityManager -> {
+                KnowledgeEntry entry = entityManager.find(KnowledgeEntry.class, id);
+                if (entry == null) {
+                    return false;
+                }
                 entityManager.remove(entry);
-                transaction.commit();
+                unitOfWork.afterCommit(() -> listeners.forEach(listener -> listener.onDeleted(id)));
                 return true;
-            }
-            transaction.commit();
-            return false;
+            });
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             throw new RuntimeException("Failed to delete knowledge entry", e);
         }
     }
@@ -123,10 +359,11 @@ public class KnowledgeRepository {
      * Count total knowledge entries
      */
     public long count() {
-        TypedQuery<Long> query = entityManager.createQuery(
-            "SELECT COUNT(k) FROM KnowledgeEntry k", 
+        return unitOfWork.execute(entityManager -> entityManager.createQuery(
+            "SELECT COUNT(k) FROM KnowledgeEntry k",
             Long.class
-        );
-        return query.getSingleResult();
+        ).setHint(HibernateHints.HINT_CACHEABLE, true)
+            .setHint(HibernateHints.HINT_CACHE_REGION, COUNT_REGION)
+            .getSingleResult());
     }
 }
@@ -0,0 +1,49 @@
+package com.example.ai.repository;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. Pass the last item of a page to the
+ * repository to get the page after it.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final boolean hasNext;
+
+    public Page(List<T> items, boolean hasNext) {
+        this.items = List.copyOf(items);
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Whether more items follow this page
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * The item to continue after, or null if the page is empty
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Split a result fetched with one row more than the page size into the page and
+     * whether more rows follow
+     */
+    static <T> Page<T> of(List<T> rows, int pageSize) {
+        return rows.size() > pageSize
+            ? new Page<>(rows.subList(0, pageSize), true)
+            : new Page<>(rows, false);
+    }
+}
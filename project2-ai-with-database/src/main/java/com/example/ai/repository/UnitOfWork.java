@@ -0,0 +1,117 @@
+package com.example.ai.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Gives each thread its own EntityManager and transaction for the duration of a piece of work.
+ * <p>
+ * EntityManagers are not thread-safe, so instead of sharing one, every call to
+ * {@link #execute(Function)} opens an EntityManager from the factory, begins a
+ * transaction, runs the work, commits and closes it again. A call made while the same
+ * thread is already inside a unit joins it instead, so a service method can wrap several
+ * repository calls in one transaction simply by running them inside {@code execute}.
+ * <p>
+ * If the work throws, the whole unit is rolled back, including work done by calls that
+ * joined it. Entities returned from a unit are detached once it ends.
+ */
+public class UnitOfWork {
+    private final EntityManagerFactory entityManagerFactory;
+    private final ThreadLocal<Work> current = new ThreadLocal<>();
+
+    public UnitOfWork(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Factory the units' EntityManagers come from
+     */
+    public EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    /**
+     * Run work in the calling thread's unit, starting one if there is none, and return its result
+     */
+    public <T> T execute(Function<EntityManager, T> work) {
+        Work existing = current.get();
+        if (existing != null) {
+            try {
+                return work.apply(existing.entityManager);
+            } catch (RuntimeException | Error e) {
+                existing.transaction.setRollbackOnly();
+                throw e;
+            }
+        }
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        Work unit = new Work(entityManager);
+        current.set(unit);
+        try {
+            unit.transaction.begin();
+            T result = work.apply(entityManager);
+            if (unit.transaction.getRollbackOnly()) {
+                throw new IllegalStateException("Transaction was marked for rollback");
+            }
+            unit.transaction.commit();
+            current.remove();
+            unit.afterCommit.forEach(Runnable::run);
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (unit.transaction.isActive()) {
+                unit.transaction.rollback();
+            }
+            throw e;
+        } finally {
+            current.remove();
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Run work that returns nothing in the calling thread's unit
+     */
+    public void run(Consumer<EntityManager> work) {
+        execute(entityManager -> {
+            work.accept(entityManager);
+            return null;
+        });
+    }
+
+    /**
+     * Run an action once the calling thread's unit has committed, or right away if there is
+     * no unit. Actions are dropped if the unit rolls back.
+     */
+    public void afterCommit(Runnable action) {
+        Work existing = current.get();
+        if (existing != null) {
+            existing.afterCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Whether the calling thread is inside a unit
+     */
+    public boolean isActive() {
+        return current.get() != null;
+    }
+
+    private static final class Work {
+        final EntityManager entityManager;
+        final EntityTransaction transaction;
+        final List<Runnable> afterCommit = new ArrayList<>();
+
+        Work(EntityManager entityManager) {
+            this.entityManager = entityManager;
+            this.transaction = entityManager.getTransaction();
+        }
+    }
+}
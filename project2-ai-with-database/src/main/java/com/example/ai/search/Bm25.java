@@ -0,0 +1,50 @@
+package com.example.ai.search;
+
+/**
+ * The ranking formula shared by {@link KnowledgeIndex} and the knowledge snapshot: BM25
+ * over question words, lifted by the entry's confidence score.
+ */
+public final class Bm25 {
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // How strongly a higher confidence score lifts the ranking
+    private static final double CONFIDENCE_WEIGHT = 0.2;
+    // Minimum share of the query's idf weight a candidate must match
+    private static final double MIN_QUERY_COVERAGE = 0.4;
+
+    private Bm25() {
+    }
+
+    /**
+     * Inverse document frequency of a word found in {@code documentFrequency} of
+     * {@code documents} questions
+     */
+    public static double idf(int documents, int documentFrequency) {
+        return Math.log(1 + (documents - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Contribution of one query word occurring {@code frequency} times in a question of
+     * {@code length} words
+     */
+    public static double termScore(double idf, int frequency, int length, double averageLength) {
+        double norm = K1 * (1 - B + B * length / averageLength);
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    /**
+     * Whether a candidate matching {@code matchedWeight} of the query's idf weight covers
+     * enough of it; common words alone ("what", "is") do not
+     */
+    public static boolean coversQuery(double matchedWeight, double queryWeight) {
+        return matchedWeight >= MIN_QUERY_COVERAGE * queryWeight;
+    }
+
+    /**
+     * Final score of a candidate from its BM25 score and confidence score
+     */
+    public static double score(double bm25, double confidence) {
+        return bm25 * (1 + CONFIDENCE_WEIGHT * Math.log1p(Math.max(0, confidence)));
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.ai.search;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeChangeListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Semantic search over knowledge entry questions: every question is embedded with a
+ * {@link TextEmbedder} and a query is answered by the entries whose vectors have the
+ * highest cosine similarity with its own.
+ * <p>
+ * Vectors are kept off the Java heap in a memory-mapped file of little-endian floats,
+ * one fixed-size slot per entry, mapped in chunks of {@value #CHUNK_VECTORS} vectors so
+ * the store is not limited to 2 GB. A search scans every slot with a
+ * {@link VectorSimilarity} (the JDK Vector API where available) into a reused score
+ * buffer and keeps the best {@code k} in two small arrays, so it allocates nothing per
+ * vector; large stores are scanned in parallel on the common fork-join pool. Hits below
+ * the minimum similarity are dropped, so unrelated queries get no answer.
+ * <p>
+ * The store is filled at startup and kept in sync by registering it as a
+ * {@link KnowledgeChangeListener} on the repository. Slots of deleted entries are
+ * zeroed and reused. The file is scratch space, rebuilt on every start and unlinked as
+ * soon as it is open where the platform allows, so it never outlives the process.
+ */
+public class EmbeddingStore implements KnowledgeChangeListener, SearchBackend, AutoCloseable {
+    public static final double DEFAULT_MIN_SIMILARITY = 0.25;
+
+    static final int CHUNK_VECTORS = 16_384;
+    // Below this many slots one thread scans faster than handing out work
+    private static final int PARALLEL_MIN_SLOTS = 4 * CHUNK_VECTORS;
+    private static final long FREE = 0;
+
+    private final TextEmbedder embedder;
+    private final int dimensions;
+    private final int chunkBytes;
+    private final double minSimilarity;
+    private final VectorSimilarity similarity = VectorSimilarity.load();
+    private final FileChannel channel;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<float[]> scoreBuffers = ThreadLocal.withInitial(() -> new float[CHUNK_VECTORS]);
+
+    // Entry id per slot, FREE for unused slots; the slot of each entry id
+    private long[] slotIds = new long[1024];
+    private final Map<Long, Integer> slotByEntryId = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int slotCount;
+    private final float[] vectorBuffer;
+
+    private EmbeddingStore(FileChannel channel, TextEmbedder embedder, double minSimilarity) {
+        this.channel = channel;
+        this.embedder = embedder;
+        this.dimensions = embedder.getDimensions();
+        this.chunkBytes = CHUNK_VECTORS * dimensions * Float.BYTES;
+        this.minSimilarity = minSimilarity;
+        this.vectorBuffer = new float[dimensions];
+    }
+
+    /**
+     * Create an empty store backed by a new temporary file
+     */
+    public static EmbeddingStore createTemporary(TextEmbedder embedder, double minSimilarity) {
+        try {
+            Path file = Files.createTempFile("ai-embeddings-", ".f32");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                // Open files cannot be deleted on Windows
+                file.toFile().deleteOnExit();
+            }
+            return new EmbeddingStore(channel, embedder, minSimilarity);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create embedding store", e);
+        }
+    }
+
+    /**
+     * Create a store configured from the ai.embeddings.dimensions and
+     * ai.embeddings.minSimilarity system properties
+     */
+    public static EmbeddingStore fromSystemProperties() {
+        return createTemporary(
+            new TextEmbedder(Integer.getInteger("ai.embeddings.dimensions", TextEmbedder.DEFAULT_DIMENSIONS)),
+            Double.parseDouble(System.getProperty("ai.embeddings.minSimilarity",
+                String.valueOf(DEFAULT_MIN_SIMILARITY))));
+    }
+
+    /**
+     * Replace the contents of the store with the given entries
+     */
+    public void rebuild(Collection<KnowledgeEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (slotIds[slot] != FREE) {
+                    clear(slot);
+                }
+            }
+            slotByEntryId.clear();
+            freeSlots.clear();
+            slotCount = 0;
+            for (KnowledgeEntry entry : entries) {
+                put(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSaved(KnowledgeEntry entry) {
+        lock.writeLock().lock();
+        try {
+            put(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByEntryId.remove(id);
+            if (slot != null) {
+                clear(slot);
+                freeSlots.push(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the {@code k} entries whose questions are most similar to the query, best
+     * first; the score of each hit is its cosine similarity
+     */
+    @Override
+    public List<KnowledgeIndex.SearchHit> search(String query, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        float[] queryVector = embedder.embed(query);
+
+        lock.readLock().lock();
+        try {
+            int chunkCount = (slotCount + CHUNK_VECTORS - 1) / CHUNK_VECTORS;
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            TopHits best;
+            if (slotCount < PARALLEL_MIN_SLOTS || parallelism < 2) {
+                best = scan(queryVector, k, 0, chunkCount);
+            } else {
+                // Contiguous runs of chunks, one per worker; the caller scans the first itself
+                int tasks = Math.min(parallelism, chunkCount);
+                List<ForkJoinTask<TopHits>> forked = new ArrayList<>(tasks - 1);
+                for (int t = 1; t < tasks; t++) {
+                    int from = chunkCount * t / tasks;
+                    int to = chunkCount * (t + 1) / tasks;
+                    forked.add(ForkJoinPool.commonPool().submit(() -> scan(queryVector, k, from, to)));
+                }
+                best = scan(queryVector, k, 0, chunkCount / tasks);
+                for (ForkJoinTask<TopHits> task : forked) {
+                    best.addAll(task.join());
+                }
+            }
+            return best.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "embedding scan (" + dimensions + " dimensions, " + similarity.getName() + ")";
+    }
+
+    /**
+     * Number of entries in the store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByEntryId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Empty the store and close its file; the mapped memory is released once the
+     * buffers are garbage collected, as Java cannot unmap them explicitly
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            chunks.clear();
+            slotByEntryId.clear();
+            freeSlots.clear();
+            slotCount = 0;
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close embedding store", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TopHits scan(float[] queryVector, int k, int fromChunk, int toChunk) {
+        TopHits best = new TopHits(k, minSimilarity);
+        float[] scores = scoreBuffers.get();
+        for (int c = fromChunk; c < toChunk; c++) {
+            int first = c * CHUNK_VECTORS;
+            int count = Math.min(CHUNK_VECTORS, slotCount - first);
+            similarity.dotProducts(chunks.get(c), 0, count, queryVector, scores);
+            for (int i = 0; i < count; i++) {
+                if (scores[i] > best.threshold() && slotIds[first + i] != FREE) {
+                    best.add(slotIds[first + i], scores[i]);
+                }
+            }
+        }
+        return best;
+    }
+
+    private void put(KnowledgeEntry entry) {
+        Integer slot = slotByEntryId.get(entry.getId());
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+            ensureCapacity(slot);
+            slotByEntryId.put(entry.getId(), slot);
+            slotIds[slot] = entry.getId();
+        }
+        embedder.embed(entry.getQuestion(), vectorBuffer);
+        write(slot, vectorBuffer);
+    }
+
+    private void clear(int slot) {
+        slotIds[slot] = FREE;
+        Arrays.fill(vectorBuffer, 0f);
+        write(slot, vectorBuffer);
+    }
+
+    private void write(int slot, float[] vector) {
+        ByteBuffer chunk = chunks.get(slot / CHUNK_VECTORS);
+        int offset = (slot % CHUNK_VECTORS) * dimensions * Float.BYTES;
+        for (int i = 0; i < dimensions; i++) {
+            chunk.putFloat(offset + i * Float.BYTES, vector[i]);
+        }
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot >= slotIds.length) {
+            slotIds = Arrays.copyOf(slotIds, Math.max(slotIds.length * 2, slot + 1));
+        }
+        while (chunks.size() <= slot / CHUNK_VECTORS) {
+            try {
+                // Mapping past the end of the file grows it
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) chunks.size() * chunkBytes, chunkBytes);
+                chunks.add(chunk.order(ByteOrder.LITTLE_ENDIAN));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to grow embedding store", e);
+            }
+        }
+    }
+
+    /**
+     * The best hits seen so far, best first, in two arrays of at most k entries
+     */
+    private static final class TopHits {
+        private final long[] ids;
+        private final float[] scores;
+        private final float minScore;
+        private int size;
+
+        TopHits(int k, double minSimilarity) {
+            this.ids = new long[k];
+            this.scores = new float[k];
+            this.minScore = (float) minSimilarity;
+        }
+
+        /**
+         * Score a candidate must beat to get in
+         */
+        float threshold() {
+            return size < ids.length ? Math.nextDown(minScore) : scores[size - 1];
+        }
+
+        void add(long id, float score) {
+            int at = size < ids.length ? size++ : size - 1;
+            while (at > 0 && scores[at - 1] < score) {
+                ids[at] = ids[at - 1];
+                scores[at] = scores[at - 1];
+                at--;
+            }
+            ids[at] = id;
+            scores[at] = score;
+        }
+
+        void addAll(TopHits other) {
+            for (int i = 0; i < other.size; i++) {
+                if (other.scores[i] > threshold()) {
+                    add(other.ids[i], other.scores[i]);
+                }
+            }
+        }
+
+        List<KnowledgeIndex.SearchHit> toHits() {
+            List<KnowledgeIndex.SearchHit> hits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                hits.add(new KnowledgeIndex.SearchHit(ids[i], scores[i]));
+            }
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.ai.search;
+
+import com.example.ai.repository.UnitOfWork;
+import org.hibernate.Session;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Searches H2's Lucene full-text index over the question and answer columns, so the
+ * index lives with the database rather than in the application's heap.
+ * <p>
+ * {@link #install(UnitOfWork)} registers the index once per database; H2 then keeps
+ * it up to date with triggers on {@code knowledge_entries}, so inserts, updates and
+ * deletes through any path are searchable as soon as they commit. For file databases
+ * the Lucene files are kept in a directory next to the database file.
+ * <p>
+ * Queries are reduced to their words: every word must occur in the entry except filler
+ * words such as "tell" or "please", which only add to the score. Results are ordered by
+ * Lucene's relevance score, with words found in the question weighted above words found
+ * only in the answer; unlike the in-memory index, confidence scores do not affect the
+ * ranking.
+ */
+public class FullTextSearchBackend implements SearchBackend {
+    private static final String SCHEMA = "PUBLIC";
+    private static final String TABLE = "KNOWLEDGE_ENTRIES";
+    private static final String COLUMNS = "QUESTION,ANSWER";
+    // A word in the question says more about what the entry answers than one in the answer
+    private static final int QUESTION_BOOST = 4;
+
+    private final UnitOfWork unitOfWork;
+
+    private FullTextSearchBackend(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    /**
+     * Set up H2's Lucene full-text search and index the knowledge entries if that has
+     * not been done for this database yet. Indexing existing rows happens in this call,
+     * so the first start on a large table takes a while.
+     */
+    public static FullTextSearchBackend install(UnitOfWork unitOfWork) {
+        try {
+            unitOfWork.run(entityManager -> entityManager.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE ALIAS IF NOT EXISTS FTL_INIT FOR 'org.h2.fulltext.FullTextLucene.init'");
+                    statement.execute("CALL FTL_INIT()");
+                }
+                boolean indexed;
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT COUNT(*) FROM FTL.INDEXES WHERE SCHEMA = ? AND \"TABLE\" = ?")) {
+                    statement.setString(1, SCHEMA);
+                    statement.setString(2, TABLE);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        indexed = resultSet.getInt(1) > 0;
+                    }
+                }
+                if (!indexed) {
+                    try (PreparedStatement statement = connection.prepareStatement("CALL FTL_CREATE_INDEX(?, ?, ?)")) {
+                        statement.setString(1, SCHEMA);
+                        statement.setString(2, TABLE);
+                        statement.setString(3, COLUMNS);
+                        statement.execute();
+                    }
+                }
+            }));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to install full-text search", e);
+        }
+        return new FullTextSearchBackend(unitOfWork);
+    }
+
+    @Override
+    public List<KnowledgeIndex.SearchHit> search(String query, int limit) {
+        String luceneQuery = toLuceneQuery(query);
+        if (luceneQuery.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        try {
+            return unitOfWork.execute(entityManager -> {
+                List<KnowledgeIndex.SearchHit> hits = new ArrayList<>();
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "SELECT KEYS, SCORE FROM FTL_SEARCH_DATA(?, ?, 0) WHERE \"TABLE\" = ?")) {
+                        statement.setString(1, luceneQuery);
+                        statement.setInt(2, limit);
+                        statement.setString(3, TABLE);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                Array keys = resultSet.getArray(1);
+                                Object id = ((Object[]) keys.getArray())[0];
+                                hits.add(new KnowledgeIndex.SearchHit(Long.parseLong(id.toString()), resultSet.getFloat(2)));
+                            }
+                        }
+                    }
+                });
+                return hits;
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to search knowledge entries", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "H2 full-text (Lucene)";
+    }
+
+    /**
+     * Build a query from the words of the text only, so user input cannot inject query
+     * syntax. Each word may match the question (boosted) or any indexed column. Words
+     * are required unless they are filler; if only filler is left, any of them may match.
+     */
+    static String toLuceneQuery(String text) {
+        Set<String> words = new LinkedHashSet<>(TextTokenizer.tokenize(text));
+        boolean onlyFiller = words.stream().allMatch(TextTokenizer::isFiller);
+        StringBuilder query = new StringBuilder();
+        for (String word : words) {
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            if (!onlyFiller && !TextTokenizer.isFiller(word)) {
+                query.append('+');
+            }
+            query.append("(QUESTION:").append(word).append('^').append(QUESTION_BOOST)
+                .append(' ').append(word).append(')');
+        }
+        return query.toString();
+    }
+}
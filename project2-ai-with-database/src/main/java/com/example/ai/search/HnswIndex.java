@@ -0,0 +1,715 @@
+package com.example.ai.search;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeChangeListener;
+import com.example.ai.repository.KnowledgeRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour search over the {@link TextEmbedder} vectors of knowledge
+ * entry questions, with a Hierarchical Navigable Small World graph (Malkov and Yashunin).
+ * <p>
+ * Every entry is a node linked to up to {@code M} similar nodes per layer ({@code 2M} on
+ * the bottom layer); each node appears on layer {@code l} with probability
+ * {@code M^-l}. A search walks greedily down from the single top node and then explores
+ * the bottom layer keeping the {@code efSearch} best nodes seen, so it reads a few
+ * thousand vectors instead of all of them. Larger {@code M} and {@code efSearch} find
+ * more of the true nearest entries at the cost of time; {@code efSearch} can be changed
+ * while the index is in use.
+ * <p>
+ * Entries are added and removed as the repository commits them. Removing an entry only
+ * marks its node deleted: the node keeps routing searches but is never returned, as the
+ * graph would otherwise have to be relinked around it. Changing a question adds a new
+ * node the same way. Deleted nodes disappear when the index is rebuilt, which
+ * {@link #fromSystemProperties(KnowledgeRepository)} does at startup once they make up
+ * more than {@link #MAX_DELETED_FRACTION} of the graph.
+ * <p>
+ * {@link #fromSystemProperties(KnowledgeRepository)} loads the graph from a file written
+ * by {@link #close()} on the previous shutdown, so a restart does not rebuild it. The
+ * loaded graph is only used if it holds exactly the entries of the repository with
+ * their current questions. The file is removed once it is loaded; after a crash there
+ * is none, and the index is rebuilt rather than trusted to match the database.
+ */
+public class HnswIndex implements KnowledgeChangeListener, SearchBackend, AutoCloseable {
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 100;
+    public static final int DEFAULT_EF_SEARCH = 64;
+    /**
+     * Share of deleted nodes above which a saved graph is rebuilt instead of loaded
+     */
+    public static final double MAX_DELETED_FRACTION = 0.25;
+
+    private static final int MAGIC = 0x484E5357;   // "HNSW"
+    private static final int VERSION = 1;
+    private static final int CHUNK_NODES = 1024;
+
+    private final TextEmbedder embedder;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final double minSimilarity;
+    private final double levelFactor;
+    private final VectorSimilarity similarity = VectorSimilarity.load();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<VisitedSet> visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+    private final Random random = new Random(42);
+    private volatile int efSearch;
+    private Path file;
+
+    // Per node: vector, entry id, deleted flag and links. The links of a node hold, for
+    // each of its layers from the bottom, a count followed by room for the maximum number
+    // of neighbours, so its number of layers follows from the array length.
+    private float[][] vectorChunks = new float[0][];
+    private long[] nodeIds = new long[CHUNK_NODES];
+    private boolean[] deleted = new boolean[CHUNK_NODES];
+    private int[][] links = new int[CHUNK_NODES][];
+    private final Map<Long, Integer> nodeByEntryId = new HashMap<>();
+    private int nodeCount;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(TextEmbedder embedder, int m, int efConstruction, int efSearch, double minSimilarity) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("M must be at least 2, efConstruction and efSearch at least 1");
+        }
+        this.embedder = embedder;
+        this.dimensions = embedder.getDimensions();
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.minSimilarity = minSimilarity;
+        this.levelFactor = 1 / Math.log(m);
+    }
+
+    /**
+     * Open the index configured by the ai.hnsw.* and ai.embeddings.* system properties:
+     * load it from ai.hnsw.file if that was saved with the same settings, holds the
+     * same entries and questions as the repository and is not mostly deleted nodes, and
+     * build it from the repository otherwise. The index is saved back to the file when
+     * it is closed.
+     */
+    public static HnswIndex fromSystemProperties(KnowledgeRepository knowledgeRepository) {
+        Path file = Paths.get(System.getProperty("ai.hnsw.file", "ai_knowledge.hnsw"));
+        TextEmbedder embedder = new TextEmbedder(
+            Integer.getInteger("ai.embeddings.dimensions", TextEmbedder.DEFAULT_DIMENSIONS));
+        int m = Integer.getInteger("ai.hnsw.m", DEFAULT_M);
+        int efConstruction = Integer.getInteger("ai.hnsw.efConstruction", DEFAULT_EF_CONSTRUCTION);
+        int efSearch = Integer.getInteger("ai.hnsw.efSearch", DEFAULT_EF_SEARCH);
+        double minSimilarity = Double.parseDouble(System.getProperty("ai.embeddings.minSimilarity",
+            String.valueOf(EmbeddingStore.DEFAULT_MIN_SIMILARITY)));
+
+        HnswIndex index = null;
+        if (Files.exists(file)) {
+            try {
+                index = load(file, embedder, efSearch, minSimilarity);
+                if (index.m != m || index.efConstruction != efConstruction
+                        || index.deletedCount > index.nodeCount * MAX_DELETED_FRACTION
+                        || !index.matches(knowledgeRepository)) {
+                    index = null;
+                }
+                Files.delete(file);
+            } catch (IOException e) {
+                System.err.println("Rebuilding HNSW index, cannot load " + file + ": " + e.getMessage());
+                index = null;
+            }
+        }
+        if (index == null) {
+            index = new HnswIndex(embedder, m, efConstruction, efSearch, minSimilarity);
+            index.rebuild(knowledgeRepository.findAll());
+        }
+        index.file = file;
+        return index;
+    }
+
+    /**
+     * Replace the contents of the index with the given entries
+     */
+    public void rebuild(Collection<KnowledgeEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            vectorChunks = new float[0][];
+            nodeIds = new long[CHUNK_NODES];
+            deleted = new boolean[CHUNK_NODES];
+            links = new int[CHUNK_NODES][];
+            nodeByEntryId.clear();
+            nodeCount = 0;
+            deletedCount = 0;
+            entryPoint = -1;
+            maxLevel = -1;
+            for (KnowledgeEntry entry : entries) {
+                insert(entry.getId(), embedder.embed(entry.getQuestion()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSaved(KnowledgeEntry entry) {
+        float[] vector = embedder.embed(entry.getQuestion());
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeByEntryId.get(entry.getId());
+            if (node != null) {
+                if (hasVector(node, vector)) {
+                    return;
+                }
+                markDeleted(node);
+            }
+            insert(entry.getId(), vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeByEntryId.get(id);
+            if (node != null) {
+                markDeleted(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find up to {@code k} entries whose questions are most similar to the query, best
+     * first; the score of each hit is its cosine similarity
+     */
+    @Override
+    public List<KnowledgeIndex.SearchHit> search(String query, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        float[] queryVector = embedder.embed(query);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = closestNeighbour(queryVector, current, level);
+            }
+            NodeQueue found = searchLayer(queryVector, current, Math.max(efSearch, k), 0);
+
+            int[] nodes = new int[found.size];
+            float[] scores = new float[found.size];
+            int count = drainBestFirst(found, nodes, scores);
+            List<KnowledgeIndex.SearchHit> hits = new ArrayList<>(k);
+            for (int i = 0; i < count && hits.size() < k && scores[i] >= minSimilarity; i++) {
+                if (!deleted[nodes[i]]) {
+                    hits.add(new KnowledgeIndex.SearchHit(nodeIds[nodes[i]], scores[i]));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "HNSW (M=" + m + ", efSearch=" + efSearch + ", " + dimensions + " dimensions, "
+            + similarity.getName() + ")";
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * Change how many candidates a search keeps; higher finds more of the true nearest
+     * entries and takes longer
+     */
+    public void setEfSearch(int efSearch) {
+        if (efSearch < 1) {
+            throw new IllegalArgumentException("efSearch must be at least 1");
+        }
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Number of entries in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeByEntryId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of deleted nodes still kept in the graph
+     */
+    public int getDeletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Save the index to the file it was opened with, if any
+     */
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                save(file);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save HNSW index to " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Write the index to a file. The file is written under a temporary name and then
+     * renamed, so it either exists complete or not at all.
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(nodeCount);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < nodeCount; node++) {
+                out.writeLong(nodeIds[node]);
+                out.writeBoolean(deleted[node]);
+                float[] chunk = vectorChunks[node / CHUNK_NODES];
+                int offset = (node % CHUNK_NODES) * dimensions;
+                for (int i = 0; i < dimensions; i++) {
+                    out.writeFloat(chunk[offset + i]);
+                }
+                int[] nodeLinks = links[node];
+                out.writeInt(levelOf(node));
+                for (int level = 0; level <= levelOf(node); level++) {
+                    int at = linkOffset(level);
+                    out.writeInt(nodeLinks[at]);
+                    for (int i = 1; i <= nodeLinks[at]; i++) {
+                        out.writeInt(nodeLinks[at + i]);
+                    }
+                }
+            }
+            out.writeInt(MAGIC);
+            out.flush();
+            fileOut.getChannel().force(true);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read an index written by {@link #save(Path)}. The embedder must have the dimensions
+     * the index was built with.
+     */
+    public static HnswIndex load(Path file, TextEmbedder embedder, int efSearch, double minSimilarity)
+            throws IOException {
+        try (InputStream fileIn = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn, 64 * 1024));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an HNSW index: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported HNSW index version " + version + ": " + file);
+            }
+            int dimensions = in.readInt();
+            if (dimensions != embedder.getDimensions()) {
+                throw new IOException("HNSW index has " + dimensions + " dimensions, expected "
+                    + embedder.getDimensions() + ": " + file);
+            }
+            HnswIndex index = new HnswIndex(embedder, in.readInt(), in.readInt(), efSearch, minSimilarity);
+            int nodeCount = in.readInt();
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            for (int node = 0; node < nodeCount; node++) {
+                index.ensureCapacity(node);
+                index.nodeIds[node] = in.readLong();
+                index.deleted[node] = in.readBoolean();
+                if (index.deleted[node]) {
+                    index.deletedCount++;
+                } else {
+                    index.nodeByEntryId.put(index.nodeIds[node], node);
+                }
+                float[] chunk = index.vectorChunks[node / CHUNK_NODES];
+                int offset = (node % CHUNK_NODES) * dimensions;
+                for (int i = 0; i < dimensions; i++) {
+                    chunk[offset + i] = in.readFloat();
+                }
+                int level = in.readInt();
+                int[] nodeLinks = new int[index.linkOffset(level + 1)];
+                for (int l = 0; l <= level; l++) {
+                    int at = index.linkOffset(l);
+                    nodeLinks[at] = in.readInt();
+                    for (int i = 1; i <= nodeLinks[at]; i++) {
+                        nodeLinks[at + i] = in.readInt();
+                    }
+                }
+                index.links[node] = nodeLinks;
+                index.nodeCount++;
+            }
+            if (in.readInt() != MAGIC) {
+                throw new IOException("HNSW index is truncated: " + file);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Whether the index holds exactly the entries of the repository, each with the
+     * vector of its current question. Embedding every question is far cheaper than
+     * inserting it into the graph.
+     */
+    private boolean matches(KnowledgeRepository knowledgeRepository) {
+        boolean[] matching = {true};
+        long visited = knowledgeRepository.forEachQuestion((id, question) -> {
+            if (matching[0]) {
+                Integer node = nodeByEntryId.get(id);
+                matching[0] = node != null && hasVector(node, embedder.embed(question));
+            }
+        });
+        return matching[0] && visited == nodeByEntryId.size();
+    }
+
+    private void insert(long id, float[] vector) {
+        int node = nodeCount;
+        ensureCapacity(node);
+        System.arraycopy(vector, 0, vectorChunks[node / CHUNK_NODES], (node % CHUNK_NODES) * dimensions, dimensions);
+        nodeIds[node] = id;
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        links[node] = new int[linkOffset(level + 1)];
+        nodeByEntryId.put(id, node);
+        nodeCount++;
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = closestNeighbour(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeQueue found = searchLayer(vector, current, efConstruction, l);
+            int[] candidates = new int[found.size];
+            float[] scores = new float[found.size];
+            int count = drainBestFirst(found, candidates, scores);
+            current = candidates[0];
+
+            int[] neighbours = selectNeighbours(candidates, scores, count, m);
+            int at = linkOffset(l);
+            links[node][at] = neighbours.length;
+            System.arraycopy(neighbours, 0, links[node], at + 1, neighbours.length);
+            for (int neighbour : neighbours) {
+                addLink(neighbour, node, l);
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private void markDeleted(int node) {
+        deleted[node] = true;
+        deletedCount++;
+        nodeByEntryId.remove(nodeIds[node]);
+    }
+
+    /**
+     * Link {@code from} to {@code to} on a layer; a full neighbour list is pruned to the
+     * best-spread set of its current neighbours and the new one
+     */
+    private void addLink(int from, int to, int level) {
+        int[] nodeLinks = links[from];
+        int at = linkOffset(level);
+        int count = nodeLinks[at];
+        int max = maxLinks(level);
+        if (count < max) {
+            nodeLinks[at + 1 + count] = to;
+            nodeLinks[at] = count + 1;
+            return;
+        }
+
+        int[] candidates = new int[count + 1];
+        float[] scores = new float[count + 1];
+        int size = 0;
+        for (int i = 0; i <= count; i++) {
+            int candidate = i < count ? nodeLinks[at + 1 + i] : to;
+            float score = nodeSimilarity(from, candidate);
+            // Insertion sort, best first; lists hold at most 2M + 1 nodes
+            int j = size++;
+            while (j > 0 && scores[j - 1] < score) {
+                candidates[j] = candidates[j - 1];
+                scores[j] = scores[j - 1];
+                j--;
+            }
+            candidates[j] = candidate;
+            scores[j] = score;
+        }
+        int[] kept = selectNeighbours(candidates, scores, size, max);
+        nodeLinks[at] = kept.length;
+        System.arraycopy(kept, 0, nodeLinks, at + 1, kept.length);
+    }
+
+    /**
+     * Pick up to {@code max} of the candidates, given best first with their similarity to
+     * the base node: a candidate is kept only if it is more similar to the base than to
+     * any candidate kept before it, so the links point in different directions rather
+     * than all into one cluster
+     */
+    private int[] selectNeighbours(int[] candidates, float[] scores, int count, int max) {
+        int[] selected = new int[Math.min(count, max)];
+        int size = 0;
+        for (int i = 0; i < count && size < selected.length; i++) {
+            boolean spread = true;
+            for (int j = 0; j < size && spread; j++) {
+                spread = nodeSimilarity(candidates[i], selected[j]) <= scores[i];
+            }
+            if (spread) {
+                selected[size++] = candidates[i];
+            }
+        }
+        return size == selected.length ? selected : Arrays.copyOf(selected, size);
+    }
+
+    /**
+     * Follow links on one layer to the node most similar to the vector, stopping when no
+     * neighbour is closer
+     */
+    private int closestNeighbour(float[] vector, int start, int level) {
+        int current = start;
+        float best = similarity(vector, current);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int[] nodeLinks = links[current];
+            int at = linkOffset(level);
+            for (int i = 1; i <= nodeLinks[at]; i++) {
+                int neighbour = nodeLinks[at + i];
+                float score = similarity(vector, neighbour);
+                if (score > best) {
+                    best = score;
+                    current = neighbour;
+                    moved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer from a start node, returning the {@code ef} most
+     * similar nodes found, worst on top
+     */
+    private NodeQueue searchLayer(float[] vector, int start, int ef, int level) {
+        VisitedSet visited = visitedSets.get();
+        visited.clear(nodeCount);
+        NodeQueue candidates = new NodeQueue(ef * 2);
+        NodeQueue found = new NodeQueue(ef + 1);
+
+        float startScore = similarity(vector, start);
+        visited.visit(start);
+        candidates.push(start, startScore);
+        found.push(start, -startScore);
+        while (candidates.size > 0) {
+            int current = candidates.topNode();
+            float score = candidates.topKey();
+            if (found.size >= ef && score < -found.topKey()) {
+                break;
+            }
+            candidates.pop();
+
+            int[] nodeLinks = links[current];
+            int at = linkOffset(level);
+            for (int i = 1; i <= nodeLinks[at]; i++) {
+                int neighbour = nodeLinks[at + i];
+                if (!visited.visit(neighbour)) {
+                    continue;
+                }
+                float neighbourScore = similarity(vector, neighbour);
+                if (found.size < ef || neighbourScore > -found.topKey()) {
+                    candidates.push(neighbour, neighbourScore);
+                    found.push(neighbour, -neighbourScore);
+                    if (found.size > ef) {
+                        found.pop();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Empty a worst-on-top queue into arrays, best first; returns the number of nodes
+     */
+    private static int drainBestFirst(NodeQueue found, int[] nodes, float[] scores) {
+        int count = found.size;
+        for (int i = count - 1; i >= 0; i--) {
+            nodes[i] = found.topNode();
+            scores[i] = -found.topKey();
+            found.pop();
+        }
+        return count;
+    }
+
+    private float similarity(float[] vector, int node) {
+        return similarity.dotProduct(vector, 0, vectorChunks[node / CHUNK_NODES],
+            (node % CHUNK_NODES) * dimensions, dimensions);
+    }
+
+    private float nodeSimilarity(int a, int b) {
+        return similarity.dotProduct(vectorChunks[a / CHUNK_NODES], (a % CHUNK_NODES) * dimensions,
+            vectorChunks[b / CHUNK_NODES], (b % CHUNK_NODES) * dimensions, dimensions);
+    }
+
+    private boolean hasVector(int node, float[] vector) {
+        int offset = (node % CHUNK_NODES) * dimensions;
+        return Arrays.equals(vectorChunks[node / CHUNK_NODES], offset, offset + dimensions, vector, 0, dimensions);
+    }
+
+    private int levelOf(int node) {
+        return (links[node].length - linkOffset(1)) / (m + 1);
+    }
+
+    private int linkOffset(int level) {
+        return level == 0 ? 0 : 2 * m + 1 + (level - 1) * (m + 1);
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private void ensureCapacity(int node) {
+        if (node >= nodeIds.length) {
+            int capacity = nodeIds.length * 2;
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        if (node / CHUNK_NODES >= vectorChunks.length) {
+            vectorChunks = Arrays.copyOf(vectorChunks, vectorChunks.length + 1);
+            vectorChunks[vectorChunks.length - 1] = new float[CHUNK_NODES * dimensions];
+        }
+    }
+
+    /**
+     * Binary heap of nodes with the largest key on top
+     */
+    private static final class NodeQueue {
+        private int[] nodes;
+        private float[] keys;
+        private int size;
+
+        NodeQueue(int capacity) {
+            nodes = new int[capacity];
+            keys = new float[capacity];
+        }
+
+        int topNode() {
+            return nodes[0];
+        }
+
+        float topKey() {
+            return keys[0];
+        }
+
+        void push(int node, float key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && keys[(i - 1) / 2] < key) {
+                nodes[i] = nodes[(i - 1) / 2];
+                keys[i] = keys[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        void pop() {
+            int lastNode = nodes[--size];
+            float lastKey = keys[size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] > keys[child]) {
+                    child++;
+                }
+                if (keys[child] <= lastKey) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            keys[i] = lastKey;
+        }
+    }
+
+    /**
+     * Nodes seen by the current search of one thread; a new search only bumps the
+     * generation instead of clearing the marks
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void clear(int nodeCount) {
+            if (marks.length < nodeCount) {
+                marks = new int[Math.max(nodeCount, marks.length * 2)];
+            }
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Mark a node seen; false if it already was
+         */
+        boolean visit(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
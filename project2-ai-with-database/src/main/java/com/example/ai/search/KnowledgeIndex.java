@@ -0,0 +1,595 @@
+package com.example.ai.search;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeChangeListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the words of knowledge entry questions, ranked with BM25.
+ * <p>
+ * Each question is a document. Collection statistics (document count, document
+ * frequencies, average length) are updated incrementally as entries are saved and
+ * deleted. A search walks the posting lists of the query words in document order and
+ * keeps only the best {@code k} candidates in a bounded heap, so the full match set is
+ * never materialized. The {@link Bm25} score is blended with the entry's confidence
+ * score, and candidates that cover too little of the query are dropped so common words
+ * alone ("what", "is") do not produce an answer.
+ * <p>
+ * Searches prune with MaxScore: every posting list knows the highest score any of its
+ * documents can get from its word. Words whose documents cannot qualify on their own,
+ * because they cover too little of the query or cannot beat the current {@code k}-th
+ * best, do not drive the walk; their long lists are only probed for the documents the
+ * rarer words produce. The result is the same as that of an exhaustive walk.
+ * <p>
+ * The index is built from all entries at startup and kept in sync by registering it
+ * as a {@link KnowledgeChangeListener} on the repository. Every word carries a version
+ * that moves whenever an entry containing it is added, changed, removed or gains
+ * confidence, so callers can tell whether the answer to a set of words may have
+ * changed (see {@link #version(Collection)}).
+ */
+public class KnowledgeIndex implements KnowledgeChangeListener, SearchBackend {
+    // Bounds are widened a little, so rounding in a different summation order never
+    // prunes a document that would have ranked
+    private static final double BOUND_SLACK = 1 + 1e-9;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> docByEntryId = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Per-document data, indexed by internal document number (assigned in insertion order,
+    // renumbered densely by compaction)
+    private long[] entryIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private double[] confidence = new double[1024];
+    private String[] questionTexts = new String[1024];
+    private String[][] docTerms = new String[1024][];
+    private int docCount;
+
+    private int liveDocs;
+    private long totalLength;
+    private int deletedSinceCompaction;
+    // Highest confidence score any document has had since the last rebuild or compaction
+    private double maxConfidence;
+    // Source of word versions; only ever grows
+    private long modifications;
+    // Version of every word without a posting list: at least the last version of any list
+    // dropped by compaction or rebuild, so a word's version never moves back
+    private long droppedWordsVersion;
+
+    /**
+     * Replace the contents of the index with the given entries
+     */
+    public void rebuild(Collection<KnowledgeEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docByEntryId.clear();
+            docCount = 0;
+            liveDocs = 0;
+            totalLength = 0;
+            deletedSinceCompaction = 0;
+            maxConfidence = 0;
+            droppedWordsVersion = modifications;
+            for (KnowledgeEntry entry : entries) {
+                add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSaved(KnowledgeEntry entry) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByEntryId.get(entry.getId());
+            if (doc != null && questionTexts[doc].equals(entry.getQuestion())) {
+                // Only the metadata changed; no need to re-index the words, but the
+                // answer behind them may be different now
+                setConfidence(doc, confidenceOf(entry));
+                touch(docTerms[doc]);
+                return;
+            }
+            remove(entry.getId());
+            add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onConfidenceAdded(Map<Long, Double> deltas) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Double> delta : deltas.entrySet()) {
+                Integer doc = docByEntryId.get(delta.getKey());
+                if (doc != null) {
+                    setConfidence(doc, confidence[doc] + delta.getValue());
+                    touch(docTerms[doc]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the best {@code k} entries for a query, best first; entries with the same
+     * score are ordered by id
+     */
+    @Override
+    public List<SearchHit> search(String query, int k) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        if (queryTerms.isEmpty() || k <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / liveDocs;
+
+            // Words missing from the index still count towards the query's total weight,
+            // unless they are mere filler
+            double queryWeight = 0;
+            List<TermCursor> cursors = new ArrayList<>();
+            for (String term : queryTerms) {
+                PostingList list = postings.get(term);
+                if (list != null && list.documentFrequency > 0) {
+                    double idf = idf(list.documentFrequency);
+                    queryWeight += idf;
+                    cursors.add(new TermCursor(list, idf, cursors.size(),
+                        Bm25.termScore(idf, list.maxFrequency, list.minLength, averageLength)));
+                } else if (!TextTokenizer.isFiller(term)) {
+                    queryWeight += idf(0);
+                }
+            }
+            if (cursors.isEmpty()) {
+                return List.of();
+            }
+
+            // Words by their highest possible contribution, with the running totals of
+            // those bounds and of the words' weights. A prefix of these words is
+            // non-essential while a document matching only them cannot qualify.
+            int n = cursors.size();
+            TermCursor[] ordered = cursors.toArray(new TermCursor[0]);
+            Arrays.sort(ordered, Comparator.comparingDouble(cursor -> cursor.upperBound));
+            double[] prefixBound = new double[n + 1];
+            double[] prefixWeight = new double[n + 1];
+            for (int i = 0; i < n; i++) {
+                prefixBound[i + 1] = prefixBound[i] + ordered[i].upperBound;
+                prefixWeight[i + 1] = prefixWeight[i] + ordered[i].idf;
+            }
+            double threshold = Double.NEGATIVE_INFINITY; // score to beat once k hits are found
+            int essential = essentialStart(0, prefixBound, prefixWeight, queryWeight, threshold);
+
+            // Document-at-a-time merge of the essential posting lists into a bounded min-heap.
+            // Contributions are summed in query order, as an exhaustive walk would.
+            double[] termScores = new double[n];
+            boolean[] matched = new boolean[n];
+            PriorityQueue<SearchHit> best = new PriorityQueue<>(k + 1, SearchHit.BEST_FIRST.reversed());
+            while (essential < n) {
+                int doc = Integer.MAX_VALUE;
+                for (int i = essential; i < n; i++) {
+                    if (ordered[i].hasCurrent() && ordered[i].currentDoc() < doc) {
+                        doc = ordered[i].currentDoc();
+                    }
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+
+                Arrays.fill(matched, false);
+                double partial = 0;
+                for (int i = essential; i < n; i++) {
+                    TermCursor cursor = ordered[i];
+                    if (cursor.hasCurrent() && cursor.currentDoc() == doc) {
+                        partial += match(cursor, doc, averageLength, termScores, matched);
+                        cursor.advance();
+                    }
+                }
+                if (docTerms[doc] == null) {
+                    continue; // deleted
+                }
+                boolean pruned = false;
+                for (int i = essential - 1; i >= 0; i--) {
+                    if (Bm25.score((partial + prefixBound[i + 1]) * BOUND_SLACK, confidence[doc]) <= threshold) {
+                        pruned = true; // cannot beat the k-th best even with all remaining words
+                        break;
+                    }
+                    TermCursor cursor = ordered[i];
+                    cursor.advanceTo(doc);
+                    if (cursor.hasCurrent() && cursor.currentDoc() == doc) {
+                        partial += match(cursor, doc, averageLength, termScores, matched);
+                    }
+                }
+                if (pruned) {
+                    continue;
+                }
+
+                double bm25 = 0;
+                double matchedWeight = 0;
+                for (int i = 0; i < n; i++) {
+                    if (matched[i]) {
+                        bm25 += termScores[i];
+                        matchedWeight += cursors.get(i).idf;
+                    }
+                }
+                if (!Bm25.coversQuery(matchedWeight, queryWeight)) {
+                    continue; // only matched minor words
+                }
+                double score = Bm25.score(bm25, confidence[doc]);
+                if (best.size() < k) {
+                    best.add(new SearchHit(entryIds[doc], score));
+                } else if (score > best.peek().getScore()
+                        || score == best.peek().getScore() && entryIds[doc] < best.peek().getEntryId()) {
+                    best.poll();
+                    best.add(new SearchHit(entryIds[doc], score));
+                } else {
+                    continue;
+                }
+                if (best.size() == k) {
+                    threshold = best.peek().getScore();
+                    essential = essentialStart(essential, prefixBound, prefixWeight, queryWeight, threshold);
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(best);
+            hits.sort(SearchHit.BEST_FIRST);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Version of a set of words: the latest change to any entry containing one of them,
+     * or 0 if none has changed yet. Two calls return the same value only if no entry
+     * containing one of the words was added, changed or removed in between, so it can
+     * be used to validate results cached for those words. Confidence increments count
+     * as changes, since they can reorder the results. Versions never move back, not even when compaction drops the
+     * posting list of a word that no entry contains any more.
+     */
+    public long version(Collection<String> terms) {
+        lock.readLock().lock();
+        try {
+            long version = 0;
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                version = Math.max(version, list != null ? list.version : droppedWordsVersion);
+            }
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "in-memory BM25 index";
+    }
+
+    /**
+     * Number of indexed entries
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of leading words, by upper bound, whose documents cannot qualify unless they
+     * also contain a later word: matching only those words covers too little of the
+     * query, or scores no more than {@code threshold}. Grows with the threshold.
+     */
+    private int essentialStart(int from, double[] prefixBound, double[] prefixWeight, double queryWeight,
+                               double threshold) {
+        int essential = from;
+        while (essential < prefixBound.length - 1
+                && (!Bm25.coversQuery(prefixWeight[essential + 1] * BOUND_SLACK, queryWeight)
+                    || Bm25.score(prefixBound[essential + 1] * BOUND_SLACK, maxConfidence) <= threshold)) {
+            essential++;
+        }
+        return essential;
+    }
+
+    /**
+     * Record the contribution of the cursor's word to a document it is on; returns it
+     */
+    private double match(TermCursor cursor, int doc, double averageLength, double[] termScores, boolean[] matched) {
+        double score = Bm25.termScore(cursor.idf, cursor.currentFrequency(), docLengths[doc], averageLength);
+        termScores[cursor.queryIndex] = score;
+        matched[cursor.queryIndex] = true;
+        return score;
+    }
+
+    private void setConfidence(int doc, double value) {
+        confidence[doc] = value;
+        maxConfidence = Math.max(maxConfidence, value);
+    }
+
+    private double idf(int documentFrequency) {
+        return Bm25.idf(liveDocs, documentFrequency);
+    }
+
+    private static double confidenceOf(KnowledgeEntry entry) {
+        return entry.getConfidenceScore() != null ? entry.getConfidenceScore() : 0.0;
+    }
+
+    private void add(KnowledgeEntry entry) {
+        List<String> tokens = TextTokenizer.tokenize(entry.getQuestion());
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        ensureCapacity(docCount + 1);
+        int doc = docCount++;
+        entryIds[doc] = entry.getId();
+        docLengths[doc] = tokens.size();
+        setConfidence(doc, confidenceOf(entry));
+        questionTexts[doc] = entry.getQuestion();
+        docTerms[doc] = frequencies.keySet().toArray(new String[0]);
+        docByEntryId.put(entry.getId(), doc);
+
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new PostingList()).add(doc, term.getValue(), tokens.size());
+        }
+        touch(docTerms[doc]);
+        liveDocs++;
+        totalLength += tokens.size();
+    }
+
+    private void remove(Long id) {
+        Integer doc = docByEntryId.remove(id);
+        if (doc == null) {
+            return;
+        }
+        // Tombstone the document; its postings are purged by the next compaction
+        for (String term : docTerms[doc]) {
+            postings.get(term).documentFrequency--;
+        }
+        touch(docTerms[doc]);
+        docTerms[doc] = null;
+        questionTexts[doc] = null;
+        liveDocs--;
+        totalLength -= docLengths[doc];
+
+        if (++deletedSinceCompaction > Math.max(1024, liveDocs)) {
+            compact();
+        }
+    }
+
+    private void touch(String[] terms) {
+        // One fresh version for the whole change; a word's version only ever moves up
+        long version = ++modifications;
+        for (String term : terms) {
+            postings.get(term).version = version;
+        }
+    }
+
+    /**
+     * Drop deleted documents: the live ones are renumbered densely, in their old order so
+     * posting lists stay sorted, and the per-document arrays shrink with them, so updates
+     * and deletes do not grow the index without bound
+     */
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int live = 0;
+        maxConfidence = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (docTerms[doc] == null) {
+                renumbered[doc] = -1;
+                continue;
+            }
+            renumbered[doc] = live;
+            entryIds[live] = entryIds[doc];
+            docLengths[live] = docLengths[doc];
+            confidence[live] = confidence[doc];
+            questionTexts[live] = questionTexts[doc];
+            docTerms[live] = docTerms[doc];
+            maxConfidence = Math.max(maxConfidence, confidence[live]);
+            docByEntryId.put(entryIds[live], live);
+            live++;
+        }
+        Arrays.fill(questionTexts, live, docCount, null);
+        Arrays.fill(docTerms, live, docCount, null);
+        docCount = live;
+        if (entryIds.length > 1024 && entryIds.length > docCount * 4) {
+            resize(Math.max(1024, docCount * 2));
+        }
+
+        Iterator<PostingList> lists = postings.values().iterator();
+        while (lists.hasNext()) {
+            PostingList list = lists.next();
+            list.renumber(renumbered, docLengths);
+            if (list.size == 0) {
+                droppedWordsVersion = Math.max(droppedWordsVersion, list.version);
+                lists.remove();
+            }
+        }
+        deletedSinceCompaction = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entryIds.length) {
+            return;
+        }
+        resize(Math.max(capacity, entryIds.length * 2));
+    }
+
+    private void resize(int newCapacity) {
+        entryIds = Arrays.copyOf(entryIds, newCapacity);
+        docLengths = Arrays.copyOf(docLengths, newCapacity);
+        confidence = Arrays.copyOf(confidence, newCapacity);
+        questionTexts = Arrays.copyOf(questionTexts, newCapacity);
+        docTerms = Arrays.copyOf(docTerms, newCapacity);
+    }
+
+    /**
+     * Documents containing one word, in ascending document order, with term frequencies
+     */
+    private static final class PostingList {
+        int[] docs = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+        int documentFrequency;   // live documents only
+        long version;            // last change to a document containing the word
+        // Bounds of the word's best score: no document has more occurrences or fewer words
+        int maxFrequency;
+        int minLength = Integer.MAX_VALUE;
+
+        void add(int doc, int frequency, int length) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            documentFrequency++;
+            maxFrequency = Math.max(maxFrequency, frequency);
+            minLength = Math.min(minLength, length);
+        }
+
+        /**
+         * Drop deleted documents, -1 in {@code renumbered}, and give the others their new
+         * numbers; {@code docLengths} is indexed by the new numbers
+         */
+        void renumber(int[] renumbered, int[] docLengths) {
+            int kept = 0;
+            maxFrequency = 0;
+            minLength = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                int doc = renumbered[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    frequencies[kept] = frequencies[i];
+                    maxFrequency = Math.max(maxFrequency, frequencies[i]);
+                    minLength = Math.min(minLength, docLengths[doc]);
+                    kept++;
+                }
+            }
+            size = kept;
+            if (docs.length > 16 && size < docs.length / 4) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+        }
+    }
+
+    /**
+     * Read position in one posting list during a search
+     */
+    private static final class TermCursor {
+        final PostingList list;
+        final double idf;
+        final int queryIndex;     // position among the query's indexed words
+        final double upperBound;  // highest contribution to any document's BM25 score
+        int position;
+
+        TermCursor(PostingList list, double idf, int queryIndex, double upperBound) {
+            this.list = list;
+            this.idf = idf;
+            this.queryIndex = queryIndex;
+            this.upperBound = upperBound;
+        }
+
+        boolean hasCurrent() {
+            return position < list.size;
+        }
+
+        int currentDoc() {
+            return list.docs[position];
+        }
+
+        int currentFrequency() {
+            return list.frequencies[position];
+        }
+
+        void advance() {
+            position++;
+        }
+
+        /**
+         * Move to the first document at or after {@code target}: a galloping search from
+         * the current position, cheap for both near and far targets
+         */
+        void advanceTo(int target) {
+            int[] docs = list.docs;
+            int size = list.size;
+            if (position >= size || docs[position] >= target) {
+                return;
+            }
+            int low = position; // docs[low] < target
+            int step = 1;
+            while (low + step < size && docs[low + step] < target) {
+                low += step;
+                step <<= 1;
+            }
+            int high = Math.min(low + step, size); // docs[high] >= target, or the end
+            low++;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (docs[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            position = low;
+        }
+    }
+
+    /**
+     * A ranked search result
+     */
+    public static final class SearchHit {
+        /**
+         * Highest score first, ties broken by the lower entry id, so every backend that
+         * uses it ranks equal scores the same way
+         */
+        public static final Comparator<SearchHit> BEST_FIRST =
+            Comparator.comparingDouble(SearchHit::getScore).reversed().thenComparingLong(SearchHit::getEntryId);
+
+        private final long entryId;
+        private final double score;
+
+        public SearchHit(long entryId, double score) {
+            this.entryId = entryId;
+            this.score = score;
+        }
+
+        public long getEntryId() {
+            return entryId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "SearchHit{entryId=" + entryId + ", score=" + score + '}';
+        }
+    }
+}
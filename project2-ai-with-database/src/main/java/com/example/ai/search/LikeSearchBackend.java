@@ -0,0 +1,35 @@
+package com.example.ai.search;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searches with {@link KnowledgeRepository#searchByQuestion(String)}: entries whose
+ * question contains the whole query, ignoring case, highest confidence first.
+ * The leading wildcard rules out any index, so every search scans the table.
+ */
+public class LikeSearchBackend implements SearchBackend {
+    private final KnowledgeRepository repository;
+
+    public LikeSearchBackend(KnowledgeRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public List<KnowledgeIndex.SearchHit> search(String query, int limit) {
+        List<KnowledgeIndex.SearchHit> hits = new ArrayList<>();
+        for (KnowledgeEntry entry : repository.searchByQuestion(query, limit)) {
+            double confidence = entry.getConfidenceScore() != null ? entry.getConfidenceScore() : 0.0;
+            hits.add(new KnowledgeIndex.SearchHit(entry.getId(), confidence));
+        }
+        return hits;
+    }
+
+    @Override
+    public String getName() {
+        return "LIKE scan";
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.ai.search;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Dot products with a plain loop; four independent sums let the CPU overlap the
+ * multiplications
+ */
+final class ScalarSimilarity implements VectorSimilarity {
+
+    @Override
+    public void dotProducts(ByteBuffer vectors, int offset, int count, float[] query, float[] scores) {
+        int dimensions = query.length;
+        int bytesPerVector = dimensions * Float.BYTES;
+        int upper = dimensions & ~3;
+        for (int v = 0; v < count; v++) {
+            int base = offset + v * bytesPerVector;
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (; i < upper; i += 4) {
+                int at = base + i * Float.BYTES;
+                s0 += vectors.getFloat(at) * query[i];
+                s1 += vectors.getFloat(at + 4) * query[i + 1];
+                s2 += vectors.getFloat(at + 8) * query[i + 2];
+                s3 += vectors.getFloat(at + 12) * query[i + 3];
+            }
+            for (; i < dimensions; i++) {
+                s0 += vectors.getFloat(base + i * Float.BYTES) * query[i];
+            }
+            scores[v] = (s0 + s1) + (s2 + s3);
+        }
+    }
+
+    @Override
+    public float dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int upper = length & ~3;
+        int i = 0;
+        for (; i < upper; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
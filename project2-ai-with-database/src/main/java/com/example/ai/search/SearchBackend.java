@@ -0,0 +1,52 @@
+package com.example.ai.search;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Finds the knowledge entries that best answer a query.
+ * <p>
+ * Five backends are available, chosen with the ai.search.backend system property:
+ * <ul>
+ *   <li>{@code index} (default) – {@link KnowledgeIndex}, a BM25 index held in memory</li>
+ *   <li>{@code fulltext} – {@link FullTextSearchBackend}, H2's Lucene full-text index
+ *       inside the database, for deployments that cannot hold the whole index in memory</li>
+ *   <li>{@code like} – {@link LikeSearchBackend}, a plain {@code LIKE '%query%'} scan</li>
+ *   <li>{@code embedding} – {@link EmbeddingStore}, cosine similarity of hashed word and
+ *       trigram vectors, which also matches other forms of a word and misspellings</li>
+ *   <li>{@code hnsw} – {@link HnswIndex}, the same similarity found approximately through
+ *       a graph, for knowledge bases too large to compare with every entry</li>
+ * </ul>
+ */
+public interface SearchBackend {
+
+    /**
+     * Find the best {@code limit} entries for a query, best first
+     */
+    List<KnowledgeIndex.SearchHit> search(String query, int limit);
+
+    /**
+     * Short description for statistics
+     */
+    String getName();
+
+    /**
+     * The available backends
+     */
+    enum Type {
+        INDEX, FULLTEXT, LIKE, EMBEDDING, HNSW;
+
+        /**
+         * Backend named by the ai.search.backend system property
+         */
+        public static Type fromSystemProperties() {
+            String name = System.getProperty("ai.search.backend", "index");
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown search backend: " + name
+                    + " (expected index, fulltext, like, embedding or hnsw)", e);
+            }
+        }
+    }
+}
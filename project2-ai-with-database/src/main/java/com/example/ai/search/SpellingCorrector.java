@@ -0,0 +1,365 @@
+package com.example.ai.search;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeChangeListener;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Corrects misspelled query words to words that occur in knowledge entry questions, so
+ * "waht is jva" can be searched again as "what is java".
+ * <p>
+ * A query word is corrected only if no question contains it. Candidates come from an
+ * index of the character trigrams of every question word (framed as {@code ^^word$$}),
+ * split by word length: only words of about the same length that share enough trigrams
+ * with the query word are looked at, since one edit changes at most four trigrams. Each
+ * candidate is then verified with an edit distance that counts swapped neighbours as
+ * one edit and gives up as soon as the limit is exceeded. Words of up to four letters
+ * may be one edit off, longer ones {@code maxEdits}. The closest word wins; among
+ * equally close words the one sharing the most trigrams, which keeps more of the word's
+ * letters in place ("jva" becomes "java" rather than "jpa"), then the one in the most
+ * questions.
+ * <p>
+ * The vocabulary is kept in sync by registering the corrector as a
+ * {@link KnowledgeChangeListener} on the repository.
+ */
+public class SpellingCorrector implements KnowledgeChangeListener {
+    public static final int DEFAULT_MAX_EDITS = 2;
+
+    // Shorter words are never corrected, as too many words are one edit away
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final int MAX_WORD_LENGTH = 40;
+    private static final int SHORT_WORD_LENGTH = 4;
+    private static final int TRIGRAMS_PER_EDIT = 4;
+
+    private final int maxEdits;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+    // Word ids, the words and the number of live questions containing each
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private String[] words = new String[1024];
+    private int[] questionCounts = new int[1024];
+    private int wordCount;
+    // Words of one trigram and word length, keyed by both
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Long, int[]> wordsByEntryId = new HashMap<>();
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+
+    public SpellingCorrector(int maxEdits) {
+        if (maxEdits < 1) {
+            throw new IllegalArgumentException("Max edits must be at least 1");
+        }
+        this.maxEdits = maxEdits;
+    }
+
+    /**
+     * Create a corrector configured from the ai.spelling.enabled and ai.spelling.maxEdits
+     * system properties, or null if correction is turned off
+     */
+    public static SpellingCorrector fromSystemProperties() {
+        if (!Boolean.parseBoolean(System.getProperty("ai.spelling.enabled", "true"))) {
+            return null;
+        }
+        return new SpellingCorrector(Integer.getInteger("ai.spelling.maxEdits", DEFAULT_MAX_EDITS));
+    }
+
+    /**
+     * Add the words of one entry's question, replacing those it had before
+     */
+    public void addQuestion(Long id, String question) {
+        int[] ids = TextTokenizer.tokenize(question).stream()
+            .filter(SpellingCorrector::isCorrectable)
+            .distinct()
+            .mapToInt(this::wordId)
+            .toArray();
+        lock.writeLock().lock();
+        try {
+            for (int wordId : ids) {
+                questionCounts[wordId]++;
+            }
+            int[] previous = wordsByEntryId.put(id, ids);
+            if (previous != null) {
+                for (int wordId : previous) {
+                    questionCounts[wordId]--;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSaved(KnowledgeEntry entry) {
+        addQuestion(entry.getId(), entry.getQuestion());
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            int[] previous = wordsByEntryId.remove(id);
+            if (previous != null) {
+                for (int wordId : previous) {
+                    questionCounts[wordId]--;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The query with every unknown word replaced by the closest known word, in lower case
+     * and separated by single spaces; null if no word was replaced
+     */
+    public String correct(String query) {
+        attempts.increment();
+        List<String> tokens = TextTokenizer.tokenize(query);
+        boolean changed = false;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                if (!isCorrectable(token) || TextTokenizer.isFiller(token) || isKnown(token)) {
+                    continue;
+                }
+                String closest = closestWord(token);
+                if (closest != null) {
+                    tokens.set(i, closest);
+                    changed = true;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!changed) {
+            return null;
+        }
+        corrections.increment();
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * Number of distinct words in the questions
+     */
+    public int getVocabularySize() {
+        lock.readLock().lock();
+        try {
+            int live = 0;
+            for (int i = 0; i < wordCount; i++) {
+                if (questionCounts[i] > 0) {
+                    live++;
+                }
+            }
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Current counters as a multi-line summary
+     */
+    public String getStatistics() {
+        return String.format(
+            "Spelling Correction:\n" +
+            "- Vocabulary: %d words, up to %d edits\n" +
+            "- Corrected: %d of %d queries that found nothing",
+            getVocabularySize(), maxEdits, corrections.sum(), attempts.sum()
+        );
+    }
+
+    private boolean isKnown(String word) {
+        Integer id = wordIds.get(word);
+        return id != null && questionCounts[id] > 0;
+    }
+
+    private String closestWord(String word) {
+        int length = word.length();
+        int edits = length <= SHORT_WORD_LENGTH ? 1 : maxEdits;
+        long[] trigrams = trigrams(word);
+        int minShared = Math.max(1, trigrams.length - TRIGRAMS_PER_EDIT * edits);
+
+        // Count shared trigrams per candidate word of a length within reach
+        Scratch scratch = scratches.get();
+        scratch.ensureCapacity(wordCount);
+        int[] shared = scratch.shared;
+        int[] touched = scratch.touched;
+        int touchedCount = 0;
+        for (int candidateLength = Math.max(MIN_WORD_LENGTH, length - edits);
+                candidateLength <= Math.min(MAX_WORD_LENGTH, length + edits); candidateLength++) {
+            for (long trigram : trigrams) {
+                Postings list = postings.get(key(trigram, candidateLength));
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int wordId = list.wordIds[i];
+                    if (shared[wordId]++ == 0) {
+                        touched[touchedCount++] = wordId;
+                    }
+                }
+            }
+        }
+
+        int best = -1;
+        int bestDistance = edits + 1;
+        int bestShared = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int wordId = touched[i];
+            int count = shared[wordId];
+            shared[wordId] = 0;
+            if (count < minShared || questionCounts[wordId] == 0) {
+                continue;
+            }
+            int distance = distance(word, words[wordId], Math.min(edits, bestDistance), scratch);
+            if (distance < bestDistance || distance == bestDistance && best >= 0
+                    && (count > bestShared || count == bestShared && questionCounts[wordId] > questionCounts[best])) {
+                best = wordId;
+                bestDistance = distance;
+                bestShared = count;
+            }
+        }
+        return best >= 0 ? words[best] : null;
+    }
+
+    /**
+     * Edit distance counting insertions, deletions, substitutions and swaps of adjacent
+     * letters (optimal string alignment), or {@code max + 1} once it exceeds {@code max}
+     */
+    private static int distance(String a, String b, int max, Scratch scratch) {
+        int n = b.length();
+        if (Math.abs(a.length() - n) > max) {
+            return max + 1;
+        }
+        int[] beforePrevious = scratch.rows[0];
+        int[] previous = scratch.rows[1];
+        int[] current = scratch.rows[2];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[n], max + 1);
+    }
+
+    private int wordId(String word) {
+        lock.writeLock().lock();
+        try {
+            Integer id = wordIds.get(word);
+            if (id != null) {
+                return id;
+            }
+            if (wordCount == words.length) {
+                words = Arrays.copyOf(words, wordCount * 2);
+                questionCounts = Arrays.copyOf(questionCounts, wordCount * 2);
+            }
+            int newId = wordCount++;
+            words[newId] = word;
+            wordIds.put(word, newId);
+            for (long trigram : trigrams(word)) {
+                postings.computeIfAbsent(key(trigram, word.length()), k -> new Postings()).add(newId);
+            }
+            return newId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isCorrectable(String token) {
+        if (token.length() < MIN_WORD_LENGTH || token.length() > MAX_WORD_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isLetter(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distinct trigrams of {@code ^^word$$}, three characters packed into a long
+     */
+    private static long[] trigrams(String word) {
+        int framed = word.length() + 4;
+        long[] trigrams = new long[framed - 2];
+        int count = 0;
+        for (int start = 0; start + 3 <= framed; start++) {
+            long trigram = 0;
+            for (int i = start; i < start + 3; i++) {
+                char c = i < 2 ? '^' : i >= framed - 2 ? '$' : word.charAt(i - 2);
+                trigram = trigram << 16 | c;
+            }
+            boolean seen = false;
+            for (int i = 0; i < count && !seen; i++) {
+                seen = trigrams[i] == trigram;
+            }
+            if (!seen) {
+                trigrams[count++] = trigram;
+            }
+        }
+        return count == trigrams.length ? trigrams : Arrays.copyOf(trigrams, count);
+    }
+
+    private static long key(long trigram, int wordLength) {
+        return (long) wordLength << 48 | trigram;
+    }
+
+    /**
+     * Ids of the words containing one trigram
+     */
+    private static final class Postings {
+        int[] wordIds = new int[4];
+        int size;
+
+        void add(int wordId) {
+            if (size == wordIds.length) {
+                wordIds = Arrays.copyOf(wordIds, size * 2);
+            }
+            wordIds[size++] = wordId;
+        }
+    }
+
+    /**
+     * Per-thread counters and rows reused by every correction
+     */
+    private static final class Scratch {
+        int[] shared = new int[0];
+        int[] touched = new int[0];
+        final int[][] rows = new int[3][MAX_WORD_LENGTH + 1];
+
+        void ensureCapacity(int words) {
+            if (shared.length < words) {
+                shared = new int[Math.max(words, shared.length * 2)];
+                touched = new int[shared.length];
+            }
+        }
+    }
+}
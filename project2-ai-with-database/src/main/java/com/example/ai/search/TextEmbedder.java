@@ -0,0 +1,117 @@
+package com.example.ai.search;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Turns text into a dense vector locally, without a model: the feature hashing of
+ * words and their character trigrams.
+ * <p>
+ * Every content word contributes itself and the trigrams of {@code ^word$}; each
+ * feature is hashed to one dimension with a hashed sign, and the vector is scaled to unit
+ * length, so the cosine similarity of two texts is the dot product of their vectors.
+ * Texts that share words score high, and so do texts whose words only share stems or
+ * differ by a typo ("programmer" and "programming", "recieve" and "receive"), which
+ * exact word matching misses. Synonyms with no letters in common are not related.
+ * Filler words such as "please" or "tell" and question words such as "what" or "how"
+ * count for little, so that "What is Java?" and "What is a database?" are not alike.
+ */
+public final class TextEmbedder {
+    public static final int DEFAULT_DIMENSIONS = 128;
+
+    // Whole words say more than any one of their trigrams
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+    // Weight of filler and question words relative to content words
+    private static final float FILLER_WEIGHT = 0.2f;
+    private static final Set<String> QUESTION_WORDS = Set.of(
+        "what", "whats", "who", "whom", "whose", "which", "when", "where", "why", "how",
+        "is", "are", "was", "were", "s");
+    private static final int WORD_SEED = 0x2545F491;
+    private static final int TRIGRAM_SEED = 0x9E3779B9;
+
+    private final int dimensions;
+
+    public TextEmbedder() {
+        this(DEFAULT_DIMENSIONS);
+    }
+
+    public TextEmbedder(int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("Dimensions must be positive");
+        }
+        this.dimensions = dimensions;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Embed text into a new unit vector; text without words gives the zero vector
+     */
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        embed(text, vector);
+        return vector;
+    }
+
+    /**
+     * Embed text into the given array of {@link #getDimensions()} floats
+     */
+    public void embed(String text, float[] vector) {
+        Arrays.fill(vector, 0, dimensions, 0f);
+        for (String word : TextTokenizer.tokenize(text)) {
+            boolean filler = TextTokenizer.isFiller(word) || QUESTION_WORDS.contains(word);
+            addWord(word, filler ? FILLER_WEIGHT : 1f, vector);
+        }
+
+        double squares = 0;
+        for (int i = 0; i < dimensions; i++) {
+            squares += vector[i] * vector[i];
+        }
+        if (squares > 0) {
+            float scale = (float) (1 / Math.sqrt(squares));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        }
+    }
+
+    private void addWord(String word, float weight, float[] vector) {
+        add(hash(word, 0, word.length(), WORD_SEED), weight * WORD_WEIGHT, vector);
+        // Trigrams of the word framed by '^' and '$', hashed without building substrings
+        int length = word.length() + 2;
+        for (int start = 0; start + 3 <= length; start++) {
+            int h = TRIGRAM_SEED;
+            for (int i = start; i < start + 3; i++) {
+                char c = i == 0 ? '^' : i == length - 1 ? '$' : word.charAt(i - 1);
+                h = (h ^ c) * 0x01000193;
+            }
+            add(mix(h), weight * TRIGRAM_WEIGHT, vector);
+        }
+    }
+
+    private void add(int hash, float weight, float[] vector) {
+        int dimension = (hash >>> 1) % dimensions;
+        vector[dimension] += (hash & 1) == 0 ? weight : -weight;
+    }
+
+    private static int hash(String text, int from, int to, int seed) {
+        int h = seed;
+        for (int i = from; i < to; i++) {
+            h = (h ^ text.charAt(i)) * 0x01000193;
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        // Finalizer of MurmurHash3, so neighbouring features land far apart
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
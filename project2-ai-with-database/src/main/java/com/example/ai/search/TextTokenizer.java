@@ -0,0 +1,48 @@
+package com.example.ai.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits text into normalized search tokens.
+ * A token is a run of letters or digits, lower-cased; everything else separates tokens.
+ */
+public final class TextTokenizer {
+    // Words that phrase a question rather than say what it is about
+    private static final Set<String> FILLER_WORDS = Set.of(
+        "a", "an", "the", "me", "my", "i", "you", "please", "tell", "about", "explain",
+        "can", "could", "would", "do", "does", "know", "to", "of", "and", "exactly", "really");
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * Tokenize text in order, keeping duplicates
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Whether a token is a filler word such as "please" or "tell", which a match does not
+     * need to contain
+     */
+    public static boolean isFiller(String token) {
+        return FILLER_WORDS.contains(token);
+    }
+}
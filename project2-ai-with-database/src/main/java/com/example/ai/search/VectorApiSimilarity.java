@@ -0,0 +1,58 @@
+package com.example.ai.search;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Dot products with the JDK Vector API, using the widest float vectors the CPU has.
+ * Only loaded through {@link VectorSimilarity#load()}.
+ */
+final class VectorApiSimilarity implements VectorSimilarity {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void dotProducts(ByteBuffer vectors, int offset, int count, float[] query, float[] scores) {
+        int dimensions = query.length;
+        int bytesPerVector = dimensions * Float.BYTES;
+        int upper = SPECIES.loopBound(dimensions);
+        for (int v = 0; v < count; v++) {
+            int base = offset + v * bytesPerVector;
+            FloatVector sum = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < upper; i += SPECIES.length()) {
+                FloatVector stored = FloatVector.fromByteBuffer(SPECIES, vectors, base + i * Float.BYTES,
+                    ByteOrder.LITTLE_ENDIAN);
+                sum = stored.fma(FloatVector.fromArray(SPECIES, query, i), sum);
+            }
+            float score = sum.reduceLanes(VectorOperators.ADD);
+            for (; i < dimensions; i++) {
+                score += vectors.getFloat(base + i * Float.BYTES) * query[i];
+            }
+            scores[v] = score;
+        }
+    }
+
+    @Override
+    public float dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        int upper = SPECIES.loopBound(length);
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            sum = FloatVector.fromArray(SPECIES, a, aOffset + i).fma(FloatVector.fromArray(SPECIES, b, bOffset + i), sum);
+        }
+        float score = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            score += a[aOffset + i] * b[bOffset + i];
+        }
+        return score;
+    }
+
+    @Override
+    public String getName() {
+        return "Vector API, " + SPECIES.length() + " lanes";
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ai.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Dot products of a query vector with vectors stored back to back in a buffer of
+ * little-endian floats, or of two vectors stored in float arrays.
+ * <p>
+ * {@link #load()} picks the JDK Vector API implementation when the
+ * {@code jdk.incubator.vector} module is available (start the JVM with
+ * {@code --add-modules jdk.incubator.vector}) and a plain loop otherwise. The Vector API
+ * class is only loaded by name, so the application runs on JVMs without the module.
+ */
+interface VectorSimilarity {
+
+    /**
+     * Write the dot product of {@code query} with each of {@code count} vectors of
+     * {@code query.length} floats, starting at byte {@code offset}, into {@code scores}
+     */
+    void dotProducts(ByteBuffer vectors, int offset, int count, float[] query, float[] scores);
+
+    /**
+     * Dot product of the {@code length} floats of {@code a} from {@code aOffset} with
+     * those of {@code b} from {@code bOffset}
+     */
+    float dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Short description for statistics
+     */
+    String getName();
+
+    /**
+     * The fastest implementation this JVM supports
+     */
+    static VectorSimilarity load() {
+        try {
+            VectorSimilarity vectorApi = (VectorSimilarity) Class.forName("com.example.ai.search.VectorApiSimilarity")
+                .getDeclaredConstructor().newInstance();
+            // Links every Vector API method it uses, so a JVM whose API differs fails here
+            ByteBuffer probe = ByteBuffer.allocate(64 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            probe.putFloat(0, 1f);
+            float[] query = new float[64];
+            query[0] = 2f;
+            float[] score = new float[1];
+            vectorApi.dotProducts(probe, 0, 1, query, score);
+            if (score[0] == 2f) {
+                return vectorApi;
+            }
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // jdk.incubator.vector is not available
+        }
+        return new ScalarSimilarity();
+    }
+}
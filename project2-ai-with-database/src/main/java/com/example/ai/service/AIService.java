@@ -1,73 +1,298 @@
 package com.example.ai.service;
 
 import com.example.ai.model.Conversation;
+import com.example.ai.model.ConversationSummary;
 import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.model.KnowledgeSummary;
+import com.example.ai.importer.KnowledgeFileReader;
+import com.example.ai.metrics.LatencyHistogram;
+import com.example.ai.metrics.StageTimer;
+import com.example.ai.repository.CacheStatistics;
 import com.example.ai.repository.ConversationRepository;
+import com.example.ai.repository.ImportStats;
 import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.repository.Page;
+import com.example.ai.repository.UnitOfWork;
+import com.example.ai.search.EmbeddingStore;
+import com.example.ai.search.FullTextSearchBackend;
+import com.example.ai.search.HnswIndex;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.search.LikeSearchBackend;
+import com.example.ai.search.SearchBackend;
+import com.example.ai.search.SpellingCorrector;
+import com.example.ai.snapshot.KnowledgeSnapshotWriter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * AI Service that uses the knowledge base to generate responses.
  * This demonstrates a simple AI system that learns from and stores conversations in a database.
+ * <p>
+ * The service is thread-safe: each query runs in its own {@link UnitOfWork}, with its
+ * own EntityManager and transaction, so many users can be served at once.
  */
 public class AIService {
-    private static final double CONFIDENCE_INCREMENT = 0.1;
+    private static final double CONFIDENCE_INCREMENT = ConfidenceUpdater.DEFAULT_INCREMENT;
+    private static final int TOP_K = 5;
+    private static final int IMPORT_CHUNK_SIZE = 1000;
     
+    private final UnitOfWork unitOfWork;
     private final KnowledgeRepository knowledgeRepository;
     private final ConversationRepository conversationRepository;
+    private final ConversationWriter conversationWriter;
+    private final ConfidenceUpdater confidenceUpdater;
+    private final ConversationArchiver conversationArchiver;
+    private final SearchBackend searchBackend;
+    private final AnswerCache answerCache;
+    private final SpellingCorrector spellingCorrector;
+    private final StageTimer<QueryStage> queryTimer = new StageTimer<>("Query Latency", QueryStage.class);
     private final String sessionId;
-    private final Random random;
 
-    public AIService(KnowledgeRepository knowledgeRepository, 
+    /**
+     * Timed stages of {@link #processQuery(String, String)}. SPELLING covers correcting
+     * and searching again for queries the search found nothing for. COMMIT covers
+     * Hibernate's flush and the commit at the end of the request; confidence and
+     * conversation writes that go through the database directly are flushed there.
+     */
+    public enum QueryStage {
+        SEARCH, SPELLING, LOOKUP, CONFIDENCE, CONVERSATION, COMMIT, TOTAL
+    }
+
+    /**
+     * Create a service with the default {@link Options}: every write happens before
+     * answering, answers come from the in-memory index and are not cached
+     */
+    public AIService(UnitOfWork unitOfWork,
+                     KnowledgeRepository knowledgeRepository,
                      ConversationRepository conversationRepository) {
+        this(unitOfWork, knowledgeRepository, conversationRepository, new Options());
+    }
+
+    /**
+     * Create a service configured by the given options; see {@link Options} for what
+     * each one changes
+     */
+    public AIService(UnitOfWork unitOfWork,
+                     KnowledgeRepository knowledgeRepository,
+                     ConversationRepository conversationRepository,
+                     Options options) {
+        this.unitOfWork = unitOfWork;
         this.knowledgeRepository = knowledgeRepository;
         this.conversationRepository = conversationRepository;
+        this.conversationWriter = options.conversationWriter;
+        this.confidenceUpdater = options.confidenceUpdater;
+        this.conversationArchiver = options.conversationArchiver;
         this.sessionId = UUID.randomUUID().toString();
-        this.random = new Random();
+        long answerCacheSize = options.answerCacheSize;
+        SearchBackend.Type searchBackendType = options.searchBackendType;
+
+        KnowledgeIndex knowledgeIndex = null;
+        switch (searchBackendType) {
+            case INDEX:
+                // Build the question index once; the repository keeps it in sync from here on
+                knowledgeIndex = new KnowledgeIndex();
+                knowledgeIndex.rebuild(knowledgeRepository.findAll());
+                knowledgeRepository.addChangeListener(knowledgeIndex);
+                this.searchBackend = knowledgeIndex;
+                break;
+            case FULLTEXT:
+                // The database keeps its full-text index in sync itself
+                this.searchBackend = FullTextSearchBackend.install(unitOfWork);
+                break;
+            case LIKE:
+                this.searchBackend = new LikeSearchBackend(knowledgeRepository);
+                break;
+            case EMBEDDING:
+                EmbeddingStore embeddingStore = EmbeddingStore.fromSystemProperties();
+                embeddingStore.rebuild(knowledgeRepository.findAll());
+                knowledgeRepository.addChangeListener(embeddingStore);
+                this.searchBackend = embeddingStore;
+                break;
+            case HNSW:
+                // Loaded from the file saved at the last shutdown when it still matches
+                HnswIndex hnswIndex = HnswIndex.fromSystemProperties(knowledgeRepository);
+                knowledgeRepository.addChangeListener(hnswIndex);
+                this.searchBackend = hnswIndex;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown search backend: " + searchBackendType);
+        }
+        this.answerCache = answerCacheSize > 0 && knowledgeIndex != null
+            ? new AnswerCache(knowledgeIndex, answerCacheSize)
+            : null;
+
+        // Word-matching backends find nothing for misspelled words; the embedding
+        // backends compare letters and tolerate typos themselves
+        boolean matchesWords = searchBackendType == SearchBackend.Type.INDEX
+            || searchBackendType == SearchBackend.Type.FULLTEXT
+            || searchBackendType == SearchBackend.Type.LIKE;
+        this.spellingCorrector = matchesWords ? SpellingCorrector.fromSystemProperties() : null;
+        if (spellingCorrector != null) {
+            knowledgeRepository.forEachQuestion(spellingCorrector::addQuestion);
+            knowledgeRepository.addChangeListener(spellingCorrector);
+        }
     }
 
     /**
      * Process user query and generate response
      */
     public String processQuery(String userQuery) {
-        // Search for matching knowledge entries
-        List<KnowledgeEntry> matches = knowledgeRepository.searchByQuestion(userQuery);
+        return processQuery(userQuery, sessionId);
+    }
+
+    /**
+     * Process a query on behalf of the given conversation session.
+     * The whole request runs in one unit of work, so it is safe to call from many threads.
+     */
+    public String processQuery(String userQuery, String sessionId) {
+        long start = queryTimer.start();
+        long[] commitStart = new long[1];
+        String response = unitOfWork.execute(entityManager -> {
+            String answer = answer(userQuery, sessionId);
+            commitStart[0] = queryTimer.start();
+            return answer;
+        });
+        queryTimer.stop(QueryStage.COMMIT, commitStart[0]);
+        queryTimer.stop(QueryStage.TOTAL, start);
+        return response;
+    }
+
+    private String answer(String userQuery, String sessionId) {
+        // Repeated questions are answered from the cache without searching
+        AnswerCache.Answer match = answerCache != null
+            ? answerCache.get(userQuery, () -> findAnswer(userQuery))
+            : findAnswer(userQuery);
         
         String response;
-        if (!matches.isEmpty()) {
-            // Use the best matching entry (first result, sorted by confidence)
-            KnowledgeEntry bestMatch = matches.get(0);
-            response = bestMatch.getAnswer();
+        if (match.isPresent()) {
+            response = match.getText();
             
-            // Update confidence score
-            bestMatch.setConfidenceScore(bestMatch.getConfidenceScore() + CONFIDENCE_INCREMENT);
-            knowledgeRepository.update(bestMatch);
+            long confidenceStart = queryTimer.start();
+            raiseConfidence(match.getEntryId());
+            queryTimer.stop(QueryStage.CONFIDENCE, confidenceStart);
         } else {
             // Generate a default response
-            response = generateDefaultResponse(userQuery);
+            response = defaultResponse();
         }
         
-        // Save the conversation
-        Conversation conversation = new Conversation(userQuery, response, sessionId);
-        conversationRepository.create(conversation);
+        long conversationStart = queryTimer.start();
+        saveConversation(new Conversation(userQuery, response, sessionId));
+        queryTimer.stop(QueryStage.CONVERSATION, conversationStart);
         
         return response;
     }
 
+    /**
+     * Record queries that were answered before this service was ready, from a knowledge
+     * snapshot, in one transaction (or the caller's): the conversations are saved in this
+     * service's session with the times they took place, and the entries that answered
+     * them gain confidence. Both are written directly, not through the background writer
+     * and updater, so they commit or roll back with the transaction.
+     */
+    public void recordAnswers(List<SnapshotAnswer> answers) {
+        List<Conversation> conversations = new ArrayList<>(answers.size());
+        Map<Long, Double> hits = new HashMap<>();
+        for (SnapshotAnswer answer : answers) {
+            Conversation conversation = new Conversation(answer.query, answer.response, sessionId);
+            conversation.setTimestamp(answer.timestamp);
+            conversations.add(conversation);
+            if (answer.entryId != null) {
+                hits.merge(answer.entryId, CONFIDENCE_INCREMENT, Double::sum);
+            }
+        }
+        unitOfWork.run(entityManager -> {
+            conversationRepository.createAll(conversations);
+            knowledgeRepository.addConfidence(hits);
+        });
+    }
+
+    /**
+     * Run several calls to this service in one transaction
+     */
+    public void runInTransaction(Runnable work) {
+        unitOfWork.run(entityManager -> work.run());
+    }
+
+    /**
+     * Raise the confidence score; increments are applied in the database, never by merging
+     */
+    private void raiseConfidence(long entryId) {
+        if (confidenceUpdater != null) {
+            confidenceUpdater.recordHit(entryId);
+        } else {
+            knowledgeRepository.addConfidence(Map.of(entryId, CONFIDENCE_INCREMENT));
+        }
+    }
+
+    /**
+     * Save the conversation, off the response path when a writer is configured
+     */
+    private void saveConversation(Conversation conversation) {
+        if (conversationWriter != null) {
+            conversationWriter.submit(conversation);
+        } else {
+            conversationRepository.create(conversation);
+        }
+    }
+
+    /**
+     * Rank entries with the search backend and load only the best one. A query that
+     * finds nothing is searched again with its misspelled words corrected; such answers
+     * depend on words the query does not contain, so they are not cached.
+     */
+    private AnswerCache.Answer findAnswer(String userQuery) {
+        long searchStart = queryTimer.start();
+        List<KnowledgeIndex.SearchHit> hits = searchBackend.search(userQuery, TOP_K);
+        long searchEnd = queryTimer.stop(QueryStage.SEARCH, searchStart);
+        boolean corrected = false;
+        if (hits.isEmpty() && spellingCorrector != null) {
+            String correctedQuery = spellingCorrector.correct(userQuery);
+            if (correctedQuery != null) {
+                hits = searchBackend.search(correctedQuery, TOP_K);
+            }
+            queryTimer.stop(QueryStage.SPELLING, searchEnd);
+            corrected = true;
+        }
+        if (hits.isEmpty()) {
+            return corrected ? AnswerCache.Answer.none().uncached() : AnswerCache.Answer.none();
+        }
+        long lookupStart = queryTimer.start();
+        Optional<KnowledgeEntry> match = knowledgeRepository.findById(hits.get(0).getEntryId());
+        queryTimer.stop(QueryStage.LOOKUP, lookupStart);
+        AnswerCache.Answer answer = match.map(entry -> AnswerCache.Answer.of(entry.getId(), entry.getAnswer()))
+            .orElseGet(AnswerCache.Answer::none);
+        return corrected ? answer.uncached() : answer;
+    }
+
+    /**
+     * Find the best matching knowledge entries for a query, best first
+     */
+    public List<KnowledgeIndex.SearchHit> search(String query, int limit) {
+        return searchBackend.search(query, limit);
+    }
+
     /**
      * Generate a default response when no knowledge entry matches
      */
-    private String generateDefaultResponse(String query) {
+    static String defaultResponse() {
         String[] defaultResponses = {
             "That's an interesting question! I'm still learning about that topic.",
             "I don't have specific information about that yet, but I'm always learning!",
             "Could you tell me more about that? I'd like to learn!",
             "I'm not sure about that right now, but I'll remember this conversation for future reference."
         };
-        return defaultResponses[random.nextInt(defaultResponses.length)];
+        return defaultResponses[ThreadLocalRandom.current().nextInt(defaultResponses.length)];
     }
 
     /**
@@ -80,12 +305,54 @@ public class AIService {
     }
 
     /**
-     * Get all knowledge entries
+     * Save changes to an existing knowledge entry
+     */
+    public KnowledgeEntry updateKnowledge(KnowledgeEntry entry) {
+        return knowledgeRepository.update(entry);
+    }
+
+    /**
+     * Import knowledge entries from a CSV or JSON Lines file, reporting progress after
+     * each committed chunk
+     */
+    public ImportStats importKnowledge(Path file, Consumer<ImportStats> progress) throws IOException {
+        try (Stream<KnowledgeEntry> entries = KnowledgeFileReader.open(file)) {
+            return knowledgeRepository.importEntries(entries, IMPORT_CHUNK_SIZE, progress);
+        }
+    }
+
+    /**
+     * Write all knowledge entries, with current confidence scores, to a snapshot file
+     * that a read-only instance can answer from; returns the number of entries written
+     */
+    public int exportSnapshot(Path file) {
+        refreshConfidence();
+        return KnowledgeSnapshotWriter.export(knowledgeRepository, file);
+    }
+
+    /**
+     * Get all knowledge entries. Confidence scores include the increments written by the
+     * confidence updater's last scheduled flush; browsing does not force one.
      */
     public List<KnowledgeEntry> getAllKnowledge() {
         return knowledgeRepository.findAll();
     }
 
+    /**
+     * Get a page of knowledge entry summaries, newest first, starting after the given
+     * summary or at the newest entry if it is null
+     */
+    public Page<KnowledgeSummary> getKnowledgePage(KnowledgeSummary after, int pageSize) {
+        return knowledgeRepository.findPage(after, pageSize);
+    }
+
+    /**
+     * Number of knowledge entries
+     */
+    public long getKnowledgeCount() {
+        return knowledgeRepository.count();
+    }
+
     /**
      * Get knowledge entries by category
      */
@@ -97,6 +364,14 @@ public class AIService {
      * Get conversation history for current session
      */
     public List<Conversation> getConversationHistory() {
+        return getConversationHistory(sessionId);
+    }
+
+    /**
+     * Get conversation history for the given session
+     */
+    public List<Conversation> getConversationHistory(String sessionId) {
+        flushConversations();
         return conversationRepository.findBySessionId(sessionId);
     }
 
@@ -104,13 +379,56 @@ public class AIService {
      * Get all conversations
      */
     public List<Conversation> getAllConversations() {
+        flushConversations();
         return conversationRepository.findAll();
     }
 
     /**
-     * Initialize the knowledge base with sample data
+     * Get a page of conversation summaries across all sessions, newest first, starting
+     * after the given summary or at the newest conversation if it is null
+     */
+    public Page<ConversationSummary> getConversationPage(ConversationSummary after, int pageSize) {
+        if (after == null) {
+            flushConversations();
+        }
+        return conversationRepository.findPage(after, pageSize);
+    }
+
+    /**
+     * Number of logged conversations
+     */
+    public long getConversationCount() {
+        flushConversations();
+        return conversationRepository.count();
+    }
+
+    /**
+     * Write pending confidence increments, so entries read next show current scores
+     */
+    private void refreshConfidence() {
+        if (confidenceUpdater != null) {
+            confidenceUpdater.flush();
+        }
+    }
+
+    /**
+     * Make sure queued conversations are in the database before reading them back
+     */
+    private void flushConversations() {
+        if (conversationWriter != null) {
+            conversationWriter.flush();
+        }
+    }
+
+    /**
+     * Initialize the knowledge base with sample data if it is empty
      */
     public void initializeSampleKnowledge() {
+        // The check and all inserts share one transaction
+        unitOfWork.run(entityManager -> addSampleKnowledge());
+    }
+
+    private void addSampleKnowledge() {
         // Check if knowledge base is empty
         if (knowledgeRepository.count() > 0) {
             return; // Already initialized
@@ -146,10 +464,18 @@ public class AIService {
                     "General");
     }
 
+    /**
+     * Latency histogram of one stage of answering queries since startup
+     */
+    public LatencyHistogram getQueryLatency(QueryStage stage) {
+        return queryTimer.getHistogram(stage);
+    }
+
     /**
      * Get statistics about the knowledge base
      */
     public String getStatistics() {
+        flushConversations();
         long knowledgeCount = knowledgeRepository.count();
         long conversationCount = conversationRepository.count();
         
@@ -157,8 +483,123 @@ public class AIService {
             "Knowledge Base Stats:\n" +
             "- Total Knowledge Entries: %d\n" +
             "- Total Conversations: %d\n" +
+            "- Search Backend: %s\n" +
             "- Current Session: %s",
-            knowledgeCount, conversationCount, sessionId
-        );
+            knowledgeCount, conversationCount, searchBackend.getName(), sessionId
+        ) + (conversationWriter != null ? "\n\n" + conversationWriter.getStatistics() : "")
+          + (confidenceUpdater != null ? "\n\n" + confidenceUpdater.getStatistics() : "")
+          + (answerCache != null ? "\n\n" + answerCache.getStatistics() : "")
+          + (spellingCorrector != null ? "\n\n" + spellingCorrector.getStatistics() : "")
+          + (conversationArchiver != null ? "\n\n" + conversationArchiver.getStatistics() : "")
+          + "\n\n" + queryTimer.getStatistics()
+          + "\n\n" + CacheStatistics.of(unitOfWork.getEntityManagerFactory());
+    }
+
+    /**
+     * Close the search backend if it holds resources outside the database; the HNSW
+     * index is saved to its file here
+     */
+    public void close() {
+        if (searchBackend instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) searchBackend).close();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to close search backend", e);
+            }
+        }
+    }
+
+    /**
+     * A query answered from a knowledge snapshot, to be recorded with
+     * {@link #recordAnswers(List)}
+     */
+    public static final class SnapshotAnswer {
+        private final String query;
+        private final String response;
+        private final Long entryId;
+        private final LocalDateTime timestamp;
+
+        /**
+         * The entry id is that of the entry that answered the query, or null if none did
+         */
+        public SnapshotAnswer(String query, String response, Long entryId, LocalDateTime timestamp) {
+            this.query = query;
+            this.response = response;
+            this.entryId = entryId;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Optional parts of an {@link AIService}, set fluently:
+     * <pre>{@code
+     * new AIService(unitOfWork, knowledgeRepository, conversationRepository, new AIService.Options()
+     *     .conversationWriter(writer)
+     *     .confidenceUpdater(updater)
+     *     .answerCacheSize(AnswerCache.DEFAULT_MAXIMUM_SIZE));
+     * }</pre>
+     */
+    public static final class Options {
+        private ConversationWriter conversationWriter;
+        private ConfidenceUpdater confidenceUpdater;
+        private ConversationArchiver conversationArchiver;
+        private long answerCacheSize;
+        private SearchBackend.Type searchBackendType = SearchBackend.Type.INDEX;
+
+        /**
+         * Options with the answer cache size and search backend taken from the
+         * ai.answerCache.maximumSize and ai.search.backend system properties
+         */
+        public static Options fromSystemProperties() {
+            return new Options()
+                .answerCacheSize(AnswerCache.maximumSizeFromSystemProperties())
+                .searchBackend(SearchBackend.Type.fromSystemProperties());
+        }
+
+        /**
+         * Log conversations through a write-behind writer instead of before answering
+         */
+        public Options conversationWriter(ConversationWriter conversationWriter) {
+            this.conversationWriter = conversationWriter;
+            return this;
+        }
+
+        /**
+         * Coalesce confidence increments in an updater instead of writing each before
+         * answering. The updater should write through the same knowledge repository, so
+         * the index sees its changes.
+         */
+        public Options confidenceUpdater(ConfidenceUpdater confidenceUpdater) {
+            this.confidenceUpdater = confidenceUpdater;
+            return this;
+        }
+
+        /**
+         * Report on this archiver in the statistics. Archived conversations are read
+         * through the conversation repository.
+         */
+        public Options conversationArchiver(ConversationArchiver conversationArchiver) {
+            this.conversationArchiver = conversationArchiver;
+            return this;
+        }
+
+        /**
+         * Remember the answers to up to this many distinct queries (see
+         * {@link AnswerCache}); 0, the default, turns the answer cache off
+         */
+        public Options answerCacheSize(long answerCacheSize) {
+            this.answerCacheSize = answerCacheSize;
+            return this;
+        }
+
+        /**
+         * Find answers with this backend; {@link SearchBackend.Type#INDEX INDEX} by
+         * default. The answer cache relies on the in-memory index to notice changes, so it
+         * is only used with that backend.
+         */
+        public Options searchBackend(SearchBackend.Type searchBackendType) {
+            this.searchBackendType = searchBackendType;
+            return this;
+        }
     }
 }
@@ -0,0 +1,167 @@
+package com.example.ai.service;
+
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.search.TextTokenizer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers which knowledge entry answered a query, so repeated questions skip the
+ * index search and the entry lookup.
+ * <p>
+ * Queries are keyed by their distinct words in sorted order, which is exactly what the
+ * ranking depends on, so "What is Java?" and "what is java" share one entry. The cache is
+ * bounded and uses Caffeine's W-TinyLFU policy: a new query only displaces a cached one
+ * if it has been asked more often recently, so a burst of one-off questions cannot push
+ * out the popular ones.
+ * <p>
+ * Each cached answer remembers the {@link KnowledgeIndex#version(java.util.Collection)
+ * version} of its words at the time it was looked up. Adding, updating or deleting an
+ * entry, or raising its confidence, moves the version of that entry's words, so exactly the answers to queries
+ * sharing a word with it stop validating and are looked up again. Queries that found no
+ * entry are cached as well, so a new entry is picked up by them the same way. Answers the
+ * lookup marks {@link Answer#uncached() uncached}, such as those found by correcting the
+ * query's spelling, are returned without being kept.
+ */
+public class AnswerCache {
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final KnowledgeIndex index;
+    private final long maximumSize;
+    private final Cache<String, Answer> answers;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public AnswerCache(KnowledgeIndex index, long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        this.index = index;
+        this.maximumSize = maximumSize;
+        this.answers = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Maximum number of cached queries from the ai.answerCache.maximumSize system
+     * property; 0 turns the cache off
+     */
+    public static long maximumSizeFromSystemProperties() {
+        return Long.getLong("ai.answerCache.maximumSize", DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Return the cached answer for a query if it is still valid, otherwise look it up and
+     * cache the result
+     */
+    public Answer get(String query, Supplier<Answer> lookup) {
+        List<String> terms = List.copyOf(new TreeSet<>(TextTokenizer.tokenize(query)));
+        if (terms.isEmpty()) {
+            return lookup.get();
+        }
+        String key = String.join(" ", terms);
+
+        Answer cached = answers.getIfPresent(key);
+        if (cached != null) {
+            if (cached.version == index.version(terms)) {
+                hits.increment();
+                return cached;
+            }
+            invalidations.increment();
+            answers.asMap().remove(key, cached);
+        }
+        misses.increment();
+
+        // Read the version before looking up, so a change made in between invalidates the result
+        long version = index.version(terms);
+        Answer answer = lookup.get();
+        if (answer.version != Answer.UNCACHED) {
+            answers.put(key, new Answer(answer.entryId, answer.text, version));
+        }
+        return answer;
+    }
+
+    /**
+     * Number of queries currently cached
+     */
+    public long size() {
+        return answers.estimatedSize();
+    }
+
+    /**
+     * Current counters as a multi-line summary
+     */
+    public String getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return String.format(
+            "Answer Cache:\n" +
+            "- Size: %d of %d\n" +
+            "- Hits: %d, Misses: %d (%.1f%% hit ratio)\n" +
+            "- Invalidated: %d, Evicted: %d",
+            size(), maximumSize, hitCount, missCount, lookups == 0 ? 0.0 : 100.0 * hitCount / lookups,
+            invalidations.sum(), answers.stats().evictionCount()
+        );
+    }
+
+    /**
+     * The entry that answered a query, or no entry
+     */
+    public static final class Answer {
+        private static final long UNVERSIONED = -1;
+        private static final long UNCACHED = -2;
+
+        private final Long entryId;
+        private final String text;
+        private final long version;
+
+        private Answer(Long entryId, String text, long version) {
+            this.entryId = entryId;
+            this.text = text;
+            this.version = version;
+        }
+
+        /**
+         * An answer taken from the given entry
+         */
+        public static Answer of(long entryId, String text) {
+            return new Answer(entryId, text, UNVERSIONED);
+        }
+
+        /**
+         * No entry matched the query
+         */
+        public static Answer none() {
+            return new Answer(null, null, UNVERSIONED);
+        }
+
+        /**
+         * The same answer, marked to be returned but not cached
+         */
+        public Answer uncached() {
+            return new Answer(entryId, text, UNCACHED);
+        }
+
+        public boolean isPresent() {
+            return entryId != null;
+        }
+
+        public Long getEntryId() {
+            return entryId;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.ai.service;
+
+import com.example.ai.repository.KnowledgeRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects confidence-score increments in memory and writes them in bulk.
+ * <p>
+ * {@link #recordHit(long)} only bumps a striped counter for the entry, so answering a
+ * question no longer merges the entry in its own transaction, and threads answering the
+ * same popular entry do not contend on one row or one lock. A scheduled flush turns the
+ * counters into one batch of {@code confidence_score = confidence_score + ?} updates via
+ * {@link KnowledgeRepository#addConfidence(Map)}.
+ * <p>
+ * Flushes are serialized on this object. Listeners of the repository are told about
+ * each flushed batch. {@link #close()} stops the schedule and writes what is still pending.
+ */
+public class ConfidenceUpdater implements AutoCloseable {
+    public static final double DEFAULT_INCREMENT = 0.1;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final KnowledgeRepository repository;
+    private final double increment;
+    // Counters stay in the map once created: removing one could lose a hit recorded by a
+    // thread that already looked it up. The map is bounded by the number of entries.
+    private final Map<Long, LongAdder> pendingHits = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedHits = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    public ConfidenceUpdater(KnowledgeRepository repository, double increment, long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.repository = repository;
+        this.increment = increment;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "confidence-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create an updater configured from the ai.confidence.flushIntervalMillis system property
+     */
+    public static ConfidenceUpdater fromSystemProperties(KnowledgeRepository repository) {
+        return new ConfidenceUpdater(repository, DEFAULT_INCREMENT,
+            Long.getLong("ai.confidence.flushIntervalMillis", DEFAULT_FLUSH_INTERVAL_MILLIS));
+    }
+
+    /**
+     * Count one answer given from an entry
+     */
+    public void recordHit(long entryId) {
+        pendingHits.computeIfAbsent(entryId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Write all pending increments now
+     */
+    public synchronized void flush() {
+        Map<Long, Long> hits = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> pending : pendingHits.entrySet()) {
+            long count = pending.getValue().sumThenReset();
+            if (count > 0) {
+                hits.put(pending.getKey(), count);
+            }
+        }
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Double> deltas = new HashMap<>(hits.size() * 2);
+        hits.forEach((id, count) -> deltas.put(id, count * increment));
+        try {
+            repository.addConfidence(deltas);
+        } catch (RuntimeException e) {
+            // Put the hits back so the next flush retries them
+            hits.forEach((id, count) -> pendingHits.computeIfAbsent(id, key -> new LongAdder()).add(count));
+            failedFlushes.incrementAndGet();
+            throw e;
+        }
+        flushes.incrementAndGet();
+        hits.values().forEach(flushedHits::addAndGet);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush confidence scores: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hits recorded but not yet written
+     */
+    public long getPendingHits() {
+        long pending = 0;
+        for (LongAdder adder : pendingHits.values()) {
+            pending += adder.sum();
+        }
+        return pending;
+    }
+
+    /**
+     * Stop the scheduled flushes and write what is still pending
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Current counters as a multi-line summary
+     */
+    public String getStatistics() {
+        return String.format(
+            "Confidence Updates:\n" +
+            "- Pending Hits: %d\n" +
+            "- Flushed Hits: %d in %d batches (%d failed)",
+            getPendingHits(), flushedHits.get(), flushes.get(), failedFlushes.get()
+        );
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.ai.service;
+
+import com.example.ai.archive.ConversationArchive;
+import com.example.ai.model.Conversation;
+import com.example.ai.repository.ConversationRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the conversations table small by moving conversations older than the retention
+ * age into the {@link ConversationArchive}.
+ * <p>
+ * A scheduled run reads the oldest expired rows a segment at a time, writes them as one
+ * archive segment and deletes them from the table in a single batch. The conversation
+ * repository reads both places, so history stays available through the same methods
+ * after it has been archived.
+ * <p>
+ * Runs are serialized on this object. {@link #close()} stops the schedule; expired
+ * conversations that were not archived yet are picked up by the next start.
+ */
+public class ConversationArchiver implements AutoCloseable {
+    public static final long DEFAULT_MAX_AGE_HOURS = 30 * 24;
+    public static final long DEFAULT_CHECK_INTERVAL_MILLIS = 60 * 60 * 1000;
+    public static final int DEFAULT_SEGMENT_ROWS = 20_000;
+
+    private final ConversationRepository repository;
+    private final ConversationArchive archive;
+    private final Duration maxAge;
+    private final int segmentRows;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong archivedRows = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private volatile LocalDateTime lastRun;
+
+    public ConversationArchiver(ConversationRepository repository, ConversationArchive archive, Duration maxAge,
+                                int segmentRows, long checkIntervalMillis) {
+        if (maxAge.isNegative() || segmentRows < 1 || checkIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Retention age, segment size and check interval must be positive");
+        }
+        this.repository = repository;
+        this.archive = archive;
+        this.maxAge = maxAge;
+        this.segmentRows = segmentRows;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversation-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::archiveQuietly, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create an archiver configured from system properties: ai.retention.maxAgeHours,
+     * ai.retention.segmentRows and ai.retention.checkIntervalMillis. Returns null if
+     * ai.retention.maxAgeHours is negative, which turns retention off.
+     */
+    public static ConversationArchiver fromSystemProperties(ConversationRepository repository,
+                                                            ConversationArchive archive) {
+        long maxAgeHours = Long.getLong("ai.retention.maxAgeHours", DEFAULT_MAX_AGE_HOURS);
+        if (maxAgeHours < 0) {
+            return null;
+        }
+        return new ConversationArchiver(
+            repository,
+            archive,
+            Duration.ofHours(maxAgeHours),
+            Integer.getInteger("ai.retention.segmentRows", DEFAULT_SEGMENT_ROWS),
+            Long.getLong("ai.retention.checkIntervalMillis", DEFAULT_CHECK_INTERVAL_MILLIS)
+        );
+    }
+
+    /**
+     * Archive every conversation that is older than the retention age now.
+     * Returns the number of conversations archived.
+     */
+    public synchronized long archiveNow() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        long archived = 0;
+        try {
+            List<Conversation> expired;
+            do {
+                expired = repository.findOlderThan(cutoff, segmentRows);
+                archive.append(expired, repository::deleteAll);
+                archived += expired.size();
+                archivedRows.addAndGet(expired.size());
+            } while (expired.size() == segmentRows);
+        } catch (RuntimeException e) {
+            failedRuns.incrementAndGet();
+            throw e;
+        } finally {
+            runs.incrementAndGet();
+            lastRun = LocalDateTime.now();
+        }
+        return archived;
+    }
+
+    private void archiveQuietly() {
+        try {
+            archiveNow();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to archive conversations: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop the scheduled runs, waiting for one in progress to finish
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Current counters as a multi-line summary
+     */
+    public String getStatistics() {
+        return String.format(
+            "Conversation Archive:\n" +
+            "- Archived Conversations: %d in %d segments (%.1f KB on disk)\n" +
+            "- Retention: conversations older than %d hours\n" +
+            "- Archived This Run of the Application: %d in %d checks (%d failed)\n" +
+            "- Last Check: %s",
+            archive.count(), archive.getSegmentCount(), archive.getSizeBytes() / 1024.0,
+            maxAge.toHours(), archivedRows.get(), runs.get(), failedRuns.get(),
+            lastRun != null ? lastRun.withNano(0) : "never"
+        );
+    }
+}
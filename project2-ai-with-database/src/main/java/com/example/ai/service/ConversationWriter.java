@@ -0,0 +1,294 @@
+package com.example.ai.service;
+
+import com.example.ai.model.Conversation;
+import com.example.ai.repository.ConversationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind log for conversations.
+ * <p>
+ * {@link #submit(Conversation)} only puts the conversation on a bounded queue, so a chat
+ * turn does not wait for a commit. A background thread takes conversations off the queue
+ * and writes them with {@link ConversationRepository#createAll(List)}, one transaction
+ * per batch. A batch is written as soon as it is full, or when the oldest conversation in
+ * it has waited for the flush interval. What happens when the queue is full is decided
+ * by the {@link OverflowPolicy}.
+ * <p>
+ * {@link #close()} stops accepting conversations and writes everything still queued.
+ */
+public class ConversationWriter implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * What to do with a conversation when the queue is full
+     */
+    public enum OverflowPolicy {
+        /** Wait for room in the queue; the chat slows down to the writer's pace */
+        BLOCK,
+        /** Discard the conversation being submitted */
+        DROP_NEWEST,
+        /** Discard the oldest queued conversation to make room */
+        DROP_OLDEST
+    }
+
+    private final ConversationRepository repository;
+    private final BlockingQueue<Conversation> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread thread;
+    private final Object progress = new Object();
+    private volatile boolean accepting = true;
+    private volatile boolean flushRequested;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();   // accepted, then dropped by DROP_OLDEST
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+
+    public ConversationWriter(ConversationRepository repository, int queueCapacity, int batchSize,
+                              long flushIntervalMillis, OverflowPolicy overflowPolicy) {
+        if (queueCapacity < 1 || batchSize < 1 || flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive");
+        }
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.thread = new Thread(this::run, "conversation-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Create a writer configured from system properties:
+     * ai.conversations.queueCapacity, ai.conversations.batchSize,
+     * ai.conversations.flushIntervalMillis and ai.conversations.overflowPolicy
+     * (BLOCK, DROP_NEWEST or DROP_OLDEST).
+     */
+    public static ConversationWriter fromSystemProperties(ConversationRepository repository) {
+        return new ConversationWriter(
+            repository,
+            Integer.getInteger("ai.conversations.queueCapacity", DEFAULT_QUEUE_CAPACITY),
+            Integer.getInteger("ai.conversations.batchSize", DEFAULT_BATCH_SIZE),
+            Long.getLong("ai.conversations.flushIntervalMillis", DEFAULT_FLUSH_INTERVAL_MILLIS),
+            OverflowPolicy.valueOf(System.getProperty("ai.conversations.overflowPolicy", OverflowPolicy.BLOCK.name()))
+        );
+    }
+
+    /**
+     * Queue a conversation for writing.
+     * Returns false if it was discarded because the queue was full or the writer is closed.
+     */
+    public boolean submit(Conversation conversation) {
+        if (!accepting) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(conversation);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                break;
+            case DROP_NEWEST:
+                if (!queue.offer(conversation)) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(conversation)) {
+                    if (queue.poll() != null) {
+                        evicted.incrementAndGet();
+                        dropped.incrementAndGet();
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown overflow policy " + overflowPolicy);
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Write everything queued so far and wait until it is done.
+     * Used before reading conversations back so the reader sees its own writes.
+     */
+    public void flush() {
+        long target = submitted.get();
+        flushRequested = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        synchronized (progress) {
+            while (written.get() + failed.get() + evicted.get() < target && thread.isAlive()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(progress, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void run() {
+        List<Conversation> batch = new ArrayList<>(batchSize);
+        // The writer is never interrupted, since that could abort a database write; it
+        // wakes up at least this often to notice close() instead
+        long idleWaitNanos = Math.max(flushIntervalNanos, TimeUnit.MILLISECONDS.toNanos(1));
+        while (accepting || !queue.isEmpty()) {
+            try {
+                Conversation first = queue.poll(idleWaitNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    flushRequested = false;
+                    continue;
+                }
+                batch.add(first);
+                // Fill the batch until it is full or the first conversation has waited long enough
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize && accepting && !flushRequested) {
+                    long remaining = deadline - System.nanoTime();
+                    Conversation next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+            if (queue.isEmpty()) {
+                flushRequested = false;
+            }
+        }
+    }
+
+    private void write(List<Conversation> batch) {
+        long start = System.nanoTime();
+        try {
+            repository.createAll(batch);
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            System.err.println("Failed to write " + batch.size() + " conversations: " + e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        lastFlushNanos = elapsed;
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        batches.incrementAndGet();
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+
+    /**
+     * Stop accepting conversations, write everything still queued and stop the writer thread
+     */
+    @Override
+    public void close() {
+        accepting = false;
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            System.err.println("Conversation writer did not finish; " + queue.size() + " conversations not written");
+        }
+    }
+
+    /**
+     * Conversations waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Duration of the most recent batch write, in milliseconds
+     */
+    public double getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    /**
+     * Longest batch write so far, in milliseconds
+     */
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Average batch write duration, in milliseconds
+     */
+    public double getAverageFlushMillis() {
+        long count = batches.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / 1_000_000.0 / count;
+    }
+
+    /**
+     * Current counters as a multi-line summary
+     */
+    public String getStatistics() {
+        return String.format(
+            "Conversation Writer:\n" +
+            "- Queue Depth: %d\n" +
+            "- Submitted: %d, Written: %d, Dropped: %d, Failed: %d\n" +
+            "- Batches: %d, Flush Latency (ms): last %.2f, avg %.2f, max %.2f",
+            getQueueDepth(), getSubmittedCount(), getWrittenCount(), getDroppedCount(), getFailedCount(),
+            getBatchCount(), getLastFlushMillis(), getAverageFlushMillis(), getMaxFlushMillis()
+        );
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.ai.service;
+
+import com.example.ai.metrics.StartupPhases;
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.snapshot.KnowledgeSnapshot;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Answers queries while the database is still starting.
+ * <p>
+ * The {@link AIService} is built on a background thread; bootstrapping Hibernate,
+ * checking the schema and building the search index take seconds, and longer the larger
+ * the knowledge base. Until it is ready, queries are answered from a
+ * {@link KnowledgeSnapshot} exported by an earlier run, and the writes they cause, the
+ * conversation and the confidence hit, are kept in memory together with any knowledge
+ * added in the meantime. Once the service is ready these are written in one
+ * transaction, directly rather than through the service's background writer and
+ * confidence updater, and from then on every call goes straight to the service.
+ * Queries that arrive during the handover wait for it, so nothing is lost or written
+ * twice.
+ * <p>
+ * Without a snapshot, queries wait for the database. Operations that need the database,
+ * such as listings, wait for it through {@link #awaitReady()}.
+ * <p>
+ * If the database fails to start, what was buffered is dropped and nothing more is
+ * buffered: queries are still answered from the snapshot but not recorded, and adding
+ * knowledge fails like every other operation that needs the database.
+ */
+public class DeferredAIService implements AutoCloseable {
+    private final KnowledgeSnapshot snapshot;
+    private final StartupPhases phases;
+    private final CompletableFuture<AIService> ready = new CompletableFuture<>();
+    private final Thread bootstrapThread;
+
+    // Guarded by this; null once handed over or once starting the database failed
+    private List<AIService.SnapshotAnswer> pendingAnswers = new ArrayList<>();
+    private List<KnowledgeEntry> pendingKnowledge = new ArrayList<>();
+    private volatile AIService service;
+    private int handedOverAnswers;
+    private int handedOverKnowledge;
+    private int droppedAnswers;
+    private int droppedKnowledge;
+
+    /**
+     * Start building the service on a background thread; queries are answered from the
+     * snapshot (may be null) until it is ready. The time the handover takes is recorded
+     * in {@code phases}.
+     */
+    public DeferredAIService(KnowledgeSnapshot snapshot, Supplier<AIService> bootstrap, StartupPhases phases) {
+        this.snapshot = snapshot;
+        this.phases = phases;
+        this.bootstrapThread = new Thread(() -> start(bootstrap), "database-bootstrap");
+        this.bootstrapThread.setDaemon(true);
+        this.bootstrapThread.start();
+    }
+
+    private void start(Supplier<AIService> bootstrap) {
+        AIService started;
+        try {
+            started = bootstrap.get();
+        } catch (RuntimeException | Error e) {
+            fail(e);
+            return;
+        }
+        long start = phases.start();
+        try {
+            handOver(started);
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        }
+        phases.stop("handover", start);
+        ready.complete(started);
+    }
+
+    /**
+     * Write what was buffered in one transaction and make the started service the one
+     * that answers. Buffered entries are added first, so conversations saved with them
+     * already see them in the database.
+     */
+    private synchronized void handOver(AIService started) {
+        started.runInTransaction(() -> {
+            for (KnowledgeEntry entry : pendingKnowledge) {
+                started.addKnowledge(entry.getQuestion(), entry.getAnswer(), entry.getCategory());
+            }
+            started.recordAnswers(pendingAnswers);
+        });
+        handedOverKnowledge = pendingKnowledge.size();
+        handedOverAnswers = pendingAnswers.size();
+        pendingKnowledge = null;
+        pendingAnswers = null;
+        service = started;
+    }
+
+    /**
+     * Stop buffering: with no database to hand over to, the buffers would only grow
+     */
+    private synchronized void fail(Throwable failure) {
+        droppedAnswers = pendingAnswers.size();
+        droppedKnowledge = pendingKnowledge.size();
+        pendingAnswers = null;
+        pendingKnowledge = null;
+        ready.completeExceptionally(failure);
+    }
+
+    /**
+     * Answer a query, from the snapshot if the database is not ready yet or failed to
+     * start
+     */
+    public String processQuery(String userQuery) {
+        AIService current = service;
+        if (current != null) {
+            return current.processQuery(userQuery);
+        }
+        if (snapshot == null) {
+            return awaitReady().processQuery(userQuery);
+        }
+
+        List<KnowledgeIndex.SearchHit> hits = snapshot.search(userQuery, 1);
+        String answer = hits.isEmpty() ? null : snapshot.getAnswer(hits.get(0).getEntryId());
+        Long entryId = answer != null ? hits.get(0).getEntryId() : null;
+        String response = answer != null ? answer : AIService.defaultResponse();
+        LocalDateTime timestamp = LocalDateTime.now();
+        synchronized (this) {
+            if (service == null) {
+                if (pendingAnswers != null) {
+                    pendingAnswers.add(new AIService.SnapshotAnswer(userQuery, response, entryId, timestamp));
+                }
+                return response;
+            }
+        }
+        // Handed over while answering; record it like the buffered ones
+        service.recordAnswers(List.of(new AIService.SnapshotAnswer(userQuery, response, entryId, timestamp)));
+        return response;
+    }
+
+    /**
+     * Add new knowledge; while the database is starting it is kept until the handover and
+     * the returned entry has no id yet. It is not searchable before the handover. Throws
+     * like {@link #awaitReady()} if the database failed to start.
+     */
+    public KnowledgeEntry addKnowledge(String question, String answer, String category) {
+        synchronized (this) {
+            if (service == null && pendingKnowledge != null) {
+                KnowledgeEntry entry = new KnowledgeEntry(question, answer, category);
+                entry.setConfidenceScore(1.0);
+                pendingKnowledge.add(entry);
+                return entry;
+            }
+        }
+        return awaitReady().addKnowledge(question, answer, category);
+    }
+
+    /**
+     * Whether the database is ready and queries go to it
+     */
+    public boolean isReady() {
+        return service != null;
+    }
+
+    /**
+     * Wait for the database and return the service answering from it
+     */
+    public AIService awaitReady() {
+        try {
+            return ready.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to start the database", e.getCause());
+        }
+    }
+
+    /**
+     * Completes with the service once the database is ready and everything buffered has
+     * been handed over, or exceptionally if starting it failed
+     */
+    public CompletableFuture<AIService> whenReady() {
+        return ready;
+    }
+
+    /**
+     * Statistics of the service once ready, or what is being buffered until then
+     */
+    public String getStatistics() {
+        AIService current = service;
+        if (current != null) {
+            return current.getStatistics() + String.format(
+                "\n\nStartup:\n" +
+                "- Phases: %s\n" +
+                "- Handed Over: %d queries answered and %d entries added while starting",
+                phases, handedOverAnswers, handedOverKnowledge);
+        }
+        synchronized (this) {
+            if (ready.isCompletedExceptionally()) {
+                return String.format(
+                    "Startup (database failed to start):\n" +
+                    "- Answering From: %s, without recording conversations\n" +
+                    "- Not Written: %d conversations and %d new entries from before the failure\n" +
+                    "- Phases: %s",
+                    snapshot != null ? snapshot.getName() + " (" + snapshot.size() + " entries)" : "nothing",
+                    droppedAnswers, droppedKnowledge, phases);
+            }
+            return String.format(
+                "Startup (database not ready yet):\n" +
+                "- Answering From: %s\n" +
+                "- Waiting To Be Written: %d conversations, %d new entries\n" +
+                "- Phases So Far: %s",
+                snapshot != null ? snapshot.getName() + " (" + snapshot.size() + " entries)" : "nothing, queries wait",
+                pendingAnswers != null ? pendingAnswers.size() : 0,
+                pendingKnowledge != null ? pendingKnowledge.size() : 0,
+                phases);
+        }
+    }
+
+    /**
+     * Wait for the bootstrap to finish, so buffered writes are handed over, and release
+     * the snapshot. A failed bootstrap is not reported again here.
+     */
+    @Override
+    public void close() {
+        try {
+            bootstrapThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (snapshot != null) {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close knowledge snapshot", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.ai.service;
+
+import com.example.ai.metrics.LatencyHistogram;
+import com.example.ai.metrics.StageTimer;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.service.AIService.QueryStage;
+import com.example.ai.snapshot.KnowledgeSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers queries from a {@link KnowledgeSnapshot} file, without a database.
+ * <p>
+ * Starting needs no JPA bootstrap, schema check or index build: the snapshot is mapped
+ * and the first query can be answered right away. Nothing is written, so confidence
+ * scores stay as they were exported, conversations are not recorded and misspelled
+ * queries are not corrected.
+ * <p>
+ * A background check looks at the file every interval. When it has been replaced,
+ * typically by {@link com.example.ai.snapshot.KnowledgeSnapshotWriter} renaming a new
+ * export over it, the new file is mapped and swapped in with a single volatile write;
+ * queries in flight finish on the snapshot they started with.
+ */
+public class SnapshotAIService implements AutoCloseable {
+    public static final long DEFAULT_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final Path file;
+    private final ScheduledExecutorService watcher;
+    private final StageTimer<QueryStage> queryTimer = new StageTimer<>("Query Latency", QueryStage.class);
+    private volatile KnowledgeSnapshot snapshot;
+    private Object fileVersion;
+
+    private final AtomicLong swaps = new AtomicLong();
+    private final AtomicLong failedChecks = new AtomicLong();
+
+    public SnapshotAIService(Path file, long checkIntervalMillis) throws IOException {
+        if (checkIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Check interval must be positive");
+        }
+        this.file = file;
+        this.fileVersion = fileVersion(file);
+        this.snapshot = KnowledgeSnapshot.open(file);
+
+        this.watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watcher.scheduleWithFixedDelay(this::checkQuietly, checkIntervalMillis, checkIntervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a service serving the snapshot named by the ai.snapshot.file system property,
+     * checking it for replacement every ai.snapshot.checkIntervalMillis. Returns null if
+     * no snapshot file is configured.
+     */
+    public static SnapshotAIService fromSystemProperties() {
+        String file = System.getProperty("ai.snapshot.file");
+        if (file == null || file.isBlank()) {
+            return null;
+        }
+        try {
+            return new SnapshotAIService(Paths.get(file),
+                Long.getLong("ai.snapshot.checkIntervalMillis", DEFAULT_CHECK_INTERVAL_MILLIS));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open knowledge snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Answer a query from the current snapshot
+     */
+    public String processQuery(String userQuery) {
+        long start = queryTimer.start();
+        KnowledgeSnapshot current = snapshot;
+        List<KnowledgeIndex.SearchHit> hits = current.search(userQuery, 1);
+        long searchEnd = queryTimer.stop(QueryStage.SEARCH, start);
+        String answer = null;
+        if (!hits.isEmpty()) {
+            answer = current.getAnswer(hits.get(0).getEntryId());
+            queryTimer.stop(QueryStage.LOOKUP, searchEnd);
+        }
+        String response = answer != null ? answer : AIService.defaultResponse();
+        queryTimer.stop(QueryStage.TOTAL, start);
+        return response;
+    }
+
+    /**
+     * Find the best matching knowledge entries for a query, best first
+     */
+    public List<KnowledgeIndex.SearchHit> search(String query, int limit) {
+        return snapshot.search(query, limit);
+    }
+
+    /**
+     * The snapshot queries are currently answered from
+     */
+    public KnowledgeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Map the file again if it has been replaced since it was last mapped; returns
+     * whether a new snapshot was swapped in
+     */
+    public synchronized boolean checkForUpdate() throws IOException {
+        if (!Files.exists(file)) {
+            return false; // keep serving the snapshot already mapped
+        }
+        Object version = fileVersion(file);
+        if (version.equals(fileVersion)) {
+            return false;
+        }
+        KnowledgeSnapshot replaced = snapshot;
+        snapshot = KnowledgeSnapshot.open(file);
+        fileVersion = version;
+        replaced.close();
+        swaps.incrementAndGet();
+        return true;
+    }
+
+    private void checkQuietly() {
+        try {
+            checkForUpdate();
+        } catch (IOException | RuntimeException e) {
+            // A missing or half-copied file is retried on the next check
+            failedChecks.incrementAndGet();
+            System.err.println("Failed to load knowledge snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * What identifies one version of the file: a new file under the same name differs
+     * in its file key (inode) or, where there is none, in modification time or size
+     */
+    private static Object fileVersion(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return List.of(Objects.toString(attributes.fileKey()), attributes.lastModifiedTime(), attributes.size());
+    }
+
+    /**
+     * Latency histogram of one stage of answering queries since startup
+     */
+    public LatencyHistogram getQueryLatency(QueryStage stage) {
+        return queryTimer.getHistogram(stage);
+    }
+
+    /**
+     * Current snapshot and counters as a multi-line summary
+     */
+    public String getStatistics() {
+        KnowledgeSnapshot current = snapshot;
+        return String.format(
+            "Knowledge Snapshot (read-only):\n" +
+            "- File: %s (%.1f KB)\n" +
+            "- Exported: %s\n" +
+            "- Total Knowledge Entries: %d (%d distinct question words)\n" +
+            "- Reloaded: %d times (%d failed checks)",
+            file, current.getSizeBytes() / 1024.0, Instant.ofEpochMilli(current.getCreatedAt()),
+            current.size(), current.getTermCount(), swaps.get(), failedChecks.get()
+        ) + "\n\n" + queryTimer.getStatistics();
+    }
+
+    /**
+     * Stop watching the file and release the snapshot
+     */
+    @Override
+    public void close() {
+        watcher.shutdown();
+        try {
+            watcher.awaitTermination(30, TimeUnit.SECONDS);
+            snapshot.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close knowledge snapshot " + file, e);
+        }
+    }
+}
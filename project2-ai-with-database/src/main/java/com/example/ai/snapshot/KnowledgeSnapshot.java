@@ -0,0 +1,367 @@
+package com.example.ai.snapshot;
+
+import com.example.ai.search.Bm25;
+import com.example.ai.search.KnowledgeIndex;
+import com.example.ai.search.SearchBackend;
+import com.example.ai.search.TextTokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only view of the knowledge base in a memory-mapped file written by
+ * {@link KnowledgeSnapshotWriter}, for answering queries without a database.
+ * <p>
+ * The file holds every entry's id, question length, confidence score and texts, and the
+ * BM25 index over the questions: a hash table from word to its posting list of document
+ * numbers and frequencies. Opening it maps the file and reads the header, nothing more,
+ * so a snapshot of any size is ready in about a millisecond and the operating system
+ * pages in only what searches touch. Searches rank exactly as {@link KnowledgeIndex}
+ * does for the same entries, walking the mapped posting lists with primitive cursors.
+ * <p>
+ * Layout (big-endian): a header with the magic number, format version, creation time,
+ * counts and section offsets, followed by the sections
+ * <ul>
+ *   <li>entry ids, ascending ({@code long} per entry)</li>
+ *   <li>question lengths in words ({@code int} per entry)</li>
+ *   <li>confidence scores ({@code double} per entry)</li>
+ *   <li>offsets of the question, answer and category of each entry in the text section,
+ *       plus the end offset ({@code long} each)</li>
+ *   <li>texts, UTF-8; a missing category is stored empty</li>
+ *   <li>word table, open addressing: word hash, start and length of the word in the word
+ *       section, start and length of its posting list</li>
+ *   <li>words ({@code char}s)</li>
+ *   <li>postings: document number and frequency ({@code int} pairs)</li>
+ * </ul>
+ * A snapshot is immutable and safe for concurrent searches.
+ */
+public final class KnowledgeSnapshot implements SearchBackend, AutoCloseable {
+    static final int MAGIC = 0x41494B53; // "AIKS"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 100;
+    static final int SLOT_BYTES = 24;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long createdAt;
+    private final int count;
+    private final int termCount;
+    private final int tableSize;
+    private final double averageLength;
+    private final int idsOffset;
+    private final int lengthsOffset;
+    private final int confidenceOffset;
+    private final int textOffsetsOffset;
+    private final int textsOffset;
+    private final int tableOffset;
+    private final int termCharsOffset;
+    private final int postingsOffset;
+
+    private KnowledgeSnapshot(Path file, FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a knowledge snapshot: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported knowledge snapshot version " + buffer.getInt(4) + ": " + file);
+        }
+        createdAt = buffer.getLong(8);
+        count = buffer.getInt(16);
+        termCount = buffer.getInt(20);
+        tableSize = buffer.getInt(24);
+        long totalLength = buffer.getLong(28);
+        averageLength = count > 0 ? (double) totalLength / count : 0;
+        idsOffset = offset(36);
+        lengthsOffset = offset(44);
+        confidenceOffset = offset(52);
+        textOffsetsOffset = offset(60);
+        textsOffset = offset(68);
+        tableOffset = offset(76);
+        termCharsOffset = offset(84);
+        postingsOffset = offset(92);
+    }
+
+    /**
+     * Map a snapshot file; the file may be replaced or deleted afterwards without
+     * affecting the opened snapshot
+     */
+    public static KnowledgeSnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Knowledge snapshot larger than 2 GB: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new KnowledgeSnapshot(file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Find the best {@code limit} entries for a query, best first; entries with the same
+     * score are ordered by id, as in {@link KnowledgeIndex}
+     */
+    @Override
+    public List<KnowledgeIndex.SearchHit> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        if (queryTerms.isEmpty() || limit <= 0 || count == 0) {
+            return List.of();
+        }
+
+        // Cursor positions and ends in the postings section, as pair indexes, and the
+        // document each cursor is on (MAX_VALUE once it is exhausted)
+        int[] positions = new int[queryTerms.size()];
+        int[] ends = new int[queryTerms.size()];
+        int[] docs = new int[queryTerms.size()];
+        double[] idfs = new double[queryTerms.size()];
+        int cursors = 0;
+        double queryWeight = 0;
+        for (String term : queryTerms) {
+            int slot = findSlot(term);
+            if (slot >= 0) {
+                int start = buffer.getInt(slot + 16);
+                int documentFrequency = buffer.getInt(slot + 20);
+                positions[cursors] = start;
+                ends[cursors] = start + documentFrequency;
+                docs[cursors] = postingDoc(start);
+                idfs[cursors] = Bm25.idf(count, documentFrequency);
+                queryWeight += idfs[cursors];
+                cursors++;
+            } else if (!TextTokenizer.isFiller(term)) {
+                queryWeight += Bm25.idf(count, 0);
+            }
+        }
+        if (cursors == 0) {
+            return List.of();
+        }
+
+        // Document-at-a-time merge into a small array of the best, replacing the worst.
+        // Documents are in id order, so of equal scores the lower id is kept.
+        int k = Math.min(limit, count);
+        int[] bestDocs = new int[k];
+        double[] bestScores = new double[k];
+        int found = 0;
+        int worst = 0;
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int c = 0; c < cursors; c++) {
+                doc = Math.min(doc, docs[c]);
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+
+            double bm25 = 0;
+            double matchedWeight = 0;
+            int length = buffer.getInt(lengthsOffset + doc * Integer.BYTES);
+            for (int c = 0; c < cursors; c++) {
+                if (docs[c] == doc) {
+                    int frequency = buffer.getInt(postingsOffset + positions[c] * 8 + 4);
+                    bm25 += Bm25.termScore(idfs[c], frequency, length, averageLength);
+                    matchedWeight += idfs[c];
+                    docs[c] = ++positions[c] < ends[c] ? postingDoc(positions[c]) : Integer.MAX_VALUE;
+                }
+            }
+            if (!Bm25.coversQuery(matchedWeight, queryWeight)) {
+                continue;
+            }
+            double score = Bm25.score(bm25, buffer.getDouble(confidenceOffset + doc * Double.BYTES));
+            if (found < k) {
+                bestDocs[found] = doc;
+                bestScores[found] = score;
+                found++;
+                if (found == k) {
+                    worst = indexOfMin(bestScores, k);
+                }
+            } else if (score > bestScores[worst]) {
+                bestDocs[worst] = doc;
+                bestScores[worst] = score;
+                worst = indexOfMin(bestScores, k);
+            }
+        }
+
+        List<KnowledgeIndex.SearchHit> hits = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            hits.add(new KnowledgeIndex.SearchHit(buffer.getLong(idsOffset + bestDocs[i] * Long.BYTES), bestScores[i]));
+        }
+        hits.sort(KnowledgeIndex.SearchHit.BEST_FIRST);
+        return hits;
+    }
+
+    /**
+     * Answer of the entry with the given id, or null if the snapshot does not contain it
+     */
+    public String getAnswer(long entryId) {
+        int doc = findDoc(entryId);
+        return doc >= 0 ? text(3 * doc + 1) : null;
+    }
+
+    /**
+     * Question of the entry with the given id, or null if the snapshot does not contain it
+     */
+    public String getQuestion(long entryId) {
+        int doc = findDoc(entryId);
+        return doc >= 0 ? text(3 * doc) : null;
+    }
+
+    /**
+     * Category of the entry with the given id, or null if it has none or the snapshot
+     * does not contain it
+     */
+    public String getCategory(long entryId) {
+        int doc = findDoc(entryId);
+        String category = doc >= 0 ? text(3 * doc + 2) : null;
+        return category != null && !category.isEmpty() ? category : null;
+    }
+
+    @Override
+    public String getName() {
+        return "knowledge snapshot " + file.getFileName();
+    }
+
+    /**
+     * Number of entries in the snapshot
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Number of distinct question words in the snapshot
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * When the snapshot was written, in epoch milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Size of the snapshot file in bytes
+     */
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Release the file; the mapping itself is unmapped once it is no longer reachable,
+     * so searches still running on this snapshot complete normally
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Word table slot of a word, as an absolute position, or -1 if no question has it
+     */
+    private int findSlot(String term) {
+        long hash = hash(term);
+        int mask = tableSize - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            int position = tableOffset + slot * SLOT_BYTES;
+            long slotHash = buffer.getLong(position);
+            if (slotHash == 0) {
+                return -1;
+            }
+            if (slotHash == hash && termEquals(position, term)) {
+                return position;
+            }
+        }
+    }
+
+    private boolean termEquals(int slot, String term) {
+        if (buffer.getInt(slot + 12) != term.length()) {
+            return false;
+        }
+        int start = termCharsOffset + buffer.getInt(slot + 8) * Character.BYTES;
+        for (int i = 0; i < term.length(); i++) {
+            if (buffer.getChar(start + i * Character.BYTES) != term.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int postingDoc(int pair) {
+        return buffer.getInt(postingsOffset + pair * 8);
+    }
+
+    private int findDoc(long entryId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long id = buffer.getLong(idsOffset + middle * Long.BYTES);
+            if (id < entryId) {
+                low = middle + 1;
+            } else if (id > entryId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private String text(int index) {
+        long start = buffer.getLong(textOffsetsOffset + index * Long.BYTES);
+        long end = buffer.getLong(textOffsetsOffset + (index + 1) * Long.BYTES);
+        byte[] bytes = new byte[(int) (end - start)];
+        buffer.get(textsOffset + (int) start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int offset(int headerPosition) throws IOException {
+        long offset = buffer.getLong(headerPosition);
+        if (offset < HEADER_BYTES || offset > buffer.capacity()) {
+            throw new IOException("Corrupt knowledge snapshot header: " + file);
+        }
+        return (int) offset;
+    }
+
+    private static int indexOfMin(double[] scores, int size) {
+        int min = 0;
+        for (int i = 1; i < size; i++) {
+            if (scores[i] < scores[min]) {
+                min = i;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Number of word table slots for a number of words: a power of two at most half full
+     */
+    static int tableSize(int terms) {
+        return Math.max(16, Integer.highestOneBit(Math.max(1, terms * 2 - 1)) << 1);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a word; never 0, which marks an empty slot
+     */
+    static long hash(String term) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < term.length(); i++) {
+            hash ^= term.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+}
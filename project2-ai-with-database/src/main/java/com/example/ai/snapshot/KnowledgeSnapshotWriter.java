@@ -0,0 +1,196 @@
+package com.example.ai.snapshot;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.search.TextTokenizer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Collects knowledge entries and writes them, with the question index, as a
+ * {@link KnowledgeSnapshot} file.
+ * <p>
+ * Entries must be added in ascending id order, which is how
+ * {@link KnowledgeRepository#forEachEntry} delivers them; the position of an entry in
+ * that order is its document number in the file. The file is written under a temporary
+ * name, forced to disk and then renamed over the target, so readers only ever see a
+ * complete snapshot and a watching {@link KnowledgeSnapshot} reader picks up the new
+ * file as a whole.
+ */
+public final class KnowledgeSnapshotWriter {
+    private long[] ids = new long[1024];
+    private int[] lengths = new int[1024];
+    private double[] confidence = new double[1024];
+    private final List<byte[]> texts = new ArrayList<>();
+    private final Map<String, int[]> postings = new HashMap<>();
+    private final Map<String, Integer> postingSizes = new HashMap<>();
+    private int count;
+    private long totalLength;
+
+    /**
+     * Write all entries of the repository to a snapshot file; returns the number written
+     */
+    public static int export(KnowledgeRepository repository, Path file) {
+        KnowledgeSnapshotWriter writer = new KnowledgeSnapshotWriter();
+        repository.forEachEntry(writer::add);
+        try {
+            writer.write(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write knowledge snapshot " + file, e);
+        }
+        return writer.count;
+    }
+
+    /**
+     * Add one entry; its id must be greater than that of the entry added before it
+     */
+    public void add(KnowledgeEntry entry) {
+        if (count > 0 && entry.getId() <= ids[count - 1]) {
+            throw new IllegalArgumentException("Entries must be added in ascending id order, got "
+                + entry.getId() + " after " + ids[count - 1]);
+        }
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+            confidence = Arrays.copyOf(confidence, count * 2);
+        }
+        int doc = count++;
+        List<String> tokens = TextTokenizer.tokenize(entry.getQuestion());
+        ids[doc] = entry.getId();
+        lengths[doc] = tokens.size();
+        confidence[doc] = entry.getConfidenceScore() != null ? entry.getConfidenceScore() : 0.0;
+        totalLength += tokens.size();
+        texts.add(utf8(entry.getQuestion()));
+        texts.add(utf8(entry.getAnswer()));
+        texts.add(utf8(entry.getCategory()));
+
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            // Pairs of document number and frequency, in document order
+            int size = postingSizes.getOrDefault(term.getKey(), 0);
+            int[] list = postings.get(term.getKey());
+            if (list == null || list.length < size + 2) {
+                list = list == null ? new int[4] : Arrays.copyOf(list, list.length * 2);
+                postings.put(term.getKey(), list);
+            }
+            list[size] = doc;
+            list[size + 1] = term.getValue();
+            postingSizes.put(term.getKey(), size + 2);
+        }
+    }
+
+    /**
+     * Write the collected entries to a snapshot file, replacing it atomically
+     */
+    public void write(Path file) throws IOException {
+        List<String> terms = new ArrayList<>(postings.keySet());
+        Collections.sort(terms);
+        int tableSize = KnowledgeSnapshot.tableSize(terms.size());
+
+        // Lay out the sections back to back after the header
+        long idsOffset = KnowledgeSnapshot.HEADER_BYTES;
+        long lengthsOffset = idsOffset + (long) count * Long.BYTES;
+        long confidenceOffset = lengthsOffset + (long) count * Integer.BYTES;
+        long textOffsetsOffset = confidenceOffset + (long) count * Double.BYTES;
+        long textsOffset = textOffsetsOffset + (3L * count + 1) * Long.BYTES;
+        long textBytes = 0;
+        for (byte[] text : texts) {
+            textBytes += text.length;
+        }
+        long tableOffset = textsOffset + textBytes;
+        long termCharsOffset = tableOffset + (long) tableSize * KnowledgeSnapshot.SLOT_BYTES;
+        long termChars = 0;
+        for (String term : terms) {
+            termChars += term.length();
+        }
+        long postingsOffset = termCharsOffset + termChars * Character.BYTES;
+
+        // Open-addressing table from word hash to its characters and postings
+        long[] slotHashes = new long[tableSize];
+        int[][] slots = new int[tableSize][];
+        int charStart = 0;
+        int postingStart = 0;
+        for (String term : terms) {
+            long hash = KnowledgeSnapshot.hash(term);
+            int slot = (int) hash & (tableSize - 1);
+            while (slots[slot] != null) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            int pairs = postingSizes.get(term) / 2;
+            slotHashes[slot] = hash;
+            slots[slot] = new int[] {charStart, term.length(), postingStart, pairs};
+            charStart += term.length();
+            postingStart += pairs;
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            out.writeInt(KnowledgeSnapshot.MAGIC);
+            out.writeInt(KnowledgeSnapshot.VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(count);
+            out.writeInt(terms.size());
+            out.writeInt(tableSize);
+            out.writeLong(totalLength);
+            for (long offset : new long[] {idsOffset, lengthsOffset, confidenceOffset, textOffsetsOffset,
+                    textsOffset, tableOffset, termCharsOffset, postingsOffset}) {
+                out.writeLong(offset);
+            }
+
+            for (int doc = 0; doc < count; doc++) {
+                out.writeLong(ids[doc]);
+            }
+            for (int doc = 0; doc < count; doc++) {
+                out.writeInt(lengths[doc]);
+            }
+            for (int doc = 0; doc < count; doc++) {
+                out.writeDouble(confidence[doc]);
+            }
+            long textOffset = 0;
+            for (byte[] text : texts) {
+                out.writeLong(textOffset);
+                textOffset += text.length;
+            }
+            out.writeLong(textOffset);
+            for (byte[] text : texts) {
+                out.write(text);
+            }
+            for (int slot = 0; slot < tableSize; slot++) {
+                int[] entry = slots[slot] != null ? slots[slot] : new int[4];
+                out.writeLong(slotHashes[slot]);
+                for (int value : entry) {
+                    out.writeInt(value);
+                }
+            }
+            for (String term : terms) {
+                out.writeChars(term);
+            }
+            for (String term : terms) {
+                int[] list = postings.get(term);
+                int size = postingSizes.get(term);
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(list[i]);
+                }
+            }
+            out.flush();
+            fileOut.getChannel().force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] utf8(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.ai.archive;
+
+import com.example.ai.model.Conversation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Conversations written to a {@link Segment} and read back from a freshly opened file
+ * come back unchanged, oldest first, across several blocks.
+ */
+class SegmentTest {
+    private static final int ROWS = Segment.BLOCK_ROWS * 2 + 17;
+
+    @Test
+    void conversationsSurviveARoundTrip(@TempDir Path directory) throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789);
+        List<Conversation> written = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            // Ids and times out of order, some sessions missing, texts beyond ASCII
+            Conversation conversation = new Conversation("Question " + i + " – ünïcode ✓",
+                "Answer " + i + "\nover two lines", i % 7 == 0 ? null : "session-" + i % 5);
+            conversation.setId((long) (ROWS - i) * 3);
+            conversation.setTimestamp(start.plusNanos((long) (i % 100) * 1_000_001).plusSeconds(i / 100));
+            written.add(conversation);
+        }
+
+        Path file = directory.resolve("segment-00000001.seg");
+        Segment.write(file, 1, written).close();
+
+        List<Conversation> read = new ArrayList<>();
+        try (Segment segment = Segment.open(file, 1)) {
+            assertEquals(ROWS, segment.getRows());
+            assertEquals(3, segment.getBlocks().length);
+            for (Segment.Block block : segment.getBlocks()) {
+                read.addAll(segment.readBlock(block));
+            }
+        }
+
+        List<Conversation> expected = new ArrayList<>(written);
+        expected.sort(Segment.OLDEST_FIRST);
+        assertEquals(expected.size(), read.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Conversation want = expected.get(i);
+            Conversation got = read.get(i);
+            assertEquals(want.getId(), got.getId());
+            assertEquals(want.getTimestamp(), got.getTimestamp());
+            assertEquals(want.getSessionId(), got.getSessionId());
+            assertEquals(want.getUserQuery(), got.getUserQuery());
+            assertEquals(want.getAiResponse(), got.getAiResponse());
+        }
+    }
+}
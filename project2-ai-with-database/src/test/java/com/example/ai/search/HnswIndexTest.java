@@ -0,0 +1,55 @@
+package com.example.ai.search;
+
+import com.example.ai.model.KnowledgeEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * An {@link HnswIndex} saved and loaded again answers every search exactly as before,
+ * deleted nodes included.
+ */
+class HnswIndexTest {
+    private static final String[] WORDS = {"java", "python", "database", "index", "cache", "thread", "graph", "vector"};
+
+    @Test
+    void searchesAreUnchangedAfterARoundTrip(@TempDir Path directory) throws Exception {
+        TextEmbedder embedder = new TextEmbedder();
+        HnswIndex index = new HnswIndex(embedder, 4, 20, 16, -1);
+        List<KnowledgeEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            KnowledgeEntry entry = new KnowledgeEntry("What is " + WORDS[i % WORDS.length] + " "
+                + WORDS[(i / WORDS.length) % WORDS.length] + " number " + i + "?", "Answer " + i, null);
+            entry.setId(i + 1L);
+            entries.add(entry);
+        }
+        index.rebuild(entries);
+        for (long id = 1; id <= 300; id += 10) {
+            index.onDeleted(id);
+        }
+
+        Path file = directory.resolve("knowledge.hnsw");
+        index.save(file);
+        HnswIndex loaded = HnswIndex.load(file, embedder, 16, -1);
+
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.getDeletedCount(), loaded.getDeletedCount());
+        for (int i = 0; i < 40; i++) {
+            String query = WORDS[i % WORDS.length] + " " + WORDS[(i * 3) % WORDS.length] + " number " + i * 7;
+            List<KnowledgeIndex.SearchHit> expected = index.search(query, 10);
+            List<KnowledgeIndex.SearchHit> actual = loaded.search(query, 10);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected.size(), actual.size(), query);
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).getEntryId(), actual.get(j).getEntryId(), query);
+                assertEquals(expected.get(j).getScore(), actual.get(j).getScore(), query);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.ai.service;
+
+import com.example.ai.model.Conversation;
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.ConversationRepository;
+import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.repository.UnitOfWork;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link AIService#processQuery(String, String)} called from many threads at once, each
+ * in its own conversation session, against an in-memory H2 database: no request may see
+ * or write another request's data. The check of the benchmarks module's
+ * {@code ConcurrencyStress}, run with the build at a fixed size.
+ */
+class AIServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int QUERIES_PER_THREAD = 500;
+    private static final int KNOWLEDGE_SIZE = 200;
+    private static final double INITIAL_CONFIDENCE = 1.0;
+
+    private EntityManagerFactory emf;
+
+    @BeforeEach
+    void openDatabase() {
+        emf = Persistence.createEntityManagerFactory("AIKnowledgeBasePU", Map.of(
+            "jakarta.persistence.jdbc.url", "jdbc:h2:mem:concurrency-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+            "hibernate.hbm2ddl.auto", "create-drop"));
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        emf.close();
+    }
+
+    @Test
+    void concurrentQueriesKeepTheirOwnAnswersSessionsAndHits() throws Exception {
+        UnitOfWork unitOfWork = new UnitOfWork(emf);
+        KnowledgeRepository knowledgeRepository = new KnowledgeRepository(unitOfWork);
+        ConversationRepository conversationRepository = new ConversationRepository(unitOfWork);
+        knowledgeRepository.importEntries(IntStream.range(0, KNOWLEDGE_SIZE).mapToObj(i -> {
+            KnowledgeEntry entry = new KnowledgeEntry("What is topic" + i + "?", answer(i), "Stress");
+            entry.setConfidenceScore(INITIAL_CONFIDENCE);
+            return entry;
+        }), 1000, progress -> { });
+
+        ConversationWriter writer = new ConversationWriter(conversationRepository,
+            ConversationWriter.DEFAULT_QUEUE_CAPACITY, ConversationWriter.DEFAULT_BATCH_SIZE,
+            ConversationWriter.DEFAULT_FLUSH_INTERVAL_MILLIS, ConversationWriter.OverflowPolicy.BLOCK);
+        ConfidenceUpdater updater = new ConfidenceUpdater(knowledgeRepository, ConfidenceUpdater.DEFAULT_INCREMENT, 100);
+        AIService service = new AIService(unitOfWork, knowledgeRepository, conversationRepository,
+            new AIService.Options()
+                .conversationWriter(writer)
+                .confidenceUpdater(updater)
+                .answerCacheSize(AnswerCache.DEFAULT_MAXIMUM_SIZE));
+
+        AtomicLongArray hits = new AtomicLongArray(KNOWLEDGE_SIZE);
+        AtomicLong wrongAnswers = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String session = "session-" + t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int q = 0; q < QUERIES_PER_THREAD; q++) {
+                    int topic = random.nextInt(KNOWLEDGE_SIZE);
+                    if (!answer(topic).equals(service.processQuery("what is topic" + topic, session))) {
+                        wrongAnswers.incrementAndGet();
+                    }
+                    hits.incrementAndGet(topic);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        writer.close();
+        updater.close();
+
+        assertEquals(0, wrongAnswers.get(), "answers that did not match their question");
+        assertEquals(0, writer.getDroppedCount() + writer.getFailedCount(), "conversations dropped or not written");
+        for (int t = 0; t < THREADS; t++) {
+            String session = "session-" + t;
+            List<Conversation> conversations = service.getConversationHistory(session);
+            assertEquals(QUERIES_PER_THREAD, conversations.size(), "conversations of " + session);
+            for (Conversation conversation : conversations) {
+                int topic = Integer.parseInt(conversation.getUserQuery().substring("what is topic".length()));
+                assertEquals(answer(topic), conversation.getAiResponse(), "answer recorded in " + session);
+                assertEquals(session, conversation.getSessionId());
+            }
+        }
+        for (KnowledgeEntry entry : knowledgeRepository.findAll()) {
+            int topic = Integer.parseInt(entry.getAnswer().substring("Answer number ".length()));
+            assertEquals(INITIAL_CONFIDENCE + hits.get(topic) * ConfidenceUpdater.DEFAULT_INCREMENT,
+                entry.getConfidenceScore(), 1e-6, "confidence of " + entry.getQuestion());
+        }
+    }
+
+    private static String answer(int topic) {
+        return "Answer number " + topic;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.ai.snapshot;
+
+import com.example.ai.model.KnowledgeEntry;
+import com.example.ai.repository.KnowledgeRepository;
+import com.example.ai.repository.UnitOfWork;
+import com.example.ai.search.KnowledgeIndex;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * A repository exported with {@link KnowledgeSnapshotWriter#export} and opened again must
+ * answer like the {@link KnowledgeIndex} built from the same entries: same entries, same
+ * order, same texts.
+ */
+class KnowledgeSnapshotTest {
+    private static final String[] TOPICS = {"java", "python", "database", "index", "cache", "thread"};
+    private static final String[] QUERIES = {
+        "What is Java?", "python thread", "how does a database index work", "cache", "java cache thread",
+        "what is", "nothing matches this", "topic 7", "Explain the database cache please"
+    };
+
+    private EntityManagerFactory emf;
+
+    @BeforeEach
+    void openDatabase() {
+        emf = Persistence.createEntityManagerFactory("AIKnowledgeBasePU", Map.of(
+            "jakarta.persistence.jdbc.url", "jdbc:h2:mem:snapshot-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+            "hibernate.hbm2ddl.auto", "create-drop"));
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        emf.close();
+    }
+
+    @Test
+    void searchesRankLikeTheIndexAfterARoundTrip(@TempDir Path directory) throws Exception {
+        KnowledgeRepository repository = new KnowledgeRepository(new UnitOfWork(emf));
+        for (int i = 0; i < 60; i++) {
+            String first = TOPICS[i % TOPICS.length];
+            String second = TOPICS[(i / TOPICS.length) % TOPICS.length];
+            KnowledgeEntry entry = new KnowledgeEntry("What is " + first + " and " + second + " topic " + i + "?",
+                "Answer " + i, i % 3 == 0 ? null : "Category " + i % 3);
+            entry.setConfidenceScore(1.0 + (i % 5) * 0.1);
+            repository.create(entry);
+        }
+        KnowledgeIndex index = new KnowledgeIndex();
+        index.rebuild(repository.findAll());
+
+        Path file = directory.resolve("knowledge.snapshot");
+        assertEquals(60, KnowledgeSnapshotWriter.export(repository, file));
+
+        try (KnowledgeSnapshot snapshot = KnowledgeSnapshot.open(file)) {
+            assertEquals(index.size(), snapshot.size());
+            assertFalse(index.search(QUERIES[0], 5).isEmpty());
+            for (String query : QUERIES) {
+                assertEquals(entryIds(index.search(query, 5)), entryIds(snapshot.search(query, 5)), query);
+            }
+            for (KnowledgeEntry entry : repository.findAll()) {
+                assertEquals(entry.getQuestion(), snapshot.getQuestion(entry.getId()));
+                assertEquals(entry.getAnswer(), snapshot.getAnswer(entry.getId()));
+                assertEquals(entry.getCategory(), snapshot.getCategory(entry.getId()));
+            }
+        }
+    }
+
+    private static List<Long> entryIds(List<KnowledgeIndex.SearchHit> hits) {
+        return hits.stream().map(KnowledgeIndex.SearchHit::getEntryId).collect(Collectors.toList());
+    }
+}